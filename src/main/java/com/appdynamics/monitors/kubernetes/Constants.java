@@ -53,4 +53,29 @@ public class Constants {
     public static final String CONFIG_SCHEMA_NAME_EP = "endpointSchemaName";
 
     public static final String CONFIG_RECS_BATCH_SIZE = "batchSize";
+    public static final String CONFIG_OVERSIZED_FIELDS = "oversizedFields";
+    public static final String CONFIG_BATCH_MAX_BYTES = "batchMaxBytes";
+    public static final long DEFAULT_BATCH_MAX_BYTES = 1000000;
+    public static final String CONFIG_COMPRESS_EVENTS = "compressEvents";
+    public static final String CONFIG_COMPRESSION_LEVEL = "compressionLevel";
+    public static final String CONFIG_UPLOAD_QUEUE_SIZE = "uploadQueueSize";
+    public static final String CONFIG_UPLOAD_WORKERS = "uploadWorkers";
+    public static final String CONFIG_UPLOAD_MAX_RETRIES = "uploadMaxRetries";
+    public static final String CONFIG_SPOOL_FAILED_BATCHES = "spoolFailedBatches";
+    public static final String CONFIG_SPOOL_MAX_MB = "spoolMaxMB";
+    public static final String CONFIG_SPOOL_MAX_AGE_MINUTES = "spoolMaxAgeMinutes";
+    public static final String CONFIG_SPOOL_REPLAY_RATE = "spoolReplayRate";
+
+    public static final String CONFIG_WATCH_CACHE = "useWatchCache";
+    public static final String CONFIG_WATCH_CACHE_SYNC_TIMEOUT = "watchCacheSyncTimeout";
+    public static final String CONFIG_LIST_PAGE_SIZE = "listPageSize";
+    public static final String CONFIG_STREAM_LIST_RESPONSES = "streamListResponses";
+    public static final String CONFIG_PROJECT_OBJECTS = "projectObjects";
+    public static final String CONFIG_SCOPE_LIST_CALLS = "scopeListCalls";
+    public static final String CONFIG_SCOPE_LIST_CONCURRENCY = "scopeListConcurrency";
+    public static final String CONFIG_NAMESPACE_FAN_OUT = "namespaceFanOut";
+    public static final String CONFIG_PARALLEL_PAYLOAD = "parallelPayload";
+    public static final String CONFIG_PAYLOAD_PARALLELISM = "payloadParallelism";
+    public static final String CONFIG_PUBLISH_DELTAS_ONLY = "publishDeltasOnly";
+    public static final String CONFIG_DELTA_FULL_REFRESH_MINUTES = "deltaFullRefreshMinutes";
 }
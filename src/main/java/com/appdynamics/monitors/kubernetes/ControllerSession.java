@@ -0,0 +1,55 @@
+package com.appdynamics.monitors.kubernetes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Controller UI session (JSESSIONID and X-CSRF-TOKEN) shared by the Controller API calls.
+// One session per Controller and user. It is reused until the Controller refuses it with 401/403
+// or it has been idle for longer than the Controller keeps sessions.
+// Threads that need a new session at the same time wait for a single login.
+public class ControllerSession {
+    private static final Logger logger = LoggerFactory.getLogger(ControllerSession.class);
+    private static final long MAX_IDLE_MILLIS = 20 * 60 * 1000;
+
+    private static final Map<String, ControllerSession> sessions = new HashMap<String, ControllerSession>();
+
+    private AppDRestAuth auth = null;
+    private long lastUsed = 0;
+
+    private static synchronized ControllerSession forConfig(Map<String, String> config){
+        String key = Utilities.getControllerUrl(config) + "|" + RestClient.getRESTCredentials(config);
+        ControllerSession session = sessions.get(key);
+        if (session == null) {
+            session = new ControllerSession();
+            sessions.put(key, session);
+        }
+        return session;
+    }
+
+    //current session, logging in when there is none or it has expired. Null when the login fails
+    public static AppDRestAuth get(Map<String, String> config){
+        return forConfig(config).acquire(config, null);
+    }
+
+    //new session in place of one the Controller refused. Null when the login fails
+    public static AppDRestAuth refresh(Map<String, String> config, AppDRestAuth refused){
+        return forConfig(config).acquire(config, refused);
+    }
+
+    private synchronized AppDRestAuth acquire(Map<String, String> config, AppDRestAuth refused){
+        long now = System.currentTimeMillis();
+        boolean expired = now - lastUsed > MAX_IDLE_MILLIS;
+        //another thread may already have replaced the refused session
+        if (auth == null || expired || auth == refused) {
+            if (auth != null) {
+                logger.debug("Controller session {}. Logging in again", expired ? "expired" : "refused");
+            }
+            auth = RestClient.getAuthToken(config);
+        }
+        lastUsed = auth == null ? 0 : now;
+        return auth;
+    }
+}
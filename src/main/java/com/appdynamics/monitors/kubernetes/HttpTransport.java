@@ -0,0 +1,92 @@
+package com.appdynamics.monitors.kubernetes;
+
+import com.squareup.okhttp.Authenticator;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.Credentials;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// HTTP clients of the Events API and Controller calls.
+// One client, with its own pool of keep-alive connections, per destination and proxy settings,
+// so that connections and TLS sessions are reused across batches and collection cycles.
+// The proxy is set on the clients only, the JVM-wide proxy properties and authenticator are left alone.
+public class HttpTransport {
+    private static final Logger logger = LoggerFactory.getLogger(HttpTransport.class);
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long CONNECT_TIMEOUT_SECONDS = 30;
+    private static final long READ_TIMEOUT_SECONDS = 120;
+
+    private static final Map<String, OkHttpClient> clients = new HashMap<String, OkHttpClient>();
+
+    public static Response execute(URL url, Map<String, String> config, Request request) throws IOException {
+        return getClient(url, config).newCall(request).execute();
+    }
+
+    public static synchronized OkHttpClient getClient(URL url, Map<String, String> config){
+        String proxyHost = Utilities.getProxyHost(config);
+        String proxyPort = Utilities.getProxyPort(config);
+        String proxyUser = Utilities.getProxyUser(config);
+        String key = String.format("%s://%s:%d|%s:%s|%s", url.getProtocol(), url.getHost(),
+                url.getPort() == -1 ? url.getDefaultPort() : url.getPort(), proxyHost, proxyPort, proxyUser);
+        OkHttpClient client = clients.get(key);
+        if (client == null) {
+            client = new OkHttpClient();
+            client.setConnectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES));
+            client.setConnectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            client.setReadTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            client.setWriteTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (StringUtils.isNotEmpty(proxyHost) && StringUtils.isNotEmpty(proxyPort)) {
+                client.setProxy(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(proxyHost, Integer.parseInt(proxyPort))));
+                String proxyPass = Utilities.getProxyPass(config);
+                if (StringUtils.isNotEmpty(proxyUser) && StringUtils.isNotEmpty(proxyPass)) {
+                    client.setAuthenticator(new ProxyAuthenticator(Credentials.basic(proxyUser, proxyPass)));
+                }
+            }
+            clients.put(key, client);
+            logger.info("HTTP client initialized for {}://{}", url.getProtocol(), url.getAuthority());
+        }
+        return client;
+    }
+
+    public static synchronized void close(){
+        for (OkHttpClient client : clients.values()) {
+            client.getConnectionPool().evictAll();
+        }
+        clients.clear();
+    }
+
+    private static class ProxyAuthenticator implements Authenticator {
+        private final String credentials;
+
+        ProxyAuthenticator(String credentials){
+            this.credentials = credentials;
+        }
+
+        @Override
+        public Request authenticate(Proxy proxy, Response response) {
+            return null;
+        }
+
+        @Override
+        public Request authenticateProxy(Proxy proxy, Response response) {
+            if (credentials.equals(response.request().header("Proxy-Authorization"))) {
+                //the credentials were refused
+                return null;
+            }
+            return response.request().newBuilder().header("Proxy-Authorization", credentials).build();
+        }
+    }
+}
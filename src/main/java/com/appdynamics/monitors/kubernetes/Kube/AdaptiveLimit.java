@@ -0,0 +1,73 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import io.kubernetes.client.ApiException;
+
+import java.net.SocketTimeoutException;
+
+// Number of list calls allowed in flight against the API server.
+// Grows by one after a full window of successful calls and is halved when the server pushes back
+// (429, 5xx or timeouts), so that large fan-outs settle at what the API server can take.
+public class AdaptiveLimit {
+    private int maxLimit;
+    private int limit;
+    private int inFlight = 0;
+    private int successes = 0;
+
+    public AdaptiveLimit(int initialLimit, int maxLimit){
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+    }
+
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    public synchronized void release(boolean overloaded){
+        inFlight--;
+        if (overloaded) {
+            limit = Math.max(1, limit / 2);
+            successes = 0;
+        }
+        else if (++successes >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+            successes = 0;
+        }
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public synchronized void setMaxLimit(int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        limit = Math.min(limit, this.maxLimit);
+        notifyAll();
+    }
+
+    //true when the failure means the API server is overloaded rather than the request being wrong
+    public static boolean isOverload(Throwable ex){
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException) {
+                int code = ((ApiException) cause).getCode();
+                if (code == 429 || code >= 500) {
+                    return true;
+                }
+            }
+            if (cause instanceof SocketTimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
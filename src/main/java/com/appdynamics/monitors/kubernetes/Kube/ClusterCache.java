@@ -0,0 +1,79 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import com.appdynamics.monitors.kubernetes.Utilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_WATCH_CACHE;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_WATCH_CACHE_SYNC_TIMEOUT;
+
+// Registry of the watch caches. Lives for the lifetime of the extension, across doRun invocations.
+public class ClusterCache {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCache.class);
+    private static final long DEFAULT_SYNC_TIMEOUT_SECONDS = 240;
+
+    private static final Map<String, WatchCache<?, ?>> caches = new HashMap<String, WatchCache<?, ?>>();
+    private static EventStream eventStream = null;
+
+    public static boolean isEnabled(Map<String, String> config){
+        return config != null && "true".equalsIgnoreCase(config.get(CONFIG_WATCH_CACHE));
+    }
+
+    public static long getSyncTimeout(Map<String, String> config){
+        String timeout = config.get(CONFIG_WATCH_CACHE_SYNC_TIMEOUT);
+        if (timeout == null || timeout.isEmpty()){
+            return DEFAULT_SYNC_TIMEOUT_SECONDS;
+        }
+        return Long.parseLong(timeout);
+    }
+
+    public static <T, L> WatchCache<T, L> get(Map<String, String> config, ResourceType<T, L> resourceType) throws Exception {
+        return get(config, resourceType, new ListRequest());
+    }
+
+    //one cache per resource type and list scope
+    @SuppressWarnings("unchecked")
+    public static synchronized <T, L> WatchCache<T, L> get(Map<String, String> config, ResourceType<T, L> resourceType, ListRequest scope) throws Exception {
+        String key = String.format("%s|%s", resourceType.getName(), scope.getScopeKey());
+        WatchCache<T, L> cache = (WatchCache<T, L>) caches.get(key);
+        if (cache == null || !cache.isRunning()) {
+            logger.info("Creating watch cache for {} {}", resourceType.getName(), scope.getScopeKey());
+            cache = new WatchCache<T, L>(resourceType, KubeClientProvider.getClient(config), Utilities.getListPageSize(config));
+            if (Utilities.isProjectionEnabled(config)) {
+                cache.setProjection(resourceType.getProjection());
+            }
+            cache.setScope(scope);
+            caches.put(key, cache);
+            cache.start();
+        }
+        return cache;
+    }
+
+    public static synchronized EventStream getEventStream(Map<String, String> config) throws Exception {
+        if (eventStream == null || !eventStream.isRunning()) {
+            if (eventStream != null) {
+                eventStream.stop();
+            }
+            logger.info("Starting event stream");
+            eventStream = new EventStream(KubeClientProvider.getClient(config), Utilities.getListPageSize(config),
+                    Utilities.isProjectionEnabled(config) ? ResourceType.EVENTS.getProjection() : null,
+                    ListScopes.resolve(config, ResourceType.EVENTS));
+            eventStream.start();
+        }
+        return eventStream;
+    }
+
+    public static synchronized void stopAll(){
+        for (WatchCache<?, ?> cache : caches.values()){
+            cache.stop();
+        }
+        caches.clear();
+        if (eventStream != null){
+            eventStream.stop();
+            eventStream = null;
+        }
+    }
+}
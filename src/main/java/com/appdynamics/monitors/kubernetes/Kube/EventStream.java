@@ -0,0 +1,140 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.models.V1Event;
+import io.kubernetes.client.models.V1EventList;
+import io.kubernetes.client.models.V1ObjectMeta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persistent watch on the cluster events.
+// New and updated events are queued as they arrive and drained by the event runner, so a cycle
+// only handles what changed since the previous one. The initial LIST of each watch is queued in full.
+// A re-sync after 410 Gone lists all the events again: of those, only the ones that are unknown to that watch or whose
+// resource version differs from the last one delivered are queued, so the replays never crowd the new events out.
+public class EventStream {
+    private static final Logger logger = LoggerFactory.getLogger(EventStream.class);
+    private static final int MAX_QUEUED_EVENTS = 10000;
+
+    private final List<WatchCache<V1Event, V1EventList>> watches = new ArrayList<WatchCache<V1Event, V1EventList>>();
+    private final LinkedBlockingQueue<V1Event> queue = new LinkedBlockingQueue<V1Event>(MAX_QUEUED_EVENTS);
+    private final AtomicLong dropped = new AtomicLong(0);
+
+    //one watch per namespace scope, all feeding the same queue
+    public EventStream(ApiClient client, int pageSize, Projection projection, List<ListRequest> scopes){
+        for (ListRequest scope : scopes) {
+            WatchCache<V1Event, V1EventList> watch = new WatchCache<V1Event, V1EventList>(ResourceType.EVENTS, client, pageSize, false);
+            watch.setListener(new ScopeListener(watch));
+            watch.setProjection(projection);
+            watch.setScope(scope);
+            watches.add(watch);
+        }
+    }
+
+    public void start(){
+        for (WatchCache<V1Event, V1EventList> watch : watches) {
+            watch.start();
+        }
+    }
+
+    public void stop(){
+        for (WatchCache<V1Event, V1EventList> watch : watches) {
+            watch.stop();
+        }
+    }
+
+    public boolean isRunning(){
+        for (WatchCache<V1Event, V1EventList> watch : watches) {
+            if (!watch.isRunning()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean waitForSync(long timeout, TimeUnit unit){
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (WatchCache<V1Event, V1EventList> watch : watches) {
+            if (!watch.waitForSync(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void enqueue(V1Event item){
+        //keep the most recent events when the runner falls behind
+        while (!queue.offer(item)){
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    //returns the events received since the previous call
+    public List<V1Event> drain(){
+        List<V1Event> events = new ArrayList<V1Event>(queue.size());
+        queue.drainTo(events);
+        long lost = dropped.getAndSet(0);
+        if (lost > 0){
+            logger.warn("{} events were dropped because the event queue was full", lost);
+        }
+        return events;
+    }
+
+    //filters the events of one watch. Called from the thread of the watch only
+    private class ScopeListener implements WatchListener<V1Event> {
+        private final WatchCache<V1Event, V1EventList> watch;
+        //last delivered resource version of every live event, by uid
+        private final Map<String, String> versions = new HashMap<String, String>();
+        //uids listed by the current re-sync, the events missing from it were deleted while the watch was down
+        private Set<String> listed = null;
+
+        ScopeListener(WatchCache<V1Event, V1EventList> watch){
+            this.watch = watch;
+        }
+
+        @Override
+        public void onEvent(String type, V1Event item) {
+            V1ObjectMeta meta = item.getMetadata();
+            if (meta == null){
+                return;
+            }
+            String key = meta.getUid() != null ? meta.getUid() : String.format("%s/%s", meta.getNamespace(), meta.getName());
+            if ("DELETED".equals(type)){
+                versions.remove(key);
+                return;
+            }
+            String version = meta.getResourceVersion();
+            if (WatchCache.SYNC.equals(type) && watch.hasSynced()){
+                //a re-sync lists the events again. Versions are opaque, an event is new when its version differs
+                if (listed == null){
+                    listed = new HashSet<String>();
+                }
+                listed.add(key);
+                String previous = versions.put(key, version);
+                if (previous != null && previous.equals(version)){
+                    return;
+                }
+                enqueue(item);
+                return;
+            }
+            if (listed != null){
+                versions.keySet().retainAll(listed);
+                listed = null;
+            }
+            versions.put(key, version);
+            enqueue(item);
+        }
+    }
+}
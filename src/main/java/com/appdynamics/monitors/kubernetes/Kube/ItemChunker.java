@@ -0,0 +1,37 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Groups streamed objects into small lists for the page based transforms of the runners.
+// Only one chunk of decoded objects is alive at a time.
+public class ItemChunker<T, L> implements ItemHandler<T> {
+    private final ResourceType<T, L> resourceType;
+    private final PageHandler<L> handler;
+    private final int chunkSize;
+    private List<T> chunk;
+
+    public ItemChunker(ResourceType<T, L> resourceType, int chunkSize, PageHandler<L> handler){
+        this.resourceType = resourceType;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.handler = handler;
+        this.chunk = new ArrayList<T>(this.chunkSize);
+    }
+
+    @Override
+    public void onItem(T item) throws Exception {
+        chunk.add(item);
+        if (chunk.size() >= chunkSize) {
+            flush();
+        }
+    }
+
+    public void flush() throws Exception {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<T> items = chunk;
+        chunk = new ArrayList<T>(chunkSize);
+        handler.onPage(resourceType.newList(items));
+    }
+}
@@ -0,0 +1,6 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+//receives the objects of a list response one at a time, as they are decoded
+public interface ItemHandler<T> {
+    void onItem(T item) throws Exception;
+}
@@ -0,0 +1,95 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import com.appdynamics.monitors.kubernetes.Utilities;
+import com.squareup.okhttp.ConnectionPool;
+import com.squareup.okhttp.HttpUrl;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import io.kubernetes.client.ApiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Owns the single Kubernetes API client of the extension.
+// The client is built once from the kubeconfig/cluster credentials and reused by all runners and watch caches,
+// so that connections and TLS sessions are kept alive across collection cycles.
+// The JVM-wide default client of the kubernetes library is never touched.
+public class KubeClientProvider {
+    private static final Logger logger = LoggerFactory.getLogger(KubeClientProvider.class);
+    public static final long CLIENT_TIMEOUT_SECONDS = 240;
+    private static final int MAX_IDLE_CONNECTIONS = 16;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static ApiClient client = null;
+    private static String clientKey = null;
+
+    public static synchronized ApiClient getClient(Map<String, String> config) throws Exception {
+        String key = getClientKey(config);
+        if (client == null || !key.equals(clientKey)) {
+            if (client != null) {
+                logger.info("Kubernetes client settings changed. Rebuilding the API client");
+                release(client);
+            }
+            client = buildClient(config);
+            clientKey = key;
+            logger.info("Kubernetes API client initialized for {}", client.getBasePath());
+        }
+        return client;
+    }
+
+    public static synchronized void close(){
+        if (client != null){
+            release(client);
+        }
+        client = null;
+        clientKey = null;
+    }
+
+    private static ApiClient buildClient(Map<String, String> config) throws Exception {
+        ApiClient apiClient = Utilities.initClient(config);
+        OkHttpClient httpClient = apiClient.getHttpClient();
+        httpClient.setConnectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES));
+        httpClient.setRetryOnConnectionFailure(true);
+        httpClient.setConnectTimeout(CLIENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        httpClient.setReadTimeout(CLIENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        httpClient.setWriteTimeout(CLIENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        httpClient.interceptors().add(new WatchBookmarkInterceptor());
+        return apiClient;
+    }
+
+    private static void release(ApiClient apiClient){
+        ConnectionPool pool = apiClient.getHttpClient().getConnectionPool();
+        if (pool != null){
+            pool.evictAll();
+        }
+    }
+
+    //the client only has to be rebuilt when the way of connecting to the cluster changes
+    private static String getClientKey(Map<String, String> config){
+        String apiMode = System.getenv("K8S_API_MODE");
+        if (apiMode == null || apiMode.isEmpty()){
+            apiMode = config.get("apiMode");
+        }
+        return String.format("%s|%s", apiMode, config.get("kubeClientConfig"));
+    }
+
+    //the generated list calls have no allowWatchBookmarks parameter. Servers that do not know it ignore it
+    private static class WatchBookmarkInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            HttpUrl url = request.httpUrl();
+            if ("true".equals(url.queryParameter("watch")) && url.queryParameter("allowWatchBookmarks") == null) {
+                request = request.newBuilder()
+                        .url(url.newBuilder().addQueryParameter("allowWatchBookmarks", "true").build())
+                        .build();
+            }
+            return chain.proceed(request);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+//parameters of a single LIST or WATCH call against the API server
+public class ListRequest {
+    private String resourceVersion;
+    private Integer timeoutSeconds;
+    private Boolean watch;
+    private Integer limit;
+    private String continueToken;
+    private String namespace;
+    private String fieldSelector;
+    private String labelSelector;
+
+    public ListRequest(){
+
+    }
+
+    public String getResourceVersion() {
+        return resourceVersion;
+    }
+
+    public ListRequest setResourceVersion(String resourceVersion) {
+        this.resourceVersion = resourceVersion;
+        return this;
+    }
+
+    public Integer getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public ListRequest setTimeoutSeconds(Integer timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+        return this;
+    }
+
+    public Boolean getWatch() {
+        return watch;
+    }
+
+    public ListRequest setWatch(Boolean watch) {
+        this.watch = watch;
+        return this;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public ListRequest setLimit(Integer limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public String getContinueToken() {
+        return continueToken;
+    }
+
+    public ListRequest setContinueToken(String continueToken) {
+        this.continueToken = continueToken;
+        return this;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    //null lists the objects of all namespaces
+    public ListRequest setNamespace(String namespace) {
+        this.namespace = namespace;
+        return this;
+    }
+
+    public String getFieldSelector() {
+        return fieldSelector;
+    }
+
+    public ListRequest setFieldSelector(String fieldSelector) {
+        this.fieldSelector = fieldSelector;
+        return this;
+    }
+
+    public String getLabelSelector() {
+        return labelSelector;
+    }
+
+    //only taken by the namespace and node lists
+    public ListRequest setLabelSelector(String labelSelector) {
+        this.labelSelector = labelSelector;
+        return this;
+    }
+
+    //copy of the scope of this request, without paging and watch parameters
+    public ListRequest scope() {
+        return new ListRequest().setNamespace(namespace).setFieldSelector(fieldSelector).setLabelSelector(labelSelector);
+    }
+
+    public String getScopeKey() {
+        String key = String.format("%s|%s", namespace == null ? "" : namespace, fieldSelector == null ? "" : fieldSelector);
+        return labelSelector == null ? key : key + "|" + labelSelector;
+    }
+}
@@ -0,0 +1,100 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.models.V1Namespace;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_NAMESPACE_FAN_OUT;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_NODE_NAMESPACES;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_NODE_NODES;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SCOPE_LIST_CALLS;
+
+// Turns the namespaces and nodes lists of config.yml, as compiled by ScopeFilter, into the scopes of the list calls,
+// so that only the monitored objects are downloaded: one call per namespace, and a field selector per node
+// for the types that can be filtered by node. Without scopeListCalls the whole cluster is listed.
+public class ListScopes {
+    private static final Logger logger = LoggerFactory.getLogger(ListScopes.class);
+
+    public static boolean isEnabled(Map<String, String> config){
+        return config != null && "true".equalsIgnoreCase(config.get(CONFIG_SCOPE_LIST_CALLS));
+    }
+
+    public static <T, L> List<ListRequest> resolve(Map<String, String> config, ResourceType<T, L> resourceType){
+        List<ListRequest> scopes = new ArrayList<ListRequest>();
+        if (!isEnabled(config)) {
+            scopes.add(new ListRequest());
+            return scopes;
+        }
+        List<String> namespaces = resourceType.isNamespaced() ? getNames(config, CONFIG_NODE_NAMESPACES) : null;
+        List<String> nodes = resourceType.getNodeFieldSelector("") != null ? getNames(config, CONFIG_NODE_NODES) : null;
+
+        List<String> namespaceScopes = new ArrayList<String>();
+        if (namespaces == null) {
+            namespaceScopes.add(null);
+        } else {
+            namespaceScopes.addAll(namespaces);
+        }
+        for (String namespace : namespaceScopes) {
+            if (nodes == null) {
+                scopes.add(new ListRequest().setNamespace(namespace));
+            } else {
+                for (String node : nodes) {
+                    scopes.add(new ListRequest().setNamespace(namespace).setFieldSelector(resourceType.getNodeFieldSelector(node)));
+                }
+            }
+        }
+        logger.debug("{} list scopes for {}", scopes.size(), resourceType.getName());
+        return scopes;
+    }
+
+    public static boolean isFanOutEnabled(Map<String, String> config){
+        return config != null && "true".equalsIgnoreCase(config.get(CONFIG_NAMESPACE_FAN_OUT));
+    }
+
+    // Splits the cluster wide scopes of a namespaced type into one scope per namespace of the cluster,
+    // so that the objects are listed by several short calls instead of one long one
+    public static <T, L> List<ListRequest> fanOut(ApiClient client, ResourceType<T, L> resourceType, List<ListRequest> scopes, int pageSize) throws Exception {
+        if (!resourceType.isNamespaced()) {
+            return scopes;
+        }
+        List<String> namespaces = null;
+        List<ListRequest> result = new ArrayList<ListRequest>();
+        for (ListRequest scope : scopes) {
+            if (scope.getNamespace() != null) {
+                result.add(scope);
+                continue;
+            }
+            if (namespaces == null) {
+                namespaces = listNamespaces(client, pageSize);
+            }
+            for (String namespace : namespaces) {
+                result.add(scope.scope().setNamespace(namespace));
+            }
+        }
+        logger.debug("{} list calls fanned out over {} namespaces for {}", result.size(), namespaces != null ? namespaces.size() : 0, resourceType.getName());
+        return result;
+    }
+
+    private static List<String> listNamespaces(ApiClient client, int pageSize) throws Exception {
+        final List<String> names = new ArrayList<String>();
+        ResourceType.NAMESPACES.streamPaged(client, new ListRequest(), pageSize, ResourceType.NAMESPACES.getProjection(), new ItemHandler<V1Namespace>() {
+            @Override
+            public void onItem(V1Namespace item) {
+                if (item.getMetadata() != null && item.getMetadata().getName() != null) {
+                    names.add(item.getMetadata().getName());
+                }
+            }
+        });
+        return names;
+    }
+
+    //configured names of the section, null when all objects are monitored or the section has patterns
+    private static List<String> getNames(Map<String, String> config, String section){
+        return ScopeFilter.get(config, section).getListNames();
+    }
+}
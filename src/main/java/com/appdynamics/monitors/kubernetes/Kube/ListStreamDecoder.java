@@ -0,0 +1,59 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.squareup.okhttp.Call;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.models.V1ListMeta;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// Decodes a list response straight from the HTTP body as a token stream.
+// Every element of "items" is bound and handed over on its own, so the full list object graph is never built.
+// With a projection only the listed fields of an item are bound, the rest of the item is skipped in the stream.
+public class ListStreamDecoder {
+
+    public static <T> V1ListMeta decode(ApiClient client, Call call, Class<T> itemClass, Projection projection, ItemHandler<T> handler) throws Exception {
+        Response response = call.execute();
+        ResponseBody body = response.body();
+        try {
+            if (!response.isSuccessful()) {
+                String message = body != null ? body.string() : null;
+                throw new ApiException(response.message(), response.code(), response.headers().toMultimap(), message);
+            }
+            Gson gson = client.getJSON().getGson();
+            JsonReader reader = new JsonReader(new InputStreamReader(body.byteStream(), StandardCharsets.UTF_8));
+            V1ListMeta listMeta = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("items".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        T item = projection == null ? gson.<T>fromJson(reader, itemClass) : projection.bind(gson, reader, itemClass);
+                        handler.onItem(item);
+                    }
+                    reader.endArray();
+                }
+                else if ("metadata".equals(name)) {
+                    listMeta = gson.fromJson(reader, V1ListMeta.class);
+                }
+                else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return listMeta;
+        }
+        finally {
+            if (body != null) {
+                body.close();
+            }
+        }
+    }
+}
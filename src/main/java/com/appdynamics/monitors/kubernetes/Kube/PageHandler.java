@@ -0,0 +1,6 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+//receives one page of a chunked list call
+public interface PageHandler<L> {
+    void onPage(L page) throws Exception;
+}
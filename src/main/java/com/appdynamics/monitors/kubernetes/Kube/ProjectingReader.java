@@ -0,0 +1,199 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+// Token stream of the projected fields of the underlying reader, handed straight to the type adapters.
+// Names are read ahead by hasNext and peek: the fields outside of the projection are skipped in the underlying
+// stream, so the adapters never see them. Only the reading methods the adapters use are forwarded.
+class ProjectingReader extends JsonReader {
+    private static final Reader UNREADABLE = new Reader() {
+        @Override
+        public int read(char[] buffer, int offset, int count) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private final JsonReader in;
+    //projections of the open objects and arrays
+    private Projection[] projections = new Projection[32];
+    private boolean[] objects = new boolean[32];
+    private int depth = 0;
+    //projection of the value read next, null when a name is expected or the root value was read
+    private Projection next;
+    //name read ahead of the adapter, and the projection of its value
+    private String pendingName = null;
+    private Projection pendingProjection = null;
+
+    ProjectingReader(JsonReader in, Projection projection){
+        super(UNREADABLE);
+        this.in = in;
+        this.next = projection;
+    }
+
+    private boolean expectsName(){
+        return depth > 0 && objects[depth - 1] && next == null;
+    }
+
+    //reads ahead to the next projected name of the object. False at the end of the object
+    private boolean fill() throws IOException {
+        if (pendingName != null) {
+            return true;
+        }
+        Projection object = projections[depth - 1];
+        while (in.hasNext()) {
+            String name = in.nextName();
+            Projection child = object.field(name);
+            if (child != null) {
+                pendingName = name;
+                pendingProjection = child;
+                return true;
+            }
+            in.skipValue();
+        }
+        return false;
+    }
+
+    private void push(Projection projection, boolean object){
+        if (depth == projections.length) {
+            projections = Arrays.copyOf(projections, depth * 2);
+            objects = Arrays.copyOf(objects, depth * 2);
+        }
+        projections[depth] = projection;
+        objects[depth] = object;
+        depth++;
+    }
+
+    private void valueRead(){
+        next = depth == 0 || objects[depth - 1] ? null : projections[depth - 1];
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if (expectsName()) {
+            return fill() ? JsonToken.NAME : in.peek();
+        }
+        return in.peek();
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return expectsName() ? fill() : in.hasNext();
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        if (!expectsName() || !fill()) {
+            throw new IllegalStateException("Expected a name but was " + peek() + " at " + getPath());
+        }
+        String name = pendingName;
+        next = pendingProjection;
+        pendingName = null;
+        pendingProjection = null;
+        return name;
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        Projection projection = next;
+        in.beginObject();
+        push(projection, true);
+        next = null;
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        in.endObject();
+        depth--;
+        valueRead();
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        Projection projection = next;
+        in.beginArray();
+        push(projection, false);
+        next = projection;
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        in.endArray();
+        depth--;
+        valueRead();
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        String value = in.nextString();
+        valueRead();
+        return value;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        boolean value = in.nextBoolean();
+        valueRead();
+        return value;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        in.nextNull();
+        valueRead();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        double value = in.nextDouble();
+        valueRead();
+        return value;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        long value = in.nextLong();
+        valueRead();
+        return value;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        int value = in.nextInt();
+        valueRead();
+        return value;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        if (expectsName()) {
+            nextName();
+            return;
+        }
+        in.skipValue();
+        valueRead();
+    }
+
+    @Override
+    public String getPath() {
+        return in.getPath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " of " + in;
+    }
+}
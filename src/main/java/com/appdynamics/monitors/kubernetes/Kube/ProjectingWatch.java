@@ -0,0 +1,91 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.squareup.okhttp.Call;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.models.V1Status;
+import io.kubernetes.client.util.Watch;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+// Watch stream that binds only the projected fields of the objects
+public class ProjectingWatch<T> extends Watch<T> {
+    private final Gson gson;
+    private final Class<T> itemClass;
+    private final Projection projection;
+
+    private ProjectingWatch(ApiClient client, com.squareup.okhttp.Response response, Call call, Class<T> itemClass, Projection projection){
+        super(client.getJSON(), response.body(), null, call);
+        this.gson = client.getJSON().getGson();
+        this.itemClass = itemClass;
+        this.projection = projection;
+    }
+
+    public static <T> ProjectingWatch<T> create(ApiClient client, Call call, Class<T> itemClass, Projection projection) throws ApiException {
+        //Response inside this class is the watch event type of the parent class
+        com.squareup.okhttp.Response response;
+        try {
+            response = call.execute();
+        }
+        catch (IOException ex){
+            throw new ApiException(ex);
+        }
+        if (!response.isSuccessful()) {
+            String message = null;
+            try {
+                message = response.body() != null ? response.body().string() : null;
+            }
+            catch (IOException ex){
+                //keep the status code
+            }
+            throw new ApiException(response.message(), response.code(), response.headers().toMultimap(), message);
+        }
+        return new ProjectingWatch<T>(client, response, call, itemClass, projection);
+    }
+
+    @Override
+    protected Response<T> parseLine(String line) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(line));
+        String type = null;
+        T item = null;
+        V1Status status = null;
+        //only when the object comes before the type, which the API server does not do
+        JsonElement object = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("type".equals(name)) {
+                type = reader.nextString();
+            }
+            else if ("object".equals(name)) {
+                //status objects of errors are kept whole
+                if (type == null) {
+                    object = new JsonParser().parse(reader);
+                }
+                else if ("ERROR".equals(type)) {
+                    status = gson.getAdapter(V1Status.class).read(reader);
+                }
+                else {
+                    item = projection.bind(gson, reader, itemClass);
+                }
+            }
+            else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (object != null) {
+            status = "ERROR".equals(type) ? gson.fromJson(object, V1Status.class) : null;
+            item = "ERROR".equals(type) ? null : projection.bind(gson, new JsonReader(new StringReader(object.toString())), itemClass);
+        }
+        if ("ERROR".equals(type)) {
+            return new Response<T>(type, status);
+        }
+        return new Response<T>(type, item);
+    }
+}
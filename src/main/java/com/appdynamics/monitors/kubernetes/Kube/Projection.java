@@ -0,0 +1,125 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tree of the object fields the snapshot runners read, built from dotted paths like "status.containerStatuses.image".
+// A path keeps the whole value at its end. Fields that are not listed are skipped in the token stream and never bound.
+// A path into an object keeps that object even when none of its fields are present, so presence checks still work.
+// The type adapters read the projected fields straight from the stream, no intermediate JsonElement tree is built.
+// The map adapter of Gson 2.8 reads map keys through the internal state of the reader, so the items are bound by a
+// Gson with the date adapters of the client and a map adapter reading the keys as names.
+public class Projection {
+    private static final Map<Gson, Gson> bindingGsons = new ConcurrentHashMap<Gson, Gson>();
+
+    private final Map<String, Projection> fields = new HashMap<String, Projection>();
+    private boolean all = false;
+
+    public static Projection of(String... paths){
+        Projection root = new Projection();
+        for (String path : paths) {
+            Projection node = root;
+            for (String name : path.split("\\.")) {
+                Projection child = node.fields.get(name);
+                if (child == null) {
+                    child = new Projection();
+                    node.fields.put(name, child);
+                }
+                node = child;
+            }
+            node.all = true;
+        }
+        return root;
+    }
+
+    public Projection field(String name){
+        return all ? this : fields.get(name);
+    }
+
+    //binds the next value of the stream, keeping only the projected fields
+    public <T> T bind(Gson gson, JsonReader reader, Class<T> type) throws IOException {
+        return getBindingGson(gson).getAdapter(type).read(new ProjectingReader(reader, this));
+    }
+
+    private static Gson getBindingGson(Gson gson){
+        Gson binding = bindingGsons.get(gson);
+        if (binding == null) {
+            binding = new GsonBuilder()
+                    .registerTypeAdapterFactory(new StringKeyMapAdapterFactory())
+                    .registerTypeAdapter(Date.class, gson.getAdapter(Date.class))
+                    .registerTypeAdapter(java.sql.Date.class, gson.getAdapter(java.sql.Date.class))
+                    .registerTypeAdapter(DateTime.class, gson.getAdapter(DateTime.class))
+                    .registerTypeAdapter(LocalDate.class, gson.getAdapter(LocalDate.class))
+                    .registerTypeAdapter(byte[].class, gson.getAdapter(byte[].class))
+                    .create();
+            bindingGsons.put(gson, binding);
+        }
+        return binding;
+    }
+
+    //maps with String keys declared as Map, the keys are read with nextName
+    private static class StringKeyMapAdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+            if (!typeToken.getRawType().isAssignableFrom(LinkedHashMap.class) || !(typeToken.getType() instanceof ParameterizedType)) {
+                return null;
+            }
+            Type[] arguments = ((ParameterizedType) typeToken.getType()).getActualTypeArguments();
+            if (arguments.length != 2 || arguments[0] != String.class) {
+                return null;
+            }
+            TypeAdapter<Map<String, Object>> delegate = (TypeAdapter<Map<String, Object>>) gson.getDelegateAdapter(this, typeToken);
+            TypeAdapter<Object> values = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(arguments[1]));
+            return (TypeAdapter<T>) new StringKeyMapAdapter(delegate, values);
+        }
+    }
+
+    private static class StringKeyMapAdapter extends TypeAdapter<Map<String, Object>> {
+        private final TypeAdapter<Map<String, Object>> delegate;
+        private final TypeAdapter<Object> values;
+
+        StringKeyMapAdapter(TypeAdapter<Map<String, Object>> delegate, TypeAdapter<Object> values){
+            this.delegate = delegate;
+            this.values = values;
+        }
+
+        @Override
+        public Map<String, Object> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Map<String, Object> map = new LinkedHashMap<String, Object>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                map.put(key, values.read(in));
+            }
+            in.endObject();
+            return map;
+        }
+
+        @Override
+        public void write(JsonWriter out, Map<String, Object> value) throws IOException {
+            delegate.write(out, value);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import io.kubernetes.client.custom.Quantity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Reads Kubernetes resource quantities as fixed-point milli-units: millicores for CPU, thousandths of a byte for memory.
+// Quantity strings are parsed in place, without BigDecimal or regular expressions, and fractions of a milli-unit are
+// rounded up like the API server does. A cluster uses few distinct quantities, so the results are memoized.
+// Values too large for a long are saturated to Long.MAX_VALUE.
+public class QuantityParser {
+    private static final int MAX_CACHED = 4096;
+    private static final long BYTES_PER_MB = 1000 * 1000;
+
+    private static final Map<String, Long> parsed = new ConcurrentHashMap<String, Long>();
+    //decoded Quantity objects are memoized by their number
+    private static final Map<BigDecimal, Long> converted = new ConcurrentHashMap<BigDecimal, Long>();
+
+    public static long toMilli(String quantity){
+        Long milli = parsed.get(quantity);
+        if (milli == null) {
+            milli = parseMilli(quantity);
+            if (parsed.size() < MAX_CACHED) {
+                parsed.put(quantity, milli);
+            }
+        }
+        return milli;
+    }
+
+    public static long toMilli(Quantity quantity){
+        BigDecimal number = quantity.getNumber();
+        Long milli = converted.get(number);
+        if (milli == null) {
+            BigDecimal value = number.movePointRight(3).setScale(0, RoundingMode.CEILING);
+            milli = value.toBigInteger().bitLength() > 63 ? (value.signum() < 0 ? Long.MIN_VALUE : Long.MAX_VALUE) : value.longValue();
+            if (converted.size() < MAX_CACHED) {
+                converted.put(number, milli);
+            }
+        }
+        return milli;
+    }
+
+    //memory quantity in MB of 1000 * 1000 bytes
+    public static float toMegabytes(Quantity quantity){
+        return (float) (toMilli(quantity) / 1000.0 / BYTES_PER_MB);
+    }
+
+    public static float toMegabytes(String quantity){
+        return (float) (toMilli(quantity) / 1000.0 / BYTES_PER_MB);
+    }
+
+    //quantity in whole units, cores for CPU
+    public static float toUnits(Quantity quantity){
+        return (float) (toMilli(quantity) / 1000.0);
+    }
+
+    public static float toUnits(String quantity){
+        return (float) (toMilli(quantity) / 1000.0);
+    }
+
+    // <sign><digits>[.<digits>]<suffix>, the suffix being one of n u m k M G T P E, Ki Mi Gi Ti Pi Ei, or an
+    // exponent e<digits> / E<digits>. Throws NumberFormatException for anything else
+    static long parseMilli(CharSequence quantity){
+        int n = quantity.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < n && (quantity.charAt(i) == '+' || quantity.charAt(i) == '-')) {
+            negative = quantity.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        //decimal exponent of the mantissa: negative for fraction digits, positive for integer digits beyond a long
+        int scale = 0;
+        int digits = 0;
+        boolean dropped = false;
+        boolean fraction = false;
+        for (; i < n; i++) {
+            char c = quantity.charAt(i);
+            if (c == '.' && !fraction) {
+                fraction = true;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                break;
+            }
+            digits++;
+            int digit = c - '0';
+            if (mantissa <= (Long.MAX_VALUE - digit) / 10) {
+                mantissa = mantissa * 10 + digit;
+                if (fraction) {
+                    scale--;
+                }
+            }
+            else {
+                dropped |= digit != 0;
+                if (!fraction) {
+                    scale++;
+                }
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid quantity " + quantity);
+        }
+
+        int exp10 = 0;
+        int exp2 = 0;
+        int remaining = n - i;
+        if (remaining > 0) {
+            char c = quantity.charAt(i);
+            if (remaining == 2 && quantity.charAt(i + 1) == 'i') {
+                exp2 = getBinaryExponent(c, quantity);
+            }
+            else if ((c == 'e' || c == 'E') && remaining > 1) {
+                exp10 = parseExponent(quantity, i + 1);
+            }
+            else if (remaining == 1) {
+                exp10 = getDecimalExponent(c, quantity);
+            }
+            else {
+                throw new NumberFormatException("Invalid quantity " + quantity);
+            }
+        }
+
+        long value = shiftLeft(mantissa, exp2);
+        int pow10 = exp10 + scale + 3;
+        boolean roundUp = dropped;
+        if (pow10 >= 0) {
+            for (int k = 0; k < pow10 && value != Long.MAX_VALUE; k++) {
+                value = value > Long.MAX_VALUE / 10 ? Long.MAX_VALUE : value * 10;
+            }
+        }
+        else {
+            for (int k = 0; k < -pow10 && value != 0; k++) {
+                roundUp |= value % 10 != 0;
+                value /= 10;
+            }
+        }
+        if (roundUp && value != Long.MAX_VALUE) {
+            value++;
+        }
+        return negative ? -value : value;
+    }
+
+    private static long shiftLeft(long value, int bits){
+        if (value == 0 || bits == 0) {
+            return value;
+        }
+        return bits >= Long.numberOfLeadingZeros(value) ? Long.MAX_VALUE : value << bits;
+    }
+
+    private static int parseExponent(CharSequence quantity, int start){
+        int i = start;
+        boolean negative = false;
+        if (quantity.charAt(i) == '+' || quantity.charAt(i) == '-') {
+            negative = quantity.charAt(i) == '-';
+            i++;
+        }
+        if (i == quantity.length()) {
+            throw new NumberFormatException("Invalid quantity " + quantity);
+        }
+        int exponent = 0;
+        for (; i < quantity.length(); i++) {
+            char c = quantity.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid quantity " + quantity);
+            }
+            //anything past 1000 saturates or rounds to zero anyway
+            exponent = Math.min(1000, exponent * 10 + (c - '0'));
+        }
+        return negative ? -exponent : exponent;
+    }
+
+    private static int getBinaryExponent(char prefix, CharSequence quantity){
+        switch (prefix) {
+            case 'K': return 10;
+            case 'M': return 20;
+            case 'G': return 30;
+            case 'T': return 40;
+            case 'P': return 50;
+            case 'E': return 60;
+            default: throw new NumberFormatException("Invalid quantity " + quantity);
+        }
+    }
+
+    private static int getDecimalExponent(char suffix, CharSequence quantity){
+        switch (suffix) {
+            case 'n': return -9;
+            case 'u': return -6;
+            case 'm': return -3;
+            case 'k': return 3;
+            case 'M': return 6;
+            case 'G': return 9;
+            case 'T': return 12;
+            case 'P': return 15;
+            case 'E': return 18;
+            default: throw new NumberFormatException("Invalid quantity " + quantity);
+        }
+    }
+}
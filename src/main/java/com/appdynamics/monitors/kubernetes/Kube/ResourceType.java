@@ -0,0 +1,461 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import com.google.gson.reflect.TypeToken;
+import com.squareup.okhttp.Call;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.apis.CoreV1Api;
+import io.kubernetes.client.apis.ExtensionsV1beta1Api;
+import io.kubernetes.client.models.*;
+import io.kubernetes.client.util.Watch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static com.appdynamics.monitors.kubernetes.Constants.*;
+
+// Describes how to LIST/WATCH one kind of Kubernetes object and how to read its list envelope.
+// All API server access of the snapshot runners goes through these descriptors.
+public abstract class ResourceType<T, L> {
+    private static final Logger logger = LoggerFactory.getLogger(ResourceType.class);
+    private final String name;
+    private final Class<T> itemClass;
+    private final Class<L> listClass;
+    private final Type watchType;
+
+    protected ResourceType(String name, Class<T> itemClass, Class<L> listClass, Type watchType){
+        this.name = name;
+        this.itemClass = itemClass;
+        this.listClass = listClass;
+        this.watchType = watchType;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getItemClass() {
+        return itemClass;
+    }
+
+    public Class<L> getListClass() {
+        return listClass;
+    }
+
+    public Type getWatchType() {
+        return watchType;
+    }
+
+    public abstract Call buildListCall(ApiClient client, ListRequest request) throws ApiException;
+
+    public abstract List<T> getItems(L list);
+
+    public abstract V1ListMeta getListMeta(L list);
+
+    public abstract V1ObjectMeta getMetadata(T item);
+
+    public abstract L newList(List<T> items);
+
+    //fields read by the snapshot runners
+    public abstract Projection getProjection();
+
+    public boolean isNamespaced(){
+        return true;
+    }
+
+    //field selector that restricts the list to the objects of one node, null when the type cannot be filtered by node
+    public String getNodeFieldSelector(String nodeName){
+        return null;
+    }
+
+    public L list(ApiClient client, ListRequest request) throws ApiException {
+        Call call = buildListCall(client, request);
+        return client.<L>execute(call, listClass).getData();
+    }
+
+    // Lists the objects of the scope in chunks of pageSize, following the continue token.
+    // Each page is handed over and released before the next one is requested.
+    // Returns the resource version of the list.
+    public String listPaged(ApiClient client, ListRequest scope, int pageSize, PageHandler<L> handler) throws Exception {
+        String continueToken = null;
+        String resourceVersion = null;
+        int pages = 0;
+        do {
+            L page = list(client, scope.scope().setLimit(pageSize).setContinueToken(continueToken));
+            V1ListMeta meta = getListMeta(page);
+            continueToken = meta != null ? meta.getContinue() : null;
+            if (meta != null && meta.getResourceVersion() != null) {
+                resourceVersion = meta.getResourceVersion();
+            }
+            handler.onPage(page);
+            pages++;
+        } while (continueToken != null && !continueToken.isEmpty());
+        logger.debug("Listed {} in {} pages of up to {} objects", name, pages, pageSize);
+        return resourceVersion;
+    }
+
+    // Decodes the list response item by item instead of binding the whole list.
+    // The projection is optional, null binds the complete objects
+    public V1ListMeta stream(ApiClient client, ListRequest request, Projection projection, ItemHandler<T> handler) throws Exception {
+        return ListStreamDecoder.decode(client, buildListCall(client, request), itemClass, projection, handler);
+    }
+
+    // Streams all the objects, following the continue token when pageSize is set
+    public String streamPaged(ApiClient client, ListRequest scope, int pageSize, Projection projection, ItemHandler<T> handler) throws Exception {
+        String continueToken = null;
+        String resourceVersion = null;
+        do {
+            ListRequest request = scope.scope().setContinueToken(continueToken);
+            if (pageSize > 0) {
+                request.setLimit(pageSize);
+            }
+            V1ListMeta meta = stream(client, request, projection, handler);
+            continueToken = meta != null ? meta.getContinue() : null;
+            if (meta != null && meta.getResourceVersion() != null) {
+                resourceVersion = meta.getResourceVersion();
+            }
+        } while (continueToken != null && !continueToken.isEmpty());
+        return resourceVersion;
+    }
+
+    private static final String[] METADATA = new String[]{"metadata.uid", "metadata.name", "metadata.namespace", "metadata.clusterName",
+            "metadata.creationTimestamp", "metadata.deletionTimestamp", "metadata.labels", "metadata.annotations",
+            "metadata.resourceVersion", "metadata.selfLink"};
+
+    private static Projection withMetadata(String... paths){
+        String[] all = new String[METADATA.length + paths.length];
+        System.arraycopy(METADATA, 0, all, 0, METADATA.length);
+        System.arraycopy(paths, 0, all, METADATA.length, paths.length);
+        return Projection.of(all);
+    }
+
+    public static final ResourceType<V1Pod, V1PodList> PODS = new ResourceType<V1Pod, V1PodList>(CONFIG_ENTITY_TYPE_POD,
+            V1Pod.class, V1PodList.class, new TypeToken<Watch.Response<V1Pod>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            if (r.getNamespace() != null) {
+                return new CoreV1Api(client).listNamespacedPodCall(r.getNamespace(), null, null, r.getContinueToken(), r.getFieldSelector(), null, r.getLimit(),
+                        r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+            }
+            return new CoreV1Api(client).listPodForAllNamespacesCall(r.getContinueToken(), r.getFieldSelector(), null, null, r.getLimit(), null,
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<V1Pod> getItems(V1PodList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(V1PodList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1Pod item) { return item.getMetadata(); }
+
+        private final Projection projection = withMetadata(
+                "spec.nodeName", "spec.priority", "spec.restartPolicy", "spec.serviceAccountName", "spec.terminationGracePeriodSeconds",
+                "spec.tolerations", "spec.affinity", "spec.initContainers.name",
+                "spec.containers.name", "spec.containers.securityContext.privileged", "spec.containers.ports", "spec.containers.resources",
+                "spec.containers.volumeMounts.mountPath",
+                //only the presence of the probes is reported
+                "spec.containers.livenessProbe.initialDelaySeconds", "spec.containers.readinessProbe.initialDelaySeconds",
+                "status.phase", "status.reason", "status.hostIP", "status.podIP", "status.startTime", "status.conditions",
+                "status.containerStatuses.name", "status.containerStatuses.image", "status.containerStatuses.restartCount",
+                "status.containerStatuses.ready", "status.containerStatuses.state");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public String getNodeFieldSelector(String nodeName) { return String.format("spec.nodeName=%s", nodeName); }
+
+        @Override
+        public V1PodList newList(List<V1Pod> items) {
+            V1PodList list = new V1PodList();
+            list.setItems(items);
+            return list;
+        }
+    };
+
+    public static final ResourceType<V1Node, V1NodeList> NODES = new ResourceType<V1Node, V1NodeList>(CONFIG_ENTITY_TYPE_NODE,
+            V1Node.class, V1NodeList.class, new TypeToken<Watch.Response<V1Node>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            return new CoreV1Api(client).listNodeCall(null, null, r.getContinueToken(), r.getFieldSelector(), r.getLabelSelector(), r.getLimit(),
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<V1Node> getItems(V1NodeList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(V1NodeList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1Node item) { return item.getMetadata(); }
+
+        private final Projection projection = withMetadata(
+                "spec.podCIDR", "spec.taints", "spec.unschedulable",
+                "status.addresses", "status.allocatable", "status.capacity", "status.conditions", "status.daemonEndpoints",
+                "status.nodeInfo", "status.phase", "status.volumesAttached", "status.volumesInUse");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public boolean isNamespaced() { return false; }
+
+        @Override
+        public String getNodeFieldSelector(String nodeName) { return String.format("metadata.name=%s", nodeName); }
+
+        @Override
+        public V1NodeList newList(List<V1Node> items) {
+            V1NodeList list = new V1NodeList();
+            list.setItems(items);
+            return list;
+        }
+    };
+
+    //only the names are read, to fan the namespaced list calls out per namespace
+    public static final ResourceType<V1Namespace, V1NamespaceList> NAMESPACES = new ResourceType<V1Namespace, V1NamespaceList>("namespace",
+            V1Namespace.class, V1NamespaceList.class, new TypeToken<Watch.Response<V1Namespace>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            return new CoreV1Api(client).listNamespaceCall(null, null, r.getContinueToken(), r.getFieldSelector(), r.getLabelSelector(), r.getLimit(),
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<V1Namespace> getItems(V1NamespaceList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(V1NamespaceList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1Namespace item) { return item.getMetadata(); }
+
+        private final Projection projection = Projection.of("metadata.name", "metadata.resourceVersion");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public boolean isNamespaced() { return false; }
+
+        @Override
+        public V1NamespaceList newList(List<V1Namespace> items) {
+            V1NamespaceList list = new V1NamespaceList();
+            list.setItems(items);
+            return list;
+        }
+    };
+
+    public static final ResourceType<V1Event, V1EventList> EVENTS = new ResourceType<V1Event, V1EventList>(CONFIG_ENTITY_TYPE_EVENT,
+            V1Event.class, V1EventList.class, new TypeToken<Watch.Response<V1Event>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            if (r.getNamespace() != null) {
+                return new CoreV1Api(client).listNamespacedEventCall(r.getNamespace(), null, null, r.getContinueToken(), r.getFieldSelector(), null, r.getLimit(),
+                        r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+            }
+            return new CoreV1Api(client).listEventForAllNamespacesCall(r.getContinueToken(), r.getFieldSelector(), null, null, r.getLimit(), null,
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<V1Event> getItems(V1EventList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(V1EventList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1Event item) { return item.getMetadata(); }
+
+        private final Projection projection = Projection.of("metadata", "involvedObject", "reason", "message", "source", "type", "count",
+                "firstTimestamp", "lastTimestamp");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public V1EventList newList(List<V1Event> items) {
+            V1EventList list = new V1EventList();
+            list.setItems(items);
+            return list;
+        }
+    };
+
+    public static final ResourceType<V1Endpoints, V1EndpointsList> ENDPOINTS = new ResourceType<V1Endpoints, V1EndpointsList>(CONFIG_ENTITY_TYPE_ENDPOINT,
+            V1Endpoints.class, V1EndpointsList.class, new TypeToken<Watch.Response<V1Endpoints>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            if (r.getNamespace() != null) {
+                return new CoreV1Api(client).listNamespacedEndpointsCall(r.getNamespace(), null, null, r.getContinueToken(), r.getFieldSelector(), null, r.getLimit(),
+                        r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+            }
+            return new CoreV1Api(client).listEndpointsForAllNamespacesCall(r.getContinueToken(), r.getFieldSelector(), null, null, r.getLimit(), null,
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<V1Endpoints> getItems(V1EndpointsList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(V1EndpointsList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1Endpoints item) { return item.getMetadata(); }
+
+        private final Projection projection = withMetadata(
+                "subsets.addresses.ip", "subsets.notReadyAddresses.ip", "subsets.notReadyAddresses.targetRef.name");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public V1EndpointsList newList(List<V1Endpoints> items) {
+            V1EndpointsList list = new V1EndpointsList();
+            list.setItems(items);
+            return list;
+        }
+    };
+
+    public static final ResourceType<V1ResourceQuota, V1ResourceQuotaList> QUOTAS = new ResourceType<V1ResourceQuota, V1ResourceQuotaList>(CONFIG_ENTITY_TYPE_QUOTA,
+            V1ResourceQuota.class, V1ResourceQuotaList.class, new TypeToken<Watch.Response<V1ResourceQuota>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            if (r.getNamespace() != null) {
+                return new CoreV1Api(client).listNamespacedResourceQuotaCall(r.getNamespace(), null, null, r.getContinueToken(), r.getFieldSelector(), null, r.getLimit(),
+                        r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+            }
+            return new CoreV1Api(client).listResourceQuotaForAllNamespacesCall(r.getContinueToken(), r.getFieldSelector(), null, null, r.getLimit(), null,
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<V1ResourceQuota> getItems(V1ResourceQuotaList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(V1ResourceQuotaList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1ResourceQuota item) { return item.getMetadata(); }
+
+        private final Projection projection = withMetadata("status");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public V1ResourceQuotaList newList(List<V1ResourceQuota> items) {
+            V1ResourceQuotaList list = new V1ResourceQuotaList();
+            list.setItems(items);
+            return list;
+        }
+    };
+
+    public static final ResourceType<ExtensionsV1beta1Deployment, ExtensionsV1beta1DeploymentList> DEPLOYMENTS =
+            new ResourceType<ExtensionsV1beta1Deployment, ExtensionsV1beta1DeploymentList>(CONFIG_ENTITY_TYPE_DEPLOYMENT,
+            ExtensionsV1beta1Deployment.class, ExtensionsV1beta1DeploymentList.class, new TypeToken<Watch.Response<ExtensionsV1beta1Deployment>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            if (r.getNamespace() != null) {
+                return new ExtensionsV1beta1Api(client).listNamespacedDeploymentCall(r.getNamespace(), true, null, r.getContinueToken(), r.getFieldSelector(), null, r.getLimit(),
+                        r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+            }
+            return new ExtensionsV1beta1Api(client).listDeploymentForAllNamespacesCall(r.getContinueToken(), r.getFieldSelector(), true, null, r.getLimit(), null,
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<ExtensionsV1beta1Deployment> getItems(ExtensionsV1beta1DeploymentList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(ExtensionsV1beta1DeploymentList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(ExtensionsV1beta1Deployment item) { return item.getMetadata(); }
+
+        private final Projection projection = withMetadata(
+                "spec.minReadySeconds", "spec.progressDeadlineSeconds", "spec.replicas", "spec.revisionHistoryLimit",
+                "spec.selector", "spec.strategy", "status");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public ExtensionsV1beta1DeploymentList newList(List<ExtensionsV1beta1Deployment> items) {
+            ExtensionsV1beta1DeploymentList list = new ExtensionsV1beta1DeploymentList();
+            list.setItems(items);
+            return list;
+        }
+    };
+
+    public static final ResourceType<V1beta1DaemonSet, V1beta1DaemonSetList> DAEMONSETS = new ResourceType<V1beta1DaemonSet, V1beta1DaemonSetList>(CONFIG_ENTITY_TYPE_DAEMON,
+            V1beta1DaemonSet.class, V1beta1DaemonSetList.class, new TypeToken<Watch.Response<V1beta1DaemonSet>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            if (r.getNamespace() != null) {
+                return new ExtensionsV1beta1Api(client).listNamespacedDaemonSetCall(r.getNamespace(), true, null, r.getContinueToken(), r.getFieldSelector(), null, r.getLimit(),
+                        r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+            }
+            return new ExtensionsV1beta1Api(client).listDaemonSetForAllNamespacesCall(r.getContinueToken(), r.getFieldSelector(), true, null, r.getLimit(), null,
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<V1beta1DaemonSet> getItems(V1beta1DaemonSetList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(V1beta1DaemonSetList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1beta1DaemonSet item) { return item.getMetadata(); }
+
+        private final Projection projection = withMetadata("spec.minReadySeconds", "spec.revisionHistoryLimit", "status");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public V1beta1DaemonSetList newList(List<V1beta1DaemonSet> items) {
+            V1beta1DaemonSetList list = new V1beta1DaemonSetList();
+            list.setItems(items);
+            return list;
+        }
+    };
+
+    public static final ResourceType<V1beta1ReplicaSet, V1beta1ReplicaSetList> REPLICASETS = new ResourceType<V1beta1ReplicaSet, V1beta1ReplicaSetList>(CONFIG_ENTITY_TYPE_REPLICA,
+            V1beta1ReplicaSet.class, V1beta1ReplicaSetList.class, new TypeToken<Watch.Response<V1beta1ReplicaSet>>(){}.getType()) {
+        @Override
+        public Call buildListCall(ApiClient client, ListRequest r) throws ApiException {
+            if (r.getNamespace() != null) {
+                return new ExtensionsV1beta1Api(client).listNamespacedReplicaSetCall(r.getNamespace(), true, null, r.getContinueToken(), r.getFieldSelector(), null, r.getLimit(),
+                        r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+            }
+            return new ExtensionsV1beta1Api(client).listReplicaSetForAllNamespacesCall(r.getContinueToken(), r.getFieldSelector(), true, null, r.getLimit(), null,
+                    r.getResourceVersion(), r.getTimeoutSeconds(), r.getWatch(), null, null);
+        }
+
+        @Override
+        public List<V1beta1ReplicaSet> getItems(V1beta1ReplicaSetList list) { return list.getItems(); }
+
+        @Override
+        public V1ListMeta getListMeta(V1beta1ReplicaSetList list) { return list.getMetadata(); }
+
+        @Override
+        public V1ObjectMeta getMetadata(V1beta1ReplicaSet item) { return item.getMetadata(); }
+
+        private final Projection projection = withMetadata("spec.minReadySeconds", "spec.replicas", "status");
+
+        @Override
+        public Projection getProjection() { return projection; }
+
+        @Override
+        public V1beta1ReplicaSetList newList(List<V1beta1ReplicaSet> items) {
+            V1beta1ReplicaSetList list = new V1beta1ReplicaSetList();
+            list.setItems(items);
+            return list;
+        }
+    };
+}
@@ -0,0 +1,103 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Bounded pool running the scoped list calls of the runners concurrently.
+// The number of calls in flight adapts to the API server within the configured maximum and is shared by all runners,
+// so it is kept across collection cycles.
+public class ScopeExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ScopeExecutor.class);
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    private static ExecutorService executor = null;
+    private static int poolSize = 0;
+    private static AdaptiveLimit limit = null;
+
+    //runs all the calls and waits for them. The first failure is rethrown
+    public static void runAll(int maxConcurrency, List<Callable<Void>> calls) throws Exception {
+        ExecutorService pool = getExecutor(maxConcurrency);
+        final AdaptiveLimit callLimit = getLimit();
+        List<Callable<Void>> gated = new ArrayList<Callable<Void>>(calls.size());
+        for (final Callable<Void> call : calls) {
+            gated.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    callLimit.acquire();
+                    boolean overloaded = false;
+                    try {
+                        return call.call();
+                    }
+                    catch (Exception ex){
+                        overloaded = AdaptiveLimit.isOverload(ex);
+                        if (overloaded) {
+                            logger.warn("API server is overloaded. Lowering concurrent list calls from {}", callLimit.getLimit());
+                        }
+                        throw ex;
+                    }
+                    finally {
+                        callLimit.release(overloaded);
+                    }
+                }
+            });
+        }
+        List<Future<Void>> futures = pool.invokeAll(gated);
+        Exception failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            }
+            catch (ExecutionException ex){
+                if (failure == null) {
+                    failure = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                }
+            }
+        }
+        logger.debug("Ran {} list calls. Concurrent call limit is {} of {}", calls.size(), callLimit.getLimit(), callLimit.getMaxLimit());
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static synchronized AdaptiveLimit getLimit(){
+        return limit;
+    }
+
+    private static synchronized ExecutorService getExecutor(int concurrency){
+        int size = Math.max(1, concurrency);
+        if (executor == null || poolSize != size) {
+            if (executor != null) {
+                executor.shutdown();
+            }
+            logger.info("Starting scoped list pool with {} threads", size);
+            executor = Executors.newFixedThreadPool(size, new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, String.format("k8s-list-%d", count.incrementAndGet()));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            poolSize = size;
+        }
+        if (limit == null) {
+            limit = new AdaptiveLimit(DEFAULT_CONCURRENCY, size);
+        }
+        else if (limit.getMaxLimit() != size) {
+            limit.setMaxLimit(size);
+        }
+        return executor;
+    }
+}
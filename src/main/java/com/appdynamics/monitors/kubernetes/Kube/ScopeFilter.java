@@ -0,0 +1,211 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import com.appdynamics.monitors.kubernetes.Utilities;
+import io.kubernetes.client.ApiClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_NODE_NAMESPACES;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_NODE_NODES;
+import static com.appdynamics.monitors.kubernetes.Utilities.ALL;
+
+// Compiled namespaces or nodes list of config.yml, deciding which objects get metrics of their own.
+// Every entry of the list takes one of:
+//   name: exact name, or "all" for every object
+//   pattern: glob with * and ? wildcards
+//   regex: regular expression matching the whole name
+//   selector: label selector, resolved to names by listing the namespaces or nodes
+//   exclude / excludeRegex: names that are never collected, even when another entry includes them
+// The lists are compiled once per cycle, and the verdict of every distinct name is kept for the cycle,
+// so the objects of a namespace or node cost one map lookup whatever the number of rules.
+public class ScopeFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ScopeFilter.class);
+
+    private static final Map<String, ScopeFilter> filters = new ConcurrentHashMap<String, ScopeFilter>();
+
+    private final String section;
+    //the config list the filter was compiled from
+    private final Object source;
+    private boolean all = false;
+    private final Set<String> names = new LinkedHashSet<String>();
+    private final List<Pattern> includes = new ArrayList<Pattern>();
+    private final List<Pattern> excludes = new ArrayList<Pattern>();
+    private final List<String> selectors = new ArrayList<String>();
+    private final Map<String, Boolean> verdicts = new ConcurrentHashMap<String, Boolean>();
+
+    private ScopeFilter(String section, Object source){
+        this.section = section;
+        this.source = source;
+    }
+
+    //compiles the namespaces and nodes lists for the cycle
+    public static void compileAll(Map<String, String> config){
+        filters.put(CONFIG_NODE_NAMESPACES, compile(config, CONFIG_NODE_NAMESPACES));
+        filters.put(CONFIG_NODE_NODES, compile(config, CONFIG_NODE_NODES));
+    }
+
+    //filter of the section compiled for the cycle, compiled now when the cycle did not compile this config
+    public static ScopeFilter get(Map<String, ?> config, String section){
+        ScopeFilter filter = filters.get(section);
+        if (filter == null || filter.source != (config == null ? null : config.get(section))) {
+            filter = compile(config, section);
+            filters.put(section, filter);
+        }
+        return filter;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ScopeFilter compile(Map<String, ?> config, String section){
+        Object value = config == null ? null : config.get(section);
+        ScopeFilter filter = new ScopeFilter(section, value);
+        if (value instanceof List) {
+            for (Object entry : (List<Object>) value) {
+                if (entry instanceof Map) {
+                    try {
+                        filter.addRule((Map<String, Object>) entry);
+                    }
+                    catch (Exception ex){
+                        logger.error("Issues when parsing {} config entry {}. The entry is ignored", section, entry, ex);
+                    }
+                }
+            }
+        }
+        if (!filter.selectors.isEmpty() && !filter.all) {
+            filter.resolveSelectors((Map<String, String>) config);
+        }
+        logger.debug("{} filter: all {}, {} names, {} patterns, {} exclusions", section, filter.all, filter.names.size(),
+                filter.includes.size(), filter.excludes.size());
+        return filter;
+    }
+
+    private void addRule(Map<String, Object> entry){
+        String name = getText(entry, "name");
+        if (ALL.equals(name)) {
+            all = true;
+        }
+        else if (name != null) {
+            names.add(name);
+        }
+        String pattern = getText(entry, "pattern");
+        if (pattern != null) {
+            includes.add(globToPattern(pattern));
+        }
+        String regex = getText(entry, "regex");
+        if (regex != null) {
+            includes.add(Pattern.compile(regex));
+        }
+        String selector = getText(entry, "selector");
+        if (selector != null) {
+            selectors.add(selector);
+        }
+        String exclude = getText(entry, "exclude");
+        if (exclude != null) {
+            excludes.add(globToPattern(exclude));
+        }
+        String excludeRegex = getText(entry, "excludeRegex");
+        if (excludeRegex != null) {
+            excludes.add(Pattern.compile(excludeRegex));
+        }
+    }
+
+    private static String getText(Map<String, Object> entry, String key){
+        Object value = entry.get(key);
+        return value == null || value.toString().isEmpty() ? null : value.toString();
+    }
+
+    //the names of the objects matching the selectors are added to the exact names
+    private void resolveSelectors(Map<String, String> config){
+        ResourceType<?, ?> resourceType = CONFIG_NODE_NODES.equals(section) ? ResourceType.NODES : ResourceType.NAMESPACES;
+        for (String selector : selectors) {
+            try {
+                int before = names.size();
+                addNames(KubeClientProvider.getClient(config), resourceType, selector, Utilities.getListPageSize(config));
+                logger.debug("Selector {} of {} matched {} new names", selector, section, names.size() - before);
+            }
+            catch (Exception ex){
+                logger.error("Unable to resolve the {} selector {}. No objects are included by it this cycle", section, selector, ex);
+            }
+        }
+    }
+
+    private <T, L> void addNames(ApiClient client, final ResourceType<T, L> resourceType, String selector, int pageSize) throws Exception {
+        resourceType.streamPaged(client, new ListRequest().setLabelSelector(selector), pageSize, resourceType.getProjection(), new ItemHandler<T>() {
+            @Override
+            public void onItem(T item) {
+                if (resourceType.getMetadata(item) != null && resourceType.getMetadata(item).getName() != null) {
+                    names.add(resourceType.getMetadata(item).getName());
+                }
+            }
+        });
+    }
+
+    static Pattern globToPattern(String glob){
+        StringBuilder regex = new StringBuilder();
+        int literal = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > literal) {
+                    regex.append(Pattern.quote(glob.substring(literal, i)));
+                }
+                regex.append(c == '*' ? ".*" : ".");
+                literal = i + 1;
+            }
+        }
+        if (literal < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(literal)));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    public boolean accepts(String name){
+        if (name == null) {
+            return all;
+        }
+        Boolean verdict = verdicts.get(name);
+        if (verdict == null) {
+            verdict = evaluate(name);
+            verdicts.put(name, verdict);
+        }
+        return verdict;
+    }
+
+    private boolean evaluate(String name){
+        for (Pattern exclude : excludes) {
+            if (exclude.matcher(name).matches()) {
+                return false;
+            }
+        }
+        if (all || names.contains(name)) {
+            return true;
+        }
+        for (Pattern include : includes) {
+            if (include.matcher(name).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //names to scope the list calls to, null when the objects have to be listed cluster wide
+    public List<String> getListNames(){
+        if (all || !includes.isEmpty() || names.isEmpty()) {
+            return null;
+        }
+        List<String> listNames = new ArrayList<String>();
+        for (String name : names) {
+            if (accepts(name)) {
+                listNames.add(name);
+            }
+        }
+        return listNames;
+    }
+}
@@ -0,0 +1,293 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.ApiException;
+import io.kubernetes.client.models.V1ObjectMeta;
+import io.kubernetes.client.models.V1Status;
+import io.kubernetes.client.util.Watch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Long-lived, watch-backed copy of one resource type.
+// The cache does a single LIST to sync, then follows the WATCH stream from the last seen resourceVersion.
+// Runners read a point-in-time snapshot, so a collection cycle does not hit the API server once synced.
+// Watch bookmarks advance the resource version without touching the store; 410 Gone triggers a fresh LIST.
+public class WatchCache<T, L> implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(WatchCache.class);
+    private static final int WATCH_TIMEOUT_SECONDS = 180;
+    private static final long RETRY_DELAY_MS = 5000;
+    private static final int HTTP_GONE = 410;
+    public static final String SYNC = "SYNC";
+
+    private final ResourceType<T, L> resourceType;
+    private final ApiClient client;
+    private final int pageSize;
+    private final boolean retainObjects;
+    private volatile WatchListener<T> listener = null;
+    private volatile Projection projection = null;
+    private volatile ListRequest scope = new ListRequest();
+    private volatile ConcurrentHashMap<String, T> store = new ConcurrentHashMap<String, T>();
+    private volatile String resourceVersion = null;
+    private volatile boolean running = false;
+    private final CountDownLatch syncLatch = new CountDownLatch(1);
+    private Thread thread;
+
+    public WatchCache(ResourceType<T, L> resourceType, ApiClient client){
+        this(resourceType, client, 0);
+    }
+
+    public WatchCache(ResourceType<T, L> resourceType, ApiClient client, int pageSize){
+        this(resourceType, client, pageSize, true);
+    }
+
+    //with retainObjects off the cache only follows the stream and hands the objects to the listener
+    public WatchCache(ResourceType<T, L> resourceType, ApiClient client, int pageSize, boolean retainObjects){
+        this.resourceType = resourceType;
+        this.client = client;
+        this.pageSize = pageSize;
+        this.retainObjects = retainObjects;
+    }
+
+    public void setListener(WatchListener<T> listener) {
+        this.listener = listener;
+    }
+
+    //namespace and field selector of the watched objects
+    public void setScope(ListRequest scope) {
+        this.scope = scope.scope();
+    }
+
+    //binds only the projected fields of the listed and watched objects
+    public void setProjection(Projection projection) {
+        this.projection = projection;
+    }
+
+    public synchronized void start(){
+        if (running){
+            return;
+        }
+        running = true;
+        thread = new Thread(this, String.format("k8s-watch-%s%s", resourceType.getName(), scope.getNamespace() != null ? "-" + scope.getNamespace() : ""));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop(){
+        running = false;
+        if (thread != null){
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean hasSynced(){
+        return syncLatch.getCount() == 0;
+    }
+
+    public boolean waitForSync(long timeout, TimeUnit unit){
+        try {
+            return syncLatch.await(timeout, unit);
+        }
+        catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public String getResourceVersion() {
+        return resourceVersion;
+    }
+
+    public List<T> snapshot(){
+        return new ArrayList<T>(store.values());
+    }
+
+    public L snapshotList(){
+        return resourceType.newList(snapshot());
+    }
+
+    @Override
+    public void run() {
+        logger.info("Starting watch cache for {}", resourceType.getName());
+        while (running) {
+            try {
+                if (resourceVersion == null) {
+                    relist();
+                }
+                watch();
+            }
+            catch (ApiException ex){
+                if (ex.getCode() == HTTP_GONE){
+                    logger.info("Resource version of {} cache expired. Re-syncing", resourceType.getName());
+                    resourceVersion = null;
+                }
+                else {
+                    logger.error("Watch of {} failed with code {}. Retrying in {} ms", resourceType.getName(), ex.getCode(), RETRY_DELAY_MS);
+                    pause();
+                }
+            }
+            catch (Exception ex){
+                if (running) {
+                    logger.error("Watch of {} interrupted. Reason {}. Retrying in {} ms", resourceType.getName(), ex.toString(), RETRY_DELAY_MS);
+                    pause();
+                }
+            }
+        }
+        logger.info("Watch cache for {} stopped", resourceType.getName());
+    }
+
+    private void relist() throws Exception {
+        final ConcurrentHashMap<String, T> fresh = new ConcurrentHashMap<String, T>();
+        String listVersion;
+        if (projection != null) {
+            listVersion = resourceType.streamPaged(client, scope, pageSize, projection, new ItemHandler<T>() {
+                @Override
+                public void onItem(T item) {
+                    add(fresh, item);
+                }
+            });
+        }
+        else if (pageSize > 0) {
+            listVersion = resourceType.listPaged(client, scope, pageSize, new PageHandler<L>() {
+                @Override
+                public void onPage(L page) {
+                    addAll(fresh, page);
+                }
+            });
+        }
+        else {
+            L list = resourceType.list(client, scope.scope());
+            addAll(fresh, list);
+            listVersion = resourceType.getListMeta(list) != null ? resourceType.getListMeta(list).getResourceVersion() : null;
+        }
+        //swap the whole map so readers never see a partially rebuilt cache
+        store = fresh;
+        resourceVersion = listVersion;
+        syncLatch.countDown();
+        logger.info("Cache for {} synced with {} objects at resource version {}", resourceType.getName(), fresh.size(), resourceVersion);
+    }
+
+    private void addAll(ConcurrentHashMap<String, T> target, L list){
+        List<T> items = resourceType.getItems(list);
+        if (items == null) {
+            return;
+        }
+        for (T item : items) {
+            add(target, item);
+        }
+    }
+
+    private void add(ConcurrentHashMap<String, T> target, T item){
+        String key = getKey(item);
+        if (key != null && retainObjects) {
+            target.put(key, item);
+        }
+        publish(SYNC, item);
+    }
+
+    private void watch() throws Exception {
+        ListRequest request = scope.scope()
+                .setResourceVersion(resourceVersion)
+                .setTimeoutSeconds(WATCH_TIMEOUT_SECONDS)
+                .setWatch(true);
+        Watch<T> watch;
+        if (projection != null) {
+            watch = ProjectingWatch.create(client, resourceType.buildListCall(client, request), resourceType.getItemClass(), projection);
+        }
+        else {
+            watch = Watch.createWatch(client, resourceType.buildListCall(client, request), resourceType.getWatchType());
+        }
+        try {
+            for (Watch.Response<T> event : watch) {
+                if (!running) {
+                    break;
+                }
+                if (!apply(event)) {
+                    break;
+                }
+            }
+        }
+        finally {
+            watch.close();
+        }
+    }
+
+    // Returns false when the watch has to be restarted from a fresh LIST.
+    // Other errors are thrown, so the watch is reopened after the same delay as a failed call
+    protected boolean apply(Watch.Response<T> event) throws ApiException {
+        if ("ERROR".equals(event.type)){
+            V1Status status = event.status;
+            if (status != null && status.getCode() != null && status.getCode() == HTTP_GONE){
+                logger.info("Watch of {} reported 410 Gone. Re-syncing", resourceType.getName());
+                resourceVersion = null;
+                return false;
+            }
+            throw new ApiException(status != null && status.getCode() != null ? status.getCode() : 0,
+                    String.format("Watch returned error %s", status));
+        }
+        T item = event.object;
+        if (item == null){
+            return true;
+        }
+        //bookmarks only carry the resource version to resume from
+        if (!"BOOKMARK".equals(event.type)) {
+            String key = getKey(item);
+            if (key != null && retainObjects) {
+                if ("DELETED".equals(event.type)) {
+                    store.remove(key);
+                } else if ("ADDED".equals(event.type) || "MODIFIED".equals(event.type)) {
+                    store.put(key, item);
+                }
+            }
+            publish(event.type, item);
+        }
+        V1ObjectMeta meta = resourceType.getMetadata(item);
+        if (meta != null && meta.getResourceVersion() != null){
+            resourceVersion = meta.getResourceVersion();
+        }
+        return true;
+    }
+
+    private void publish(String type, T item){
+        WatchListener<T> current = listener;
+        if (current == null){
+            return;
+        }
+        try {
+            current.onEvent(type, item);
+        }
+        catch (Exception ex){
+            logger.error("Listener of {} watch failed. Reason {}", resourceType.getName(), ex.toString());
+        }
+    }
+
+    private String getKey(T item){
+        V1ObjectMeta meta = resourceType.getMetadata(item);
+        if (meta == null){
+            return null;
+        }
+        if (meta.getUid() != null){
+            return meta.getUid();
+        }
+        return String.format("%s/%s", meta.getNamespace(), meta.getName());
+    }
+
+    private void pause(){
+        try {
+            Thread.sleep(RETRY_DELAY_MS);
+        }
+        catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.appdynamics.monitors.kubernetes.Kube;
+
+//receives the objects seen by a watch cache, as they arrive
+public interface WatchListener<T> {
+    //type is one of the watch event types ADDED, MODIFIED, DELETED or SYNC for objects returned by a (re)list
+    void onEvent(String type, T item);
+}
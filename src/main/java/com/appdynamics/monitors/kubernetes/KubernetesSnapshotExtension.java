@@ -6,6 +6,8 @@ import com.appdynamics.extensions.util.AssertUtils;
 import com.appdynamics.extensions.MetricWriteHelper;
 import com.singularity.ee.agent.systemagent.api.MetricWriter;
 import com.appdynamics.monitors.kubernetes.Dashboard.ClusterDashboardGenerator;
+import com.appdynamics.monitors.kubernetes.Kube.KubeClientProvider;
+import com.appdynamics.monitors.kubernetes.Kube.ScopeFilter;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
 import com.appdynamics.monitors.kubernetes.SnapshotTasks.*;
@@ -71,8 +73,17 @@ public class KubernetesSnapshotExtension extends ABaseMonitor {
             long start = new Date().getTime();
             logger.info("Taking cluster snapshot");
             Map<String, String> config = (Map<String, String>)configuration.getConfigYml();
+            Utilities.configureFieldLimits(config);
             //populate Tier ID and cache of searched
             if (initClusterMonitoring(config)) {
+                //the API client is built once and shared by all tasks and cycles
+                try {
+                    KubeClientProvider.getClient(config);
+                }
+                catch (Exception ex){
+                    logger.error("Unable to initialize the Kubernetes API client", ex);
+                }
+                ScopeFilter.compileAll(config);
                 ArrayList<SnapshotRunnerBase> tasks = new ArrayList<SnapshotRunnerBase>();
                 List<Map<String, String>> entities = (List<Map<String, String>>) configuration.getConfigYml().get(CONFIG_NODE_ENTITIES);
                 if (entities != null) {
@@ -80,6 +91,15 @@ public class KubernetesSnapshotExtension extends ABaseMonitor {
                     int count = entities.size();
                     latch = new CountDownLatch(count);
 
+                    //schemas that are not verified yet are checked together before the tasks start
+                    List<String[]> schemaKeys = new ArrayList<String[]>();
+                    for (String taskName : TASKS) {
+                        if (Utilities.getEntityConfig(entities, taskName) != null) {
+                            schemaKeys.add(getSchemaKeys(taskName));
+                        }
+                    }
+                    SchemaCache.verifyAll(config, schemaKeys);
+
                     for (String taskName : TASKS) {
                         Map<String, String> taskConfig = Utilities.getEntityConfig(entities, taskName);
                         if (taskConfig != null) {
@@ -205,6 +225,27 @@ public class KubernetesSnapshotExtension extends ABaseMonitor {
         return task;
     }
 
+    //config keys of the schema name and definition the task publishes to
+    private static String[] getSchemaKeys(String taskName){
+        switch (taskName){
+            case CONFIG_ENTITY_TYPE_NODE:
+                return new String[]{CONFIG_SCHEMA_NAME_NODE, CONFIG_SCHEMA_DEF_NODE};
+            case CONFIG_ENTITY_TYPE_DEPLOYMENT:
+                return new String[]{CONFIG_SCHEMA_NAME_DEPLOY, CONFIG_SCHEMA_DEF_DEPLOY};
+            case CONFIG_ENTITY_TYPE_DAEMON:
+                return new String[]{CONFIG_SCHEMA_NAME_DAEMON, CONFIG_SCHEMA_DEF_DAEMON};
+            case CONFIG_ENTITY_TYPE_ENDPOINT:
+                return new String[]{CONFIG_SCHEMA_NAME_EP, CONFIG_SCHEMA_DEF_EP};
+            case CONFIG_ENTITY_TYPE_REPLICA:
+                return new String[]{CONFIG_SCHEMA_NAME_RS, CONFIG_SCHEMA_DEF_RS};
+            case CONFIG_ENTITY_TYPE_EVENT:
+                return new String[]{CONFIG_SCHEMA_NAME_EVENT, CONFIG_SCHEMA_DEF_EVENT};
+            default:
+                //quotas are published with the pods
+                return new String[]{CONFIG_SCHEMA_NAME_POD, CONFIG_SCHEMA_DEF_POD};
+        }
+    }
+
     private void executeSnapshotTask(TasksExecutionServiceProvider tasksExecutionServiceProvider, SnapshotRunnerBase task){
         try {
             tasksExecutionServiceProvider.submit(task.getTaskName(), task);
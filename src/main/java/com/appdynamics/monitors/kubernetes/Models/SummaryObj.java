@@ -1,30 +1,231 @@
 package com.appdynamics.monitors.kubernetes.Models;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Counters of one summary (cluster, namespace, node or role) of a task.
+// The fields are taken from the ObjectNode template the runner builds. Numeric fields are kept in primitive
+// arrays indexed by the ordinal of the field, whole increments in a long and fractional ones in a double,
+// and are turned into text only when the metrics are emitted.
+// Summaries built from the same template share one layout.
+// Every field name gets a global id once. Runners keep the ids of their counters in static constants and update
+// the summaries by id, which is an array read in the layout rather than a lookup of the name.
 public class SummaryObj {
-    private ObjectNode data;
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Map<String, Integer> fieldIds = new ConcurrentHashMap<String, Integer>();
+    //layouts by the hash of their field names
+    private static final Map<Integer, Layout[]> layouts = new ConcurrentHashMap<Integer, Layout[]>();
+
+    private Layout layout;
+    private long[] counts;
+    private double[] sums;
+    private String[] texts;
+    //fields given a value with set rather than counted
+    private boolean[] assigned;
     private ArrayList<AppDMetricObj> metricsMetadata;
     private String path = "";
 
     public SummaryObj(){
-
+        setData(mapper.createObjectNode());
     }
     public SummaryObj(ObjectNode data, ArrayList<AppDMetricObj> metadata, String path){
-        this.data = data;
+        setData(data);
         this.metricsMetadata = metadata;
         this.path = path;
     }
 
+    //id of the field name, the same for every layout
+    public static int field(String fieldName){
+        Integer id = fieldIds.get(fieldName);
+        if (id == null) {
+            synchronized (fieldIds) {
+                id = fieldIds.get(fieldName);
+                if (id == null) {
+                    id = fieldIds.size();
+                    fieldIds.put(fieldName, id);
+                }
+            }
+        }
+        return id;
+    }
+
+    //copy of the current values
     public ObjectNode getData() {
+        ObjectNode data = mapper.createObjectNode();
+        for (int i = 0; i < layout.names.length; i++) {
+            if (texts[i] != null) {
+                data.put(layout.names[i], texts[i]);
+            }
+            else if (sums[i] == 0) {
+                data.put(layout.names[i], counts[i]);
+            }
+            else {
+                data.put(layout.names[i], getDecimal(i));
+            }
+        }
         return data;
     }
 
     public void setData(ObjectNode data) {
-        this.data = data;
+        layout = getLayout(data);
+        counts = new long[layout.names.length];
+        sums = new double[layout.names.length];
+        texts = new String[layout.names.length];
+        assigned = new boolean[layout.names.length];
+        for (int i = 0; i < layout.names.length; i++) {
+            JsonNode value = data.get(layout.names[i]);
+            if (value.isIntegralNumber()) {
+                counts[i] = value.asLong();
+            }
+            else if (value.isNumber()) {
+                sums[i] = value.asDouble();
+            }
+            else {
+                texts[i] = value.asText();
+            }
+        }
+    }
+
+    private static Layout getLayout(ObjectNode template){
+        int hash = template.size();
+        Iterator<String> names = template.fieldNames();
+        while (names.hasNext()) {
+            hash = 31 * hash + names.next().hashCode();
+        }
+        Layout layout = findLayout(layouts.get(hash), template);
+        if (layout == null) {
+            synchronized (layouts) {
+                Layout[] candidates = layouts.get(hash);
+                layout = findLayout(candidates, template);
+                if (layout == null) {
+                    layout = new Layout(template);
+                    Layout[] extended = candidates == null ? new Layout[1] : Arrays.copyOf(candidates, candidates.length + 1);
+                    extended[extended.length - 1] = layout;
+                    layouts.put(hash, extended);
+                }
+            }
+        }
+        return layout;
+    }
+
+    private static Layout findLayout(Layout[] candidates, ObjectNode template){
+        if (candidates != null) {
+            for (Layout candidate : candidates) {
+                if (candidate.matches(template)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    public boolean has(String fieldName){
+        return layout.ordinal(fieldName) >= 0;
+    }
+
+    //the updates of fields missing from the template are ignored
+    public void increment(String fieldName, long increment){
+        incrementOrdinal(layout.ordinal(fieldName), increment);
+    }
+
+    public void increment(String fieldName, double increment){
+        incrementOrdinal(layout.ordinal(fieldName), increment);
+    }
+
+    public void set(String fieldName, long value){
+        setOrdinal(layout.ordinal(fieldName), value);
+    }
+
+    //updates by the id returned by field
+    public void increment(int field, long increment){
+        incrementOrdinal(layout.slot(field), increment);
+    }
+
+    public void increment(int field, double increment){
+        incrementOrdinal(layout.slot(field), increment);
+    }
+
+    public void set(int field, long value){
+        setOrdinal(layout.slot(field), value);
+    }
+
+    private void incrementOrdinal(int i, long increment){
+        if (i >= 0 && texts[i] == null) {
+            counts[i] += increment;
+        }
+    }
+
+    private void incrementOrdinal(int i, double increment){
+        if (i >= 0 && texts[i] == null) {
+            sums[i] += increment;
+        }
+    }
+
+    private void setOrdinal(int i, long value){
+        if (i >= 0 && texts[i] == null) {
+            counts[i] = value;
+            sums[i] = 0;
+            assigned[i] = true;
+        }
+    }
+
+    // Adds the counters of a summary built from the same template over other items.
+    // Fields given a value with set keep the larger of the two values
+    public void merge(SummaryObj other){
+        for (int i = 0; i < layout.names.length; i++) {
+            int j = other.layout == layout ? i : other.layout.ordinal(layout.names[i]);
+            if (j < 0 || texts[i] != null || other.texts[j] != null) {
+                continue;
+            }
+            if (other.assigned[j]) {
+                if (!assigned[i] || other.counts[j] > counts[i]) {
+                    counts[i] = other.counts[j];
+                    sums[i] = 0;
+                }
+                assigned[i] = true;
+            }
+            else {
+                counts[i] += other.counts[j];
+                sums[i] += other.sums[j];
+            }
+        }
+    }
+
+    public long getLong(String fieldName){
+        int i = layout.ordinal(fieldName);
+        return i < 0 || texts[i] != null ? 0 : counts[i] + (long) sums[i];
+    }
+
+    public int getFieldCount(){
+        return layout.names.length;
+    }
+
+    public String getFieldName(int ordinal){
+        return layout.names[ordinal];
+    }
+
+    //metric value of a numeric field, null for text fields
+    public String getValueText(int ordinal){
+        if (texts[ordinal] != null) {
+            return null;
+        }
+        if (sums[ordinal] == 0) {
+            return Long.toString(counts[ordinal]);
+        }
+        return getDecimal(ordinal).toPlainString();
+    }
+
+    private BigDecimal getDecimal(int ordinal){
+        return BigDecimal.valueOf(counts[ordinal]).add(BigDecimal.valueOf(sums[ordinal]));
     }
 
     public ArrayList<AppDMetricObj> getMetricsMetadata() {
@@ -42,4 +243,50 @@ public class SummaryObj {
     public void setPath(String path) {
         this.path = path;
     }
+
+    private static class Layout {
+        private final String[] names;
+        //ordinal of every field id, -1 for the fields that are not part of the layout
+        private final int[] slots;
+
+        Layout(ObjectNode template){
+            names = new String[template.size()];
+            int[] ids = new int[names.length];
+            int maxId = -1;
+            Iterator<String> it = template.fieldNames();
+            for (int i = 0; it.hasNext(); i++) {
+                names[i] = it.next();
+                ids[i] = field(names[i]);
+                maxId = Math.max(maxId, ids[i]);
+            }
+            slots = new int[maxId + 1];
+            Arrays.fill(slots, -1);
+            for (int i = 0; i < ids.length; i++) {
+                slots[ids[i]] = i;
+            }
+        }
+
+        boolean matches(ObjectNode template){
+            if (template.size() != names.length) {
+                return false;
+            }
+            Iterator<String> it = template.fieldNames();
+            for (int i = 0; it.hasNext(); i++) {
+                if (!names[i].equals(it.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        //fields registered after the layout was built are never part of it
+        int slot(int field){
+            return field >= 0 && field < slots.length ? slots[field] : -1;
+        }
+
+        int ordinal(String fieldName){
+            Integer id = fieldIds.get(fieldName);
+            return id == null ? -1 : slot(id);
+        }
+    }
 }
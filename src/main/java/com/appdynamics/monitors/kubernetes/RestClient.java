@@ -1,27 +1,45 @@
 package com.appdynamics.monitors.kubernetes;
 
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.EventPayload;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.MultipartBuilder;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.RequestBody;
+import com.squareup.okhttp.Response;
+import okio.BufferedSink;
 import org.apache.commons.lang3.StringUtils;
-import org.bouncycastle.util.encoders.UrlBase64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.*;
 import java.util.Base64;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
 
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_COMPRESSION_LEVEL;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_COMPRESS_EVENTS;
 import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_CONTROLLER_API_USER;
-import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_CONTROLLER_URL;
 import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_DASH_TEMPLATE_PATH;
 
 public class RestClient {
     private static final Logger logger = LoggerFactory.getLogger(RestClient.class);
+    private static final MediaType EVENTS_JSON = MediaType.parse("application/vnd.appd.events+json;v=2");
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int GZIP_BUFFER_SIZE = 8192;
+    private static final int MIN_COMPRESS_LENGTH = 1024;
+    private static final Pattern COOKIE_VALUE = Pattern.compile("=(.*?);");
+    //events endpoints that answered 415 to a compressed body
+    private static final Set<String> gzipRefused = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
 
     public static String getRESTCredentials(Map<String, String> config){
@@ -32,81 +50,207 @@ public class RestClient {
         return  creds;
     }
 
-    private static HttpURLConnection openConnection(URL url,  Map<String, String> config) throws IOException {
-        HttpURLConnection conn = null;
-        String proxyHost = Utilities.getProxyHost(config);
-        String proxyPort = Utilities.getProxyPort(config);
-        if(StringUtils.isNotEmpty(proxyHost) && StringUtils.isNotEmpty(proxyPort)){
-            Integer portNumber = Integer.parseInt(proxyPort);
-            Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(proxyHost, portNumber));
-            System.setProperty("https.proxyHost", proxyHost);
-            System.setProperty("https.proxyPort", proxyPort);
-            conn = (HttpURLConnection) url.openConnection(proxy);
-        }
-        else{
-            conn = (HttpURLConnection) url.openConnection();
-        }
-        String proxyUser = Utilities.getProxyUser(config);
-        String proxyPass = Utilities.getProxyPass(config);
-
-        if(StringUtils.isNotEmpty(proxyUser) && StringUtils.isNotEmpty(proxyPass)) {
-            Authenticator.setDefault(new Authenticator() {
-                protected PasswordAuthentication getPasswordAuthentication() {
-                    return new PasswordAuthentication("proxyUser", proxyPass.toCharArray());
-                }
-            });
+    //responses are decompressed by the transport when the server gzips them
+    public static JsonNode doRequest(URL url, Map<String, String> config, String accountName, String apiKey, String requestBody, String method) {
+        Response response = null;
+        EventPayload payload = EventPayload.of(requestBody == null ? "" : requestBody);
+        try {
+            response = executeEvents(url, config, accountName, apiKey, payload, method);
+            return readResponse(response);
+        } catch (IOException e) {
+            logger.error("Error while processing {} on URL {}. Reason {}", method, url, e.toString());
+            return null;
+        }
+        finally {
+            closeQuietly(response);
+            payload.release();
         }
+    }
 
-        return conn;
+    // Posts a batch of records and returns the HTTP status of the response.
+    // Transport failures are thrown so that the caller can retry them
+    public static int postEvents(URL url, Map<String, String> config, String accountName, String apiKey, String requestBody) throws IOException {
+        EventPayload payload = EventPayload.of(requestBody);
+        try {
+            return postEvents(url, config, accountName, apiKey, payload);
+        }
+        finally {
+            payload.release();
+        }
     }
 
-    public static JsonNode doRequest(URL url, Map<String, String> config, String accountName, String apiKey, String requestBody, String method) {
-        BufferedReader br = null;
+    //the payload is streamed from its chunks and can be posted again. It is not released
+    public static int postEvents(URL url, Map<String, String> config, String accountName, String apiKey, EventPayload payload) throws IOException {
+        Response response = null;
         try {
-            HttpURLConnection conn = openConnection(url, config);
-            conn.setDoOutput(true);
-            if (method.equals("PATCH")) {
-                conn.setRequestProperty("X-HTTP-Method-Override", "PATCH");
-                conn.setRequestMethod("POST");
-            } else {
-                conn.setRequestMethod(method);
+            response = executeEvents(url, config, accountName, apiKey, payload, "POST");
+            if (!response.isSuccessful()) {
+                logger.debug("Events API answered {}: {}", response.code(), response.body().string());
             }
-            if (method.equals("POST") || method.equals("PATCH")) {
-                conn.setRequestProperty("Content-Type", "application/vnd.appd.events+json;v=2");
-            }
-            conn.setRequestProperty("Accept", "application/vnd.appd.events+json;v=2");
-            conn.setRequestProperty("X-Events-API-AccountName", accountName);
-            conn.setRequestProperty("X-Events-API-Key", apiKey);
-            if (method.equals("POST") || method.equals("PATCH")) {
-                OutputStream output = conn.getOutputStream();
-                output.write(requestBody.getBytes("UTF-8"));
-            }
-            br = new BufferedReader(new InputStreamReader(
-                    (conn.getInputStream())));
-            String response = "";
-            for (String line; (line = br.readLine()) != null; response += line) ;
-            conn.disconnect();
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readTree(response);
-        } catch (IOException e) {
-            logger.error("Error while processing {} on URL {}. Reason {}", method, url, e.toString());
-            return null;
+            return response.code();
         }
         finally {
-            try {
-                if (br != null) {
-                    br.close();
-                }
+            closeQuietly(response);
+        }
+    }
+
+    private static Response executeEvents(URL url, Map<String, String> config, String accountName, String apiKey, EventPayload requestBody, String method) throws IOException {
+        boolean hasBody = method.equals("POST") || method.equals("PATCH");
+        boolean compress = hasBody && shouldCompress(url, config, requestBody);
+        Response response = HttpTransport.execute(url, config, buildEventsRequest(url, config, accountName, apiKey, requestBody, method, compress));
+        if (compress && response.code() == HttpURLConnection.HTTP_UNSUPPORTED_TYPE) {
+            //the endpoint does not take compressed bodies. Send uncompressed from now on
+            response.body().close();
+            logger.warn("{} refused a gzip request body. Sending uncompressed requests to it", url.getHost());
+            gzipRefused.add(getEndpointKey(url));
+            response = HttpTransport.execute(url, config, buildEventsRequest(url, config, accountName, apiKey, requestBody, method, false));
+        }
+        return response;
+    }
+
+    private static Request buildEventsRequest(URL url, Map<String, String> config, String accountName, String apiKey, EventPayload requestBody, String method, boolean compress) {
+        Request.Builder builder = new Request.Builder().url(url)
+                .header("Accept", "application/vnd.appd.events+json;v=2")
+                .header("X-Events-API-AccountName", accountName)
+                .header("X-Events-API-Key", apiKey);
+        RequestBody body = null;
+        if (method.equals("POST") || method.equals("PATCH")) {
+            if (compress) {
+                builder.header("Content-Encoding", "gzip");
+                body = new GzipRequestBody(EVENTS_JSON, requestBody, getCompressionLevel(config));
             }
-            catch (IOException ex){
-                logger.error("Error while cleaning up streams and buffers in doRequest");
+            else {
+                body = new PayloadRequestBody(EVENTS_JSON, requestBody);
             }
         }
+        return withMethod(builder, method, body).build();
+    }
+
+    private static Request.Builder withMethod(Request.Builder builder, String method, RequestBody body){
+        if (method.equals("PATCH")) {
+            return builder.header("X-HTTP-Method-Override", "PATCH").post(body);
+        }
+        return builder.method(method, body);
+    }
+
+    //the response is parsed from the stream. Error responses are logged and give null
+    private static JsonNode readResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException(String.format("Server returned HTTP response code: %d for URL: %s", response.code(), response.request().urlString()));
+        }
+        InputStream input = response.body().byteStream();
+        try {
+            return objectMapper.readTree(input);
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    private static void closeQuietly(Response response){
+        if (response == null) {
+            return;
+        }
+        try {
+            response.body().close();
+        }
+        catch (IOException ex){
+            logger.error("Error while cleaning up streams and buffers");
+        }
+    }
+
+    private static boolean shouldCompress(URL url, Map<String, String> config, EventPayload requestBody){
+        String compress = config.get(CONFIG_COMPRESS_EVENTS);
+        if (compress != null && !compress.isEmpty() && !"true".equalsIgnoreCase(compress)) {
+            return false;
+        }
+        //small bodies do not gain from compression
+        return requestBody != null && requestBody.size() >= MIN_COMPRESS_LENGTH && !gzipRefused.contains(getEndpointKey(url));
+    }
+
+    private static int getCompressionLevel(Map<String, String> config){
+        String level = config.get(CONFIG_COMPRESSION_LEVEL);
+        if (StringUtils.isEmpty(level)) {
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+        try {
+            return Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, Integer.parseInt(level.trim())));
+        }
+        catch (NumberFormatException ex){
+            logger.error("Invalid {} value {}. Using the default level", CONFIG_COMPRESSION_LEVEL, level);
+            return Deflater.DEFAULT_COMPRESSION;
+        }
+    }
+
+    private static String getEndpointKey(URL url){
+        return String.format("%s:%d", url.getHost(), url.getPort() == -1 ? url.getDefaultPort() : url.getPort());
+    }
+
+    //the payload chunks are written to the connection as they are, with chunked transfer encoding
+    private static class PayloadRequestBody extends RequestBody {
+        private final MediaType contentType;
+        private final EventPayload body;
+
+        PayloadRequestBody(MediaType contentType, EventPayload body){
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            body.writeTo(sink.outputStream());
+        }
+    }
+
+    //the compressed body is streamed to the connection as it is produced, with chunked transfer encoding
+    private static class GzipRequestBody extends RequestBody {
+        private final MediaType contentType;
+        private final EventPayload body;
+        private final int level;
+
+        GzipRequestBody(MediaType contentType, EventPayload body, int level){
+            this.contentType = contentType;
+            this.body = body;
+            this.level = level;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            GZIPOutputStream gzip = new LevelGZIPOutputStream(sink.outputStream(), level);
+            body.writeTo(gzip);
+            gzip.finish();
+        }
+    }
+
+    private static class LevelGZIPOutputStream extends GZIPOutputStream {
+        LevelGZIPOutputStream(OutputStream out, int level) throws IOException {
+            super(out, GZIP_BUFFER_SIZE);
+            def.setLevel(level);
+        }
     }
 
     public static AppDRestAuth getAuthToken(Map<String, String> config) {
         AppDRestAuth authObj = new AppDRestAuth();
-        HttpURLConnection conn = null;
         String path = Utilities.getControllerUrl(config) + "auth?action=login";
         URL url = Utilities.getUrl(path);
         String user = getRESTCredentials(config);
@@ -114,49 +258,29 @@ public class RestClient {
             logger.error("Credentials for Controller API are not defined. Configure user credentials in config.yml (controllerAPIUser) or in REST_API_CREDENTIALS environmental variable");
             return null;
         }
+        Response response = null;
         try {
-            conn =  openConnection(url, config);
-            conn.setRequestMethod("GET");
-
             byte[] message = (user).getBytes("UTF-8");
             String encoded = Base64.getEncoder().encodeToString(message);
-            conn.setRequestProperty("Authorization", "Basic " + encoded);
+            Request request = new Request.Builder().url(url).get()
+                    .header("Authorization", "Basic " + encoded)
+                    .build();
+            response = HttpTransport.execute(url, config, request);
 
-            int responseCode = conn.getResponseCode();
-
-            BufferedReader in = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream()));
-            String inputLine;
-            StringBuffer response = new StringBuffer();
-
-            while ((inputLine = in.readLine()) != null) {
-                response.append(inputLine);
-            }
-            in.close();
-
-            if (responseCode == 200) {
+            if (response.code() == 200) {
                 String sessionID = "";
-                for (Map.Entry<String, List<String>> headers : conn.getHeaderFields().entrySet()) {
-                    if (headers != null) {
-                        if (headers.getKey() != null && headers.getKey().toLowerCase().equals("set-cookie")) {
-                            for (String cookie : headers.getValue()) {
-                                if (cookie.contains("X-CSRF-TOKEN")) {
-                                    Pattern pattern = Pattern.compile("=(.*?);");
-                                    Matcher matcher = pattern.matcher(cookie);
-                                    if (matcher.find()) {
-                                        authObj.setToken(matcher.group(1));
-                                    }
-                                }
-
-                                if (cookie.contains("JSESSIONID")) {
-                                    Pattern pattern = Pattern.compile("=(.*?);");
-                                    Matcher matcher = pattern.matcher(cookie);
-                                    if (matcher.find()) {
-                                        sessionID = matcher.group(1);
-                                    }
-                                }
-
-                            }
+                for (String cookie : response.headers("Set-Cookie")) {
+                    if (cookie.contains("X-CSRF-TOKEN")) {
+                        Matcher matcher = COOKIE_VALUE.matcher(cookie);
+                        if (matcher.find()) {
+                            authObj.setToken(matcher.group(1));
+                        }
+                    }
+
+                    if (cookie.contains("JSESSIONID")) {
+                        Matcher matcher = COOKIE_VALUE.matcher(cookie);
+                        if (matcher.find()) {
+                            sessionID = matcher.group(1);
                         }
                     }
                 }
@@ -172,144 +296,88 @@ public class RestClient {
             logger.error("Issues when getting the auth token for restui calls", ex);
             return null;
         } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
+            closeQuietly(response);
         }
         return authObj;
     }
 
+    //the Controller session is shared between calls and renewed once when the Controller refuses it
     public static JsonNode callControllerAPI(String urlPath, Map<String, String> config, String requestBody, String method) {
-        AppDRestAuth authObj = getAuthToken(config);
+        AppDRestAuth authObj = ControllerSession.get(config);
         if (authObj == null){
             return null;
         }
-        HttpURLConnection conn = null;
-        BufferedReader br = null;
+        Response response = null;
         try {
             String path = Utilities.getControllerUrl(config) + urlPath;
             URL url = Utilities.getUrl(path);
-            conn = openConnection(url, config);
-            conn.setDoOutput(true);
-            if (method.equals("PATCH")) {
-                conn.setRequestProperty("X-HTTP-Method-Override", "PATCH");
-                conn.setRequestMethod("POST");
-            } else {
-                conn.setRequestMethod(method);
-            }
-            if (method.equals("POST") || method.equals("PATCH")) {
-                conn.setRequestProperty("Content-Type", "application/json");
-            }
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setRequestProperty("X-CSRF-TOKEN", authObj.getToken());
-            conn.setRequestProperty("Cookie", authObj.getCookie());
-
-
-            if (method.equals("POST") || method.equals("PATCH")) {
-                OutputStream output = conn.getOutputStream();
-                output.write(requestBody.getBytes("UTF-8"));
+            response = executeController(url, config, authObj, requestBody, method);
+            if (response.code() == HttpURLConnection.HTTP_UNAUTHORIZED || response.code() == HttpURLConnection.HTTP_FORBIDDEN) {
+                closeQuietly(response);
+                response = null;
+                authObj = ControllerSession.refresh(config, authObj);
+                if (authObj == null){
+                    return null;
+                }
+                response = executeController(url, config, authObj, requestBody, method);
             }
-            br = new BufferedReader(new InputStreamReader(
-                    (conn.getInputStream())));
-            String response = "";
-
-            for (String line; (line = br.readLine()) != null; response += line) ;
-
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readTree(response);
+            return readResponse(response);
 
         } catch (IOException e) {
             logger.error("Error while processing {} on URL {}. Reason {}", method, urlPath, e.toString());
             return null;
         } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
-            try {
-                if (br != null) {
-                    br.close();
-                }
-            }
-            catch (IOException ex){
-                logger.error("Error while cleaning up streams and buffers in callControllerAPI");
-            }
+            closeQuietly(response);
         }
     }
 
+    private static Response executeController(URL url, Map<String, String> config, AppDRestAuth authObj, String requestBody, String method) throws IOException {
+        Request.Builder builder = new Request.Builder().url(url)
+                .header("Accept", "application/json")
+                .header("X-CSRF-TOKEN", authObj.getToken())
+                .header("Cookie", authObj.getCookie());
+        RequestBody body = null;
+        if (method.equals("POST") || method.equals("PATCH")) {
+            body = RequestBody.create(JSON, requestBody.getBytes("UTF-8"));
+        }
+        return HttpTransport.execute(url, config, withMethod(builder, method, body).build());
+    }
+
     public static JsonNode createDashboard(Map<String, String> config, String filePath) {
-        HttpURLConnection conn = null;
         String path = Utilities.getControllerUrl(config) + "CustomDashboardImportExportServlet";
         URL url = Utilities.getUrl(path);
-        DataOutputStream request = null;
-        FileInputStream inputStream = null;
-        BufferedReader br = null;
         String user = getRESTCredentials(config);
         if (user == null || user.isEmpty()){
             logger.error("Credentials for Controller API are not defined. Configure user credentials in config.yml (controllerAPIUser) or in REST_API_CREDENTIALS environmental variable");
             return null;
         }
         File templateFile = new File(filePath);
+        Response response = null;
         try {
-            conn = openConnection(url, config);
-            conn.setRequestMethod("GET");
-
             byte[] message = (user).getBytes("UTF-8");
             String encoded = Base64.getEncoder().encodeToString(message);
-            conn.setRequestProperty("Authorization", "Basic " + encoded);
-
-            String boundary = UUID.randomUUID().toString();
-            conn.setRequestMethod("POST");
-            conn.setDoOutput(true);
-            conn.setRequestProperty("Content-Type", "multipart/form-data;boundary=" + boundary);
-
-            request = new DataOutputStream(conn.getOutputStream());
-            request.writeBytes("--" + boundary + "\r\n");
-            request.writeBytes("Content-Disposition: form-data; name=\"file\"; filename=\"" + templateFile.getName() + "\"\r\n\r\n");
-            inputStream = new FileInputStream(templateFile);
-            byte[] buffer = new byte[4096];
-            int bytesRead = -1;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                request.write(buffer, 0, bytesRead);
-            }
-            request.writeBytes("\r\n");
-
-            request.writeBytes("--" + boundary + "--\r\n");
-            request.flush();
-
-
-            int respCode = conn.getResponseCode();
-            logger.info("Dashboard create response code = {}", respCode);
-
-            br = new BufferedReader(new InputStreamReader(
-                    (conn.getInputStream())));
-            String response = "";
 
-            for (String line; (line = br.readLine()) != null; response += line) ;
+            //the template file is streamed from disk into the multipart body
+            RequestBody body = new MultipartBuilder()
+                    .type(MultipartBuilder.FORM)
+                    .addFormDataPart("file", templateFile.getName(), RequestBody.create(null, templateFile))
+                    .build();
+            Request request = new Request.Builder().url(url)
+                    .header("Authorization", "Basic " + encoded)
+                    .post(body)
+                    .build();
+            response = HttpTransport.execute(url, config, request);
 
+            logger.info("Dashboard create response code = {}", response.code());
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.readTree(response);
+            return readResponse(response);
         }
         catch (Exception ex) {
             logger.error("Error while creating dashboard from template {} . Reason {}", config.get(CONFIG_DASH_TEMPLATE_PATH),  ex.toString());
             return null;
         }
         finally {
-            try {
-                if (br != null) {
-                    br.close();
-                }
-                if (inputStream != null){
-                    inputStream.close();
-                }
-
-                if (request != null){
-                    request.close();
-                }
-            }
-            catch (IOException ex){
-                logger.error("Error while cleaning up streams and buffers in createDashboard");
-            }
+            closeQuietly(response);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,177 @@
+package com.appdynamics.monitors.kubernetes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Events API schemas known to exist, by schema name.
+// A schema is verified against the Events API once per definition: on startup, when the definition or
+// the Events API URL changes, or after a publish to it failed with a schema error.
+// The fingerprints of the verified definitions are also kept in schemas.properties in the extension directory,
+// so that a definition changed between two runs is reported.
+public class SchemaCache {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaCache.class);
+    private static final String FILE_NAME = "schemas.properties";
+    private static final int MAX_STARTUP_THREADS = 8;
+
+    private static final Map<String, String> verified = new ConcurrentHashMap<String, String>();
+    private static Properties persisted = null;
+
+    public static String getFingerprint(String eventsUrl, String definition){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(eventsUrl).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            byte[] hash = digest.digest(String.valueOf(definition).getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch (NoSuchAlgorithmException ex){
+            //every JRE has SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public static boolean isVerified(String schemaName, String fingerprint){
+        return fingerprint.equals(verified.get(schemaName));
+    }
+
+    //true when the schema was verified before with another definition, in this run or a previous one
+    public static synchronized boolean isChanged(String schemaName, String fingerprint){
+        String previous = verified.get(schemaName);
+        if (previous == null) {
+            previous = getPersisted().getProperty(schemaName);
+        }
+        return previous != null && !previous.equals(fingerprint);
+    }
+
+    public static synchronized void markVerified(String schemaName, String fingerprint){
+        verified.put(schemaName, fingerprint);
+        Properties properties = getPersisted();
+        if (!fingerprint.equals(properties.getProperty(schemaName))) {
+            properties.setProperty(schemaName, fingerprint);
+            save(properties);
+        }
+    }
+
+    //the schema is verified again before the next publish
+    public static void invalidate(String schemaName){
+        if (verified.remove(schemaName) != null) {
+            logger.info("Schema {} will be verified again", schemaName);
+        }
+    }
+
+    // Verifies the schemas that are not verified yet, in parallel.
+    // Each element of schemaKeys holds the config keys of the schema name and of the schema definition
+    public static void verifyAll(final Map<String, String> config, List<String[]> schemaKeys){
+        final String apiKey = Utilities.getEventsAPIKey(config);
+        final String accountName = Utilities.getGlobalAccountName(config);
+        String eventsUrl = Utilities.getEventsAPIUrl(config);
+        List<Callable<Object>> checks = new ArrayList<Callable<Object>>();
+        Set<String> names = new HashSet<String>();
+        for (final String[] keys : schemaKeys) {
+            String schemaName = config.get(keys[0]);
+            if (schemaName == null || !names.add(schemaName) || isVerified(schemaName, getFingerprint(eventsUrl, config.get(keys[1])))) {
+                continue;
+            }
+            checks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    Utilities.ensureSchema(config, apiKey, accountName, keys[0], keys[1]);
+                    return null;
+                }
+            });
+        }
+        if (checks.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_STARTUP_THREADS, checks.size()));
+        try {
+            long start = System.currentTimeMillis();
+            executor.invokeAll(checks);
+            logger.info("Verified {} schemas in {} ms", checks.size(), System.currentTimeMillis() - start);
+        }
+        catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+            logger.error("Schema verification interrupted");
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Properties getPersisted(){
+        if (persisted == null) {
+            persisted = new Properties();
+            File file = getFile();
+            if (file.exists()) {
+                InputStream input = null;
+                try {
+                    input = new FileInputStream(file);
+                    persisted.load(input);
+                }
+                catch (IOException ex){
+                    logger.error("Unable to read {}", file, ex);
+                }
+                finally {
+                    closeQuietly(input);
+                }
+            }
+        }
+        return persisted;
+    }
+
+    private static void save(Properties properties){
+        File file = getFile();
+        OutputStream output = null;
+        try {
+            output = new FileOutputStream(file);
+            properties.store(output, "Fingerprints of the verified Events API schema definitions");
+        }
+        catch (IOException ex){
+            logger.error("Unable to write {}", file, ex);
+        }
+        finally {
+            closeQuietly(output);
+        }
+    }
+
+    private static File getFile(){
+        return new File(Utilities.getExtensionDirectory(), FILE_NAME);
+    }
+
+    private static void closeQuietly(Closeable closeable){
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        }
+        catch (IOException ex){
+            logger.error("Error while closing {}", FILE_NAME);
+        }
+    }
+}
@@ -3,17 +3,15 @@ package com.appdynamics.monitors.kubernetes.SnapshotTasks;
 import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.AssertUtils;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
 import com.appdynamics.monitors.kubernetes.Metrics.UploadMetricsTask;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
 import com.appdynamics.monitors.kubernetes.RestClient;
 import com.appdynamics.monitors.kubernetes.Utilities;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.kubernetes.client.ApiClient;
-import io.kubernetes.client.Configuration;
-import io.kubernetes.client.apis.ExtensionsV1beta1Api;
 import io.kubernetes.client.models.V1beta1DaemonSet;
 import io.kubernetes.client.models.V1beta1DaemonSetList;
 
@@ -53,27 +51,29 @@ public class DaemonSnapshotRunner extends SnapshotRunnerBase{
             URL publishUrl = ensureSchema(config, apiKey, accountName,CONFIG_SCHEMA_NAME_DAEMON, CONFIG_SCHEMA_DEF_DAEMON);
 
             try {
-                V1beta1DaemonSetList dsList;
+                beginBatches(config, CONFIG_SCHEMA_DEF_DAEMON, publishUrl, accountName, apiKey);
+                beginDeltas(config, CONFIG_SCHEMA_NAME_DAEMON, "object_uid", "deletionTimestamp", null);
                 try {
-                    ApiClient client = Utilities.initClient(config);
-                    this.setAPIServerTimeout(client, K8S_API_TIMEOUT);
-                    Configuration.setDefaultApiClient(client);
-                    ExtensionsV1beta1Api api = new ExtensionsV1beta1Api();
-                    this.setCoreAPIServerTimeout(api, K8S_API_TIMEOUT);
-
-                    dsList = api.listDaemonSetForAllNamespaces(null, null, true, null, null, null, null, null, null);
+                    fetchResource(config, ResourceType.DAEMONSETS, new PageHandler<V1beta1DaemonSetList>() {
+                        @Override
+                        public void onPage(V1beta1DaemonSetList page) {
+                            createDaemonsetPayload(page, config);
+                        }
+                    });
                 }
                 catch (Exception ex){
                     throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
                 }
-
-                createDaemonsetPayload(dsList, config, publishUrl, accountName, apiKey);
+                finally {
+                    flushBatches();
+                }
+                publishTombstones();
 
                 /* Config to get Total metrics collected */
-                SummaryObj summaryScript = getSummaryMap().get("DaemonScript");
+                SummaryObj summaryScript = getSummary(Dimension.SCRIPT, "DaemonScript");
                 if (summaryScript == null) {
                     summaryScript = initScriptSummaryObject(config, "Daemon");
-                    getSummaryMap().put("DaemonScript", summaryScript);
+                    putSummary(Dimension.SCRIPT, "DaemonScript", summaryScript);
                 }
 
                 Integer metrics_count = getMetricsFromSummary(getSummaryMap(), config).size();
@@ -98,115 +98,97 @@ public class DaemonSnapshotRunner extends SnapshotRunnerBase{
         }
     }
 
-    private ArrayNode createDaemonsetPayload(V1beta1DaemonSetList dsList, Map<String, String> config, URL publishUrl, String accountName, String apiKey){
+    private void createDaemonsetPayload(V1beta1DaemonSetList dsList, Map<String, String> config){
         ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
-        long batchSize = Long.parseLong(config.get(CONFIG_RECS_BATCH_SIZE));
 
-        for(V1beta1DaemonSet deployItem : dsList.getItems()) {
-            ObjectNode deployObject = mapper.createObjectNode();
+        forEachItem(config, dsList.getItems(), new PayloadItemHandler<V1beta1DaemonSet>() {
+            @Override
+            public void onItem(V1beta1DaemonSet deployItem) {
+                    EventRecord deployObject = newRecord();
 
-            String namespace = deployItem.getMetadata().getNamespace();
-            String clusterName = Utilities.ensureClusterName(config, deployItem.getMetadata().getClusterName());
+                    String namespace = deployItem.getMetadata().getNamespace();
+                    String clusterName = Utilities.ensureClusterName(config, deployItem.getMetadata().getClusterName());
 
-            SummaryObj summary = getSummaryMap().get(ALL);
-            if (summary == null) {
-                summary = initDaemonSummaryObject(config, ALL);
-                getSummaryMap().put(ALL, summary);
-            }
+                    SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
+                    if (summary == null) {
+                        summary = initDaemonSummaryObject(config, ALL);
+                        putSummary(Dimension.CLUSTER, ALL, summary);
+                    }
 
-            SummaryObj summaryNamespace = getSummaryMap().get(namespace);
-            if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
-                if (summaryNamespace == null) {
-                    summaryNamespace = initDaemonSummaryObject(config, namespace);
-                    getSummaryMap().put(namespace, summaryNamespace);
-                }
-            }
+                    SummaryObj summaryNamespace = getSummary(Dimension.NAMESPACE, namespace);
+                    if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
+                        if (summaryNamespace == null) {
+                            summaryNamespace = initDaemonSummaryObject(config, namespace);
+                            putSummary(Dimension.NAMESPACE, namespace, summaryNamespace);
+                        }
+                    }
 
-            incrementField(summary, "DaemonSets");
-            incrementField(summaryNamespace, "DaemonSets");
+                    incrementField(summary, "DaemonSets");
+                    incrementField(summaryNamespace, "DaemonSets");
 
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getUid(), "object_uid");
-            deployObject = checkAddObject(deployObject, clusterName, "clusterName");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getCreationTimestamp(), "creationTimestamp");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getName(), "name");
-            deployObject = checkAddObject(deployObject, namespace, "namespace");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getUid(), "object_uid");
+                    deployObject = checkAddObject(deployObject, clusterName, "clusterName");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getCreationTimestamp(), "creationTimestamp");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getName(), "name");
+                    deployObject = checkAddObject(deployObject, namespace, "namespace");
 
-            deployObject = checkAddInt(deployObject, deployItem.getSpec().getMinReadySeconds(), "minReadySecs");
+                    deployObject = checkAddInt(deployObject, deployItem.getSpec().getMinReadySeconds(), "minReadySecs");
 
 
-            deployObject = checkAddInt(deployObject, deployItem.getSpec().getRevisionHistoryLimit(), "revisionHistoryLimits");
+                    deployObject = checkAddInt(deployObject, deployItem.getSpec().getRevisionHistoryLimit(), "revisionHistoryLimits");
 
 
 
 
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getNumberAvailable(), "replicasAvailable");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getNumberUnavailable(), "replicasUnAvailable");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getCollisionCount(), "collisionCount");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getNumberReady(), "replicasReady");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getNumberAvailable(), "replicasAvailable");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getNumberUnavailable(), "replicasUnAvailable");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getCollisionCount(), "collisionCount");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getNumberReady(), "replicasReady");
 
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getCurrentNumberScheduled(), "numberScheduled");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getDesiredNumberScheduled(), "desiredNumber");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getNumberMisscheduled(), "missScheduled");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getCurrentNumberScheduled(), "numberScheduled");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getDesiredNumberScheduled(), "desiredNumber");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getNumberMisscheduled(), "missScheduled");
 
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getUpdatedNumberScheduled(), "updatedNumberScheduled");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getUpdatedNumberScheduled(), "updatedNumberScheduled");
 
-            if (deployItem.getStatus().getNumberAvailable() != null) {
-                incrementField(summary, "DaemonReplicasAvailable", deployItem.getStatus().getNumberAvailable());
-                incrementField(summaryNamespace, "DaemonReplicasAvailable", deployItem.getStatus().getNumberAvailable());
-            }
+                    if (deployItem.getStatus().getNumberAvailable() != null) {
+                        incrementField(summary, "DaemonReplicasAvailable", deployItem.getStatus().getNumberAvailable());
+                        incrementField(summaryNamespace, "DaemonReplicasAvailable", deployItem.getStatus().getNumberAvailable());
+                    }
 
-            if (deployItem.getStatus().getNumberUnavailable() != null) {
-                incrementField(summary, "DaemonReplicasUnAvailable", deployItem.getStatus().getNumberUnavailable());
-                incrementField(summaryNamespace, "DaemonReplicasUnAvailable", deployItem.getStatus().getNumberUnavailable());
-            }
+                    if (deployItem.getStatus().getNumberUnavailable() != null) {
+                        incrementField(summary, "DaemonReplicasUnAvailable", deployItem.getStatus().getNumberUnavailable());
+                        incrementField(summaryNamespace, "DaemonReplicasUnAvailable", deployItem.getStatus().getNumberUnavailable());
+                    }
 
-            if (deployItem.getStatus().getCollisionCount() != null) {
-                incrementField(summary, "DaemonCollisionCount", deployItem.getStatus().getCollisionCount());
-                incrementField(summaryNamespace, "DaemonCollisionCount", deployItem.getStatus().getCollisionCount());
-            }
+                    if (deployItem.getStatus().getCollisionCount() != null) {
+                        incrementField(summary, "DaemonCollisionCount", deployItem.getStatus().getCollisionCount());
+                        incrementField(summaryNamespace, "DaemonCollisionCount", deployItem.getStatus().getCollisionCount());
+                    }
 
-            if (deployItem.getStatus().getNumberReady() != null) {
-                incrementField(summary, "DaemonReplicasReady", deployItem.getStatus().getNumberReady());
-                incrementField(summaryNamespace, "DaemonReplicasReady", deployItem.getStatus().getNumberReady());
-            }
+                    if (deployItem.getStatus().getNumberReady() != null) {
+                        incrementField(summary, "DaemonReplicasReady", deployItem.getStatus().getNumberReady());
+                        incrementField(summaryNamespace, "DaemonReplicasReady", deployItem.getStatus().getNumberReady());
+                    }
 
-            if (deployItem.getStatus().getCurrentNumberScheduled() != null) {
-                incrementField(summary, "DaemonNumberScheduled", deployItem.getStatus().getCurrentNumberScheduled());
-                incrementField(summaryNamespace, "DaemonNumberScheduled", deployItem.getStatus().getCurrentNumberScheduled());
-            }
+                    if (deployItem.getStatus().getCurrentNumberScheduled() != null) {
+                        incrementField(summary, "DaemonNumberScheduled", deployItem.getStatus().getCurrentNumberScheduled());
+                        incrementField(summaryNamespace, "DaemonNumberScheduled", deployItem.getStatus().getCurrentNumberScheduled());
+                    }
 
 
-            if (deployItem.getStatus().getNumberMisscheduled() != null) {
-                incrementField(summary, "DaemonMissScheduled", deployItem.getStatus().getNumberMisscheduled());
-                incrementField(summaryNamespace, "DaemonMissScheduled", deployItem.getStatus().getNumberMisscheduled());
-            }
+                    if (deployItem.getStatus().getNumberMisscheduled() != null) {
+                        incrementField(summary, "DaemonMissScheduled", deployItem.getStatus().getNumberMisscheduled());
+                        incrementField(summaryNamespace, "DaemonMissScheduled", deployItem.getStatus().getNumberMisscheduled());
+                    }
 
-            arrayNode.add(deployObject);
+                    publishRecord(deployObject);
 
-            if (arrayNode.size() >= batchSize){
-                logger.info("Sending batch of {} Daemon Set records", arrayNode.size());
-                String payload = arrayNode.toString();
-                arrayNode = arrayNode.removeAll();
-                if(!payload.equals("[]")){
-                    UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                    getConfiguration().getExecutorService().execute("UploadDaemonData", uploadEventsTask);
-                }
-            }
-        }
-        if (arrayNode.size() > 0){
-            logger.info("Sending last batch of {} Daemon Set records", arrayNode.size());
-            String payload = arrayNode.toString();
-            arrayNode = arrayNode.removeAll();
-            if(!payload.equals("[]")){
-                UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                getConfiguration().getExecutorService().execute("UploadDaemonData", uploadEventsTask);
             }
-        }
+        });
 
 
-        return arrayNode;
     }
 
     protected SummaryObj initDefaultSummaryObject(Map<String, String> config){
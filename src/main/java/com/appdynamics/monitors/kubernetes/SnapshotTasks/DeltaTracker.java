@@ -0,0 +1,142 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_DELTA_FULL_REFRESH_MINUTES;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_PUBLISH_DELTAS_ONLY;
+
+// Remembers a fingerprint of the last record published for every object of a schema,
+// so that unchanged objects are not sent to the Events API again on every cycle.
+// All records are published again every deltaFullRefreshMinutes, which also repairs uploads that failed.
+// Objects that disappear are published once more as a tombstone record.
+// Trackers live for the lifetime of the extension, the runners are created on every cycle.
+public class DeltaTracker {
+    private static final Logger logger = LoggerFactory.getLogger(DeltaTracker.class);
+    private static final long DEFAULT_FULL_REFRESH_MINUTES = 60;
+    public static final String DELETED = "Deleted";
+    //fields kept to build the tombstone of an object
+    private static final String[] IDENTITY_FIELDS = new String[]{"object_uid", "name", "namespace", "clusterName", "nodeName",
+            "creationTimestamp", "labels"};
+
+    private static final Map<String, DeltaTracker> trackers = new HashMap<String, DeltaTracker>();
+
+    private final String name;
+    private final String keyField;
+    private final String tombstoneField;
+    private final String tombstoneValue;
+    private final String[] identityFields;
+    private final Map<String, Long> fingerprints = new HashMap<String, Long>();
+    private final Map<String, EventRecord> identities = new HashMap<String, EventRecord>();
+    private final Set<String> seen = new HashSet<String>();
+    private long lastFullRefresh = 0;
+    private boolean fullRefresh = true;
+    private int published = 0;
+    private int skipped = 0;
+
+    // keyField identifies the object in the records. The tombstone of a deleted object has tombstoneField set to
+    // tombstoneValue, or to the time of deletion when tombstoneValue is null
+    public DeltaTracker(String name, String keyField, String tombstoneField, String tombstoneValue){
+        this.name = name;
+        this.keyField = keyField;
+        this.tombstoneField = tombstoneField;
+        this.tombstoneValue = tombstoneValue;
+        this.identityFields = Arrays.copyOf(IDENTITY_FIELDS, IDENTITY_FIELDS.length + 1);
+        this.identityFields[IDENTITY_FIELDS.length] = keyField;
+    }
+
+    public static boolean isEnabled(Map<String, String> config){
+        return config != null && "true".equalsIgnoreCase(config.get(CONFIG_PUBLISH_DELTAS_ONLY));
+    }
+
+    //tracker of the schema, null when every record is published on every cycle
+    public static synchronized DeltaTracker get(Map<String, String> config, String name, String keyField, String tombstoneField, String tombstoneValue){
+        if (!isEnabled(config)) {
+            trackers.remove(name);
+            return null;
+        }
+        DeltaTracker tracker = trackers.get(name);
+        if (tracker == null) {
+            tracker = new DeltaTracker(name, keyField, tombstoneField, tombstoneValue);
+            trackers.put(name, tracker);
+        }
+        return tracker;
+    }
+
+    public synchronized void beginCycle(Map<String, String> config){
+        beginCycle(getFullRefreshMillis(config), System.currentTimeMillis());
+    }
+
+    private void beginCycle(long fullRefreshMillis, long now){
+        seen.clear();
+        published = 0;
+        skipped = 0;
+        fullRefresh = lastFullRefresh == 0 || now - lastFullRefresh >= fullRefreshMillis;
+        if (fullRefresh) {
+            lastFullRefresh = now;
+            logger.debug("Full refresh of {} records", name);
+        }
+    }
+
+    //true when the record is new or changed since it was last published, or on a full refresh
+    public synchronized boolean shouldPublish(EventRecord record){
+        String key = record.getText(keyField);
+        if (key == null || key.isEmpty()) {
+            published++;
+            return true;
+        }
+        seen.add(key);
+        long fingerprint = record.fingerprint();
+        Long previous = fingerprints.put(key, fingerprint);
+        boolean changed = previous == null || previous != fingerprint;
+        //the tombstone carries the identity of the last version of the object, labels included
+        if (changed) {
+            identities.put(key, record.copy(identityFields));
+        }
+        if (fullRefresh || changed) {
+            published++;
+            return true;
+        }
+        skipped++;
+        return false;
+    }
+
+    // Tombstones of the objects that were not seen during the cycle.
+    // Only call after the whole cycle was listed, otherwise the objects that were not listed are reported as deleted
+    public synchronized List<EventRecord> endCycle(){
+        List<EventRecord> tombstones = new ArrayList<EventRecord>();
+        Iterator<Map.Entry<String, Long>> it = fingerprints.entrySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next().getKey();
+            if (seen.contains(key)) {
+                continue;
+            }
+            it.remove();
+            EventRecord tombstone = identities.remove(key);
+            if (tombstone != null) {
+                tombstone.put(tombstoneField, tombstoneValue != null ? tombstoneValue : new DateTime(DateTimeZone.UTC).toString());
+                tombstones.add(tombstone);
+            }
+        }
+        logger.info("{} records: {} published, {} unchanged, {} deleted", name, published, skipped, tombstones.size());
+        seen.clear();
+        return tombstones;
+    }
+
+    private static long getFullRefreshMillis(Map<String, String> config){
+        String minutes = config.get(CONFIG_DELTA_FULL_REFRESH_MINUTES);
+        long value = minutes == null || minutes.isEmpty() ? DEFAULT_FULL_REFRESH_MINUTES : Long.parseLong(minutes);
+        return value * 60 * 1000;
+    }
+}
@@ -3,17 +3,15 @@ package com.appdynamics.monitors.kubernetes.SnapshotTasks;
 import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.AssertUtils;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
 import com.appdynamics.monitors.kubernetes.Metrics.UploadMetricsTask;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
 import com.appdynamics.monitors.kubernetes.RestClient;
 import com.appdynamics.monitors.kubernetes.Utilities;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.kubernetes.client.ApiClient;
-import io.kubernetes.client.Configuration;
-import io.kubernetes.client.apis.ExtensionsV1beta1Api;
 import io.kubernetes.client.models.ExtensionsV1beta1Deployment;
 import io.kubernetes.client.models.ExtensionsV1beta1DeploymentList;
 
@@ -22,7 +20,6 @@ import java.net.URL;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 
-import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_RECS_BATCH_SIZE;
 import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SCHEMA_DEF_DEPLOY;
 import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SCHEMA_NAME_DEPLOY;
 import static com.appdynamics.monitors.kubernetes.Utilities.*;
@@ -54,30 +51,30 @@ public class DeploymentSnapshotRunner extends SnapshotRunnerBase {
             URL publishUrl = Utilities.ensureSchema(config, apiKey, accountName,CONFIG_SCHEMA_NAME_DEPLOY, CONFIG_SCHEMA_DEF_DEPLOY);
 
             try {
-                ExtensionsV1beta1DeploymentList deployList;
-
+                beginBatches(config, CONFIG_SCHEMA_DEF_DEPLOY, publishUrl, accountName, apiKey);
+                beginDeltas(config, CONFIG_SCHEMA_NAME_DEPLOY, "object_uid", "deletionTimestamp", null);
                 try {
-
-                    ApiClient client = Utilities.initClient(config);
-                    this.setAPIServerTimeout(client, K8S_API_TIMEOUT);
-                    Configuration.setDefaultApiClient(client);
-                    ExtensionsV1beta1Api api = new ExtensionsV1beta1Api();
-                    this.setCoreAPIServerTimeout(api, K8S_API_TIMEOUT);
-                    deployList =
-                            api.listDeploymentForAllNamespaces(null, null, true, null, null, null, null, null, null);
+                    fetchResource(config, ResourceType.DEPLOYMENTS, new PageHandler<ExtensionsV1beta1DeploymentList>() {
+                        @Override
+                        public void onPage(ExtensionsV1beta1DeploymentList page) {
+                            createDeployPayload(page, config);
+                        }
+                    });
                 }
                 catch (Exception ex){
                     throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
                 }
-
-                createDeployPayload(deployList, config, publishUrl, accountName, apiKey);
+                finally {
+                    flushBatches();
+                }
+                publishTombstones();
 
 
                 /* Config to get Total metrics collected */
-                SummaryObj summaryScript = getSummaryMap().get("DeploymentScript");
+                SummaryObj summaryScript = getSummary(Dimension.SCRIPT, "DeploymentScript");
                 if (summaryScript == null) {
                     summaryScript = initScriptSummaryObject(config, "Deployment");
-                    getSummaryMap().put("DeploymentScript", summaryScript);
+                    putSummary(Dimension.SCRIPT, "DeploymentScript", summaryScript);
                 }
 
                 Integer metrics_count = getMetricsFromSummary(getSummaryMap(), config).size();
@@ -104,129 +101,105 @@ public class DeploymentSnapshotRunner extends SnapshotRunnerBase {
     }
 
 
-    private ArrayNode createDeployPayload(ExtensionsV1beta1DeploymentList deployList, Map<String, String> config, URL publishUrl, String accountName, String apiKey){
+    private void createDeployPayload(ExtensionsV1beta1DeploymentList deployList, Map<String, String> config){
         ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
 
-        long batchSize = Long.parseLong(config.get(CONFIG_RECS_BATCH_SIZE));
+        forEachItem(config, deployList.getItems(), new PayloadItemHandler<ExtensionsV1beta1Deployment>() {
+            @Override
+            public void onItem(ExtensionsV1beta1Deployment deployItem) {
+                    EventRecord deployObject = newRecord();
 
-        for(ExtensionsV1beta1Deployment deployItem : deployList.getItems()) {
-            ObjectNode deployObject = mapper.createObjectNode();
+                    String namespace = deployItem.getMetadata().getNamespace();
+                    String clusterName = Utilities.ensureClusterName(config, deployItem.getMetadata().getClusterName());
 
-            String namespace = deployItem.getMetadata().getNamespace();
-            String clusterName = Utilities.ensureClusterName(config, deployItem.getMetadata().getClusterName());
+                    SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
+                    if (summary == null) {
+                        summary = initDeploySummaryObject(config, ALL);
+                        putSummary(Dimension.CLUSTER, ALL, summary);
+                    }
 
-            SummaryObj summary = getSummaryMap().get(ALL);
-            if (summary == null) {
-                summary = initDeploySummaryObject(config, ALL);
-                getSummaryMap().put(ALL, summary);
-            }
+                    SummaryObj summaryNamespace = getSummary(Dimension.NAMESPACE, namespace);
+                    if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
+                        if (summaryNamespace == null) {
+                            summaryNamespace = initDeploySummaryObject(config, namespace);
+                            putSummary(Dimension.NAMESPACE, namespace, summaryNamespace);
+                        }
+                    }
 
-            SummaryObj summaryNamespace = getSummaryMap().get(namespace);
-            if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
-                if (summaryNamespace == null) {
-                    summaryNamespace = initDeploySummaryObject(config, namespace);
-                    getSummaryMap().put(namespace, summaryNamespace);
-                }
-            }
+                    incrementField(summary, "Deployments");
+                    incrementField(summaryNamespace, "Deployments");
 
-            incrementField(summary, "Deployments");
-            incrementField(summaryNamespace, "Deployments");
-
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getUid(), "object_uid");
-            deployObject = checkAddObject(deployObject, clusterName, "clusterName");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getCreationTimestamp(), "creationTimestamp");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getName(), "name");
-            deployObject = checkAddObject(deployObject, namespace, "namespace");
-
-            if (deployItem.getMetadata().getLabels() != null) {
-                String labels = "";
-                Iterator it = deployItem.getMetadata().getLabels().entrySet().iterator();
-                while (it.hasNext()) {
-                    Map.Entry pair = (Map.Entry)it.next();
-                    labels += String.format("%s:%s;", pair.getKey(), pair.getValue());
-                    it.remove();
-                }
-                deployObject = checkAddObject(deployObject, labels, "labels");
-            }
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getUid(), "object_uid");
+                    deployObject = checkAddObject(deployObject, clusterName, "clusterName");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getCreationTimestamp(), "creationTimestamp");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getName(), "name");
+                    deployObject = checkAddObject(deployObject, namespace, "namespace");
 
-            if (deployItem.getMetadata().getAnnotations() != null){
-                String annotations = "";
-                Iterator it = deployItem.getMetadata().getAnnotations().entrySet().iterator();
-                while (it.hasNext()) {
-                    Map.Entry pair = (Map.Entry)it.next();
-                    annotations += String.format("%s:%s;", pair.getKey(), pair.getValue());
-                    it.remove();
-                }
-                deployObject = checkAddObject(deployObject, annotations, "annotations");
-            }
+                    if (deployItem.getMetadata().getLabels() != null) {
+                        String labels = "";
+                        Iterator it = deployItem.getMetadata().getLabels().entrySet().iterator();
+                        while (it.hasNext()) {
+                            Map.Entry pair = (Map.Entry)it.next();
+                            labels += String.format("%s:%s;", pair.getKey(), pair.getValue());
+                        }
+                        deployObject = checkAddObject(deployObject, labels, "labels");
+                    }
 
+                    if (deployItem.getMetadata().getAnnotations() != null){
+                        String annotations = "";
+                        Iterator it = deployItem.getMetadata().getAnnotations().entrySet().iterator();
+                        while (it.hasNext()) {
+                            Map.Entry pair = (Map.Entry)it.next();
+                            annotations += String.format("%s:%s;", pair.getKey(), pair.getValue());
+                        }
+                        deployObject = checkAddObject(deployObject, annotations, "annotations");
+                    }
 
-            deployObject = checkAddInt(deployObject, deployItem.getSpec().getMinReadySeconds(), "minReadySecs");
-            deployObject = checkAddInt(deployObject, deployItem.getSpec().getProgressDeadlineSeconds(), "progressDeadlineSecs");
 
-            int replicas = deployItem.getSpec().getReplicas();
-            deployObject = checkAddInt(deployObject, deployItem.getSpec().getReplicas(), "replicas");
+                    deployObject = checkAddInt(deployObject, deployItem.getSpec().getMinReadySeconds(), "minReadySecs");
+                    deployObject = checkAddInt(deployObject, deployItem.getSpec().getProgressDeadlineSeconds(), "progressDeadlineSecs");
 
-//            deployObject = checkAddObject(deployObject, deployItem.getSpec().getSelector().getMatchLabels().toString(), "labels");
+                    int replicas = deployItem.getSpec().getReplicas();
+                    deployObject = checkAddInt(deployObject, deployItem.getSpec().getReplicas(), "replicas");
 
-            incrementField(summary, "DeployReplicas", replicas);
-            incrementField(summaryNamespace, "DeployReplicas", replicas);
+        //            deployObject = checkAddObject(deployObject, deployItem.getSpec().getSelector().getMatchLabels().toString(), "labels");
 
+                    incrementField(summary, "DeployReplicas", replicas);
+                    incrementField(summaryNamespace, "DeployReplicas", replicas);
 
-            deployObject = checkAddInt(deployObject, deployItem.getSpec().getRevisionHistoryLimit(), "revisionHistoryLimits");
 
-            deployObject = checkAddObject(deployObject, deployItem.getSpec().getStrategy().getType(), "strategy");
+                    deployObject = checkAddInt(deployObject, deployItem.getSpec().getRevisionHistoryLimit(), "revisionHistoryLimits");
 
-            if (deployItem.getSpec().getStrategy() != null && deployItem.getSpec().getStrategy().getRollingUpdate() != null){
-                deployObject = checkAddObject(deployObject, deployItem.getSpec().getStrategy().getRollingUpdate().getMaxSurge(), "maxSurge");
-                deployObject = checkAddObject(deployObject, deployItem.getSpec().getStrategy().getRollingUpdate().getMaxUnavailable(), "maxUnavailable");
-            }
+                    deployObject = checkAddObject(deployObject, deployItem.getSpec().getStrategy().getType(), "strategy");
 
+                    if (deployItem.getSpec().getStrategy() != null && deployItem.getSpec().getStrategy().getRollingUpdate() != null){
+                        deployObject = checkAddObject(deployObject, deployItem.getSpec().getStrategy().getRollingUpdate().getMaxSurge(), "maxSurge");
+                        deployObject = checkAddObject(deployObject, deployItem.getSpec().getStrategy().getRollingUpdate().getMaxUnavailable(), "maxUnavailable");
+                    }
 
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getAvailableReplicas(), "replicasAvailable");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getUnavailableReplicas(), "replicasUnAvailable");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getUpdatedReplicas(), "replicasUpdated");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getCollisionCount(), "collisionCount");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getReadyReplicas(), "replicasReady");
 
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getAvailableReplicas(), "replicasAvailable");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getUnavailableReplicas(), "replicasUnAvailable");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getUpdatedReplicas(), "replicasUpdated");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getCollisionCount(), "collisionCount");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getReadyReplicas(), "replicasReady");
 
-            if (deployItem.getStatus().getUnavailableReplicas() != null) {
-                incrementField(summary, "DeployReplicasUnAvailable", deployItem.getStatus().getUnavailableReplicas());
-                incrementField(summaryNamespace, "DeployReplicasUnAvailable", deployItem.getStatus().getUnavailableReplicas());
-            }
 
-            if (deployItem.getStatus().getCollisionCount() != null) {
-                incrementField(summary, "DeployCollisionCount", deployItem.getStatus().getCollisionCount());
-                incrementField(summaryNamespace, "DeployCollisionCount", deployItem.getStatus().getCollisionCount());
-            }
+                    if (deployItem.getStatus().getUnavailableReplicas() != null) {
+                        incrementField(summary, "DeployReplicasUnAvailable", deployItem.getStatus().getUnavailableReplicas());
+                        incrementField(summaryNamespace, "DeployReplicasUnAvailable", deployItem.getStatus().getUnavailableReplicas());
+                    }
 
+                    if (deployItem.getStatus().getCollisionCount() != null) {
+                        incrementField(summary, "DeployCollisionCount", deployItem.getStatus().getCollisionCount());
+                        incrementField(summaryNamespace, "DeployCollisionCount", deployItem.getStatus().getCollisionCount());
+                    }
 
-            arrayNode.add(deployObject);
-            if (arrayNode.size() >= batchSize){
-                logger.info("Sending batch of {} Deploy records", arrayNode.size());
-                String payload = arrayNode.toString();
-                arrayNode = arrayNode.removeAll();
-                if(!payload.equals("[]")){
-                    UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                    getConfiguration().getExecutorService().execute("UploadDeployData", uploadEventsTask);
-                }
-            }
-        }
 
-        if (arrayNode.size() > 0){
-            logger.info("Sending last batch of {} Deploy records", arrayNode.size());
-            String payload = arrayNode.toString();
-            arrayNode = arrayNode.removeAll();
-            if(!payload.equals("[]")){
-                UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                getConfiguration().getExecutorService().execute("UploadDeployData", uploadEventsTask);
+                    publishRecord(deployObject);
             }
-        }
-
-
-        return arrayNode;
+        });
     }
 
     protected SummaryObj initDefaultSummaryObject(Map<String, String> config){
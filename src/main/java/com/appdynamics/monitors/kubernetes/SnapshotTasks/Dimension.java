@@ -0,0 +1,53 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Kinds of summaries a task keeps, each with its own space of values.
+// Every value is interned to a dense int id the first time it is seen, so that the summaries
+// are kept in flat arrays and a namespace named like a node does not share its summary.
+// The ids live for the lifetime of the extension, the same namespaces and nodes keep their ids across cycles.
+public enum Dimension {
+    CLUSTER,
+    NAMESPACE,
+    NODE,
+    ROLE,
+    SCRIPT;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private final List<String> values = new ArrayList<String>();
+
+    //null is interned like the empty string
+    public int id(String value){
+        if (value == null) {
+            value = "";
+        }
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (values) {
+            id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+    }
+
+    public String getValue(int id){
+        synchronized (values) {
+            return values.get(id);
+        }
+    }
+
+    public int size(){
+        synchronized (values) {
+            return values.size();
+        }
+    }
+}
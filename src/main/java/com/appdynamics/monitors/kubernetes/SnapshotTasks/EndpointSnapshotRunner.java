@@ -3,17 +3,15 @@ package com.appdynamics.monitors.kubernetes.SnapshotTasks;
 import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.AssertUtils;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
 import com.appdynamics.monitors.kubernetes.Metrics.UploadMetricsTask;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
 import com.appdynamics.monitors.kubernetes.RestClient;
 import com.appdynamics.monitors.kubernetes.Utilities;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.kubernetes.client.ApiClient;
-import io.kubernetes.client.Configuration;
-import io.kubernetes.client.apis.CoreV1Api;
 import io.kubernetes.client.models.V1EndpointAddress;
 import io.kubernetes.client.models.V1EndpointSubset;
 import io.kubernetes.client.models.V1Endpoints;
@@ -27,7 +25,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
-import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_RECS_BATCH_SIZE;
 import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SCHEMA_DEF_EP;
 import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SCHEMA_NAME_EP;
 import static com.appdynamics.monitors.kubernetes.Utilities.*;
@@ -59,36 +56,29 @@ public class EndpointSnapshotRunner extends SnapshotRunnerBase {
             URL publishUrl = ensureSchema(config, apiKey, accountName,CONFIG_SCHEMA_NAME_EP, CONFIG_SCHEMA_DEF_EP);
 
             try {
-                V1EndpointsList epList;
+                beginBatches(config, CONFIG_SCHEMA_DEF_EP, publishUrl, accountName, apiKey);
+                beginDeltas(config, CONFIG_SCHEMA_NAME_EP, "object_uid", "deletionTimestamp", null);
                 try {
-
-                    ApiClient client = Utilities.initClient(config);
-                    this.setAPIServerTimeout(client, K8S_API_TIMEOUT);
-                    Configuration.setDefaultApiClient(client);
-                    CoreV1Api api = new CoreV1Api();
-                    this.setCoreAPIServerTimeout(api, K8S_API_TIMEOUT);
-
-                    epList = api.listEndpointsForAllNamespaces(null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null);
+                    fetchResource(config, ResourceType.ENDPOINTS, new PageHandler<V1EndpointsList>() {
+                        @Override
+                        public void onPage(V1EndpointsList page) {
+                            createEndpointPayload(page, config);
+                        }
+                    });
                 }
                 catch (Exception ex){
                     throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
                 }
-
-                createEndpointPayload(epList, config, publishUrl, accountName, apiKey);
+                finally {
+                    flushBatches();
+                }
+                publishTombstones();
 
                 /* Config to get Total metrics collected */
-                SummaryObj summaryScript = getSummaryMap().get("EndpointScript");
+                SummaryObj summaryScript = getSummary(Dimension.SCRIPT, "EndpointScript");
                 if (summaryScript == null) {
                     summaryScript = initScriptSummaryObject(config, "Endpoint");
-                    getSummaryMap().put("EndpointScript", summaryScript);
+                    putSummary(Dimension.SCRIPT, "EndpointScript", summaryScript);
                 }
 
                 Integer metrics_count = getMetricsFromSummary(getSummaryMap(), config).size();
@@ -111,107 +101,89 @@ public class EndpointSnapshotRunner extends SnapshotRunnerBase {
         }
     }
 
-     ArrayNode createEndpointPayload(V1EndpointsList epList, Map<String, String> config, URL publishUrl, String accountName, String apiKey) {
+     void createEndpointPayload(V1EndpointsList epList, Map<String, String> config) {
         ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
-        long batchSize = Long.parseLong(config.get(CONFIG_RECS_BATCH_SIZE));
 
-        for (V1Endpoints ep : epList.getItems()) {
-            ObjectNode objectNode = mapper.createObjectNode();
-            objectNode = checkAddObject(objectNode, ep.getMetadata().getName(), "name");
+        forEachItem(config, epList.getItems(), new PayloadItemHandler<V1Endpoints>() {
+            @Override
+            public void onItem(V1Endpoints ep) {
+                    EventRecord objectNode = newRecord();
+                    objectNode = checkAddObject(objectNode, ep.getMetadata().getName(), "name");
 
-            String namespace = ep.getMetadata().getNamespace();
-            objectNode = checkAddObject(objectNode, namespace, "namespace");
+                    String namespace = ep.getMetadata().getNamespace();
+                    objectNode = checkAddObject(objectNode, namespace, "namespace");
 
-            String clusterName = Utilities.ensureClusterName(config, ep.getMetadata().getClusterName());
+                    String clusterName = Utilities.ensureClusterName(config, ep.getMetadata().getClusterName());
 
-            SummaryObj summary = getSummaryMap().get(ALL);
-            if (summary == null) {
-                summary = initEPSummaryObject(config, ALL);
-                getSummaryMap().put(ALL, summary);
-            }
+                    SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
+                    if (summary == null) {
+                        summary = initEPSummaryObject(config, ALL);
+                        putSummary(Dimension.CLUSTER, ALL, summary);
+                    }
 
-            SummaryObj summaryNamespace = getSummaryMap().get(namespace);
-            if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
-                if (summaryNamespace == null) {
-                    summaryNamespace = initEPSummaryObject(config, namespace);
-                    getSummaryMap().put(namespace, summaryNamespace);
-                }
-            }
+                    SummaryObj summaryNamespace = getSummary(Dimension.NAMESPACE, namespace);
+                    if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
+                        if (summaryNamespace == null) {
+                            summaryNamespace = initEPSummaryObject(config, namespace);
+                            putSummary(Dimension.NAMESPACE, namespace, summaryNamespace);
+                        }
+                    }
 
-            incrementField(summary, "Endpoints");
-            incrementField(summaryNamespace, "Endpoints");
+                    incrementField(summary, "Endpoints");
+                    incrementField(summaryNamespace, "Endpoints");
 
 
 
-            objectNode = checkAddObject(objectNode, ep.getMetadata().getUid(), "object_uid");
-            objectNode = checkAddObject(objectNode, clusterName, "clusterName");
-            objectNode = checkAddObject(objectNode, ep.getMetadata().getCreationTimestamp(), "creationTimestamp");
-            objectNode = checkAddObject(objectNode, ep.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
-            int ups = 0;
-            int downs = 0;
-            String downContext = "";
-            if (ep.getSubsets() != null) {
+                    objectNode = checkAddObject(objectNode, ep.getMetadata().getUid(), "object_uid");
+                    objectNode = checkAddObject(objectNode, clusterName, "clusterName");
+                    objectNode = checkAddObject(objectNode, ep.getMetadata().getCreationTimestamp(), "creationTimestamp");
+                    objectNode = checkAddObject(objectNode, ep.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
+                    int ups = 0;
+                    int downs = 0;
+                    String downContext = "";
+                    if (ep.getSubsets() != null) {
 
-                for (V1EndpointSubset subset : ep.getSubsets()) {
-                    if (subset.getAddresses() != null) {
-                        ups += subset.getAddresses().size();
-                    }
+                        for (V1EndpointSubset subset : ep.getSubsets()) {
+                            if (subset.getAddresses() != null) {
+                                ups += subset.getAddresses().size();
+                            }
 
-                    if (subset.getNotReadyAddresses() != null) {
-                        downs += subset.getNotReadyAddresses().size();
-                        for (V1EndpointAddress address : subset.getNotReadyAddresses()) {
-                            String obj = address.getTargetRef() != null ? address.getTargetRef().getName() : "";
-                            downContext += String.format("%s, %s", obj, address.getIp());
-                        }
+                            if (subset.getNotReadyAddresses() != null) {
+                                downs += subset.getNotReadyAddresses().size();
+                                for (V1EndpointAddress address : subset.getNotReadyAddresses()) {
+                                    String obj = address.getTargetRef() != null ? address.getTargetRef().getName() : "";
+                                    downContext += String.format("%s, %s", obj, address.getIp());
+                                }
 
+                            }
+                        }
                     }
-                }
-            }
 
-            objectNode = checkAddInt(objectNode, ups, "ip_up");
-            objectNode = checkAddInt(objectNode, downs, "ip_down");
-            objectNode = checkAddObject(objectNode, downContext, "downContext");
+                    objectNode = checkAddInt(objectNode, ups, "ip_up");
+                    objectNode = checkAddInt(objectNode, downs, "ip_down");
+                    objectNode = checkAddObject(objectNode, downContext, "downContext");
 
-            if (ups > 0){
-                incrementField(summary, "HealthyEndpoints");
-                incrementField(summaryNamespace, "HealthyEndpoints");
-            }
+                    if (ups > 0){
+                        incrementField(summary, "HealthyEndpoints");
+                        incrementField(summaryNamespace, "HealthyEndpoints");
+                    }
 
-            if (downs > 0){
-                incrementField(summary, "UnhealthyEndpoints");
-                incrementField(summaryNamespace, "UnhealthyEndpoints");
-            }
+                    if (downs > 0){
+                        incrementField(summary, "UnhealthyEndpoints");
+                        incrementField(summaryNamespace, "UnhealthyEndpoints");
+                    }
 
-            if(ups == 0 && downs == 0){
-                incrementField(summary, "OrphanEndpoints");
-                incrementField(summaryNamespace, "OrphanEndpoints");
-            }
+                    if(ups == 0 && downs == 0){
+                        incrementField(summary, "OrphanEndpoints");
+                        incrementField(summaryNamespace, "OrphanEndpoints");
+                    }
 
-            arrayNode.add(objectNode);
+                    publishRecord(objectNode);
 
-            if (arrayNode.size() >= batchSize){
-                logger.info("Sending batch of {} Endpoint records", arrayNode.size());
-                String payload = arrayNode.toString();
-                arrayNode = arrayNode.removeAll();
-                if(!payload.equals("[]")){
-                    UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                    getConfiguration().getExecutorService().execute("UploadEndpointData", uploadEventsTask);
-                }
             }
-        }
+        });
+
 
-         if (arrayNode.size() > 0){
-             logger.info("Sending last batch of {} Endpoint records", arrayNode.size());
-             String payload = arrayNode.toString();
-             arrayNode = arrayNode.removeAll();
-             if(!payload.equals("[]")){
-                 UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                 getConfiguration().getExecutorService().execute("UploadEndpointData", uploadEventsTask);
-             }
-         }
-
-        return arrayNode;
     }
 
     protected SummaryObj initDefaultSummaryObject(Map<String, String> config){
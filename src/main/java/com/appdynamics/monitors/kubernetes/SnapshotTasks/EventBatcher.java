@@ -0,0 +1,117 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+// Groups the records of a schema into Events API payloads.
+// A batch is sent when it holds maxRecords records or when the next record would take it over maxBytes, whichever comes first.
+// Every record is encoded once, straight into the payload, so that the size of the batch is known without encoding it again.
+// EventRecords are written by one generator kept for the lifetime of the batcher, without building a JSON tree.
+// The batch is built in the pooled chunks of an EventPayload, which the sender owns once the batch is sent.
+public class EventBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EventBatcher.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    public interface Sender {
+        void send(EventPayload payload, int records);
+    }
+
+    private final String name;
+    private final long maxRecords;
+    private final long maxBytes;
+    private final Sender sender;
+    private EventPayload batch = null;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+    private JsonGenerator generator = null;
+    private int records = 0;
+    private long sentRecords = 0;
+    private long sentBatches = 0;
+
+    public EventBatcher(String name, long maxRecords, long maxBytes, Sender sender){
+        this.name = name;
+        this.maxRecords = Math.max(1, maxRecords);
+        this.maxBytes = maxBytes;
+        this.sender = sender;
+    }
+
+    public void add(JsonNode node) throws IOException {
+        record.reset();
+        JsonGenerator generator = mapper.getFactory().createGenerator(record);
+        mapper.writeTree(generator, node);
+        generator.close();
+        append();
+    }
+
+    public void add(EventRecord eventRecord) throws IOException {
+        record.reset();
+        if (generator == null) {
+            generator = mapper.getFactory().createGenerator(record);
+            generator.setRootValueSeparator(null);
+        }
+        try {
+            eventRecord.writeTo(generator);
+            generator.flush();
+        }
+        catch (IOException ex){
+            //the generator is left inside the failed record
+            generator = null;
+            throw ex;
+        }
+        append();
+    }
+
+    private void append() throws IOException {
+        //opening bracket, separator and closing bracket
+        if (records > 0 && maxBytes > 0 && batch.size() + record.size() + 2 > maxBytes) {
+            flush();
+        }
+        if (records == 0) {
+            if (maxBytes > 0 && record.size() + 2 > maxBytes) {
+                logger.warn("{} record of {} bytes is larger than the batch size limit of {} bytes. Sending it alone", name, record.size(), maxBytes);
+            }
+            batch = new EventPayload();
+            batch.write('[');
+        }
+        else {
+            batch.write(',');
+        }
+        record.writeTo(batch);
+        records++;
+        if (records >= maxRecords) {
+            flush();
+        }
+    }
+
+    public void flush(){
+        if (records == 0) {
+            return;
+        }
+        batch.write(']');
+        EventPayload payload = batch;
+        logger.info("Sending batch of {} {} records, {} bytes", records, name, payload.size());
+        int count = records;
+        batch = null;
+        records = 0;
+        sentRecords += count;
+        sentBatches++;
+        sender.send(payload, count);
+    }
+
+    public int getPendingRecords() {
+        return records;
+    }
+
+    public long getSentRecords() {
+        return sentRecords;
+    }
+
+    public long getSentBatches() {
+        return sentBatches;
+    }
+}
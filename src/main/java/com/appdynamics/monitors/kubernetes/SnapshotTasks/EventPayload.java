@@ -0,0 +1,118 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Encoded body of one Events API request, kept in fixed size chunks instead of one String or growing array.
+// The chunks are taken from a pool shared by all schemas and streamed as they are to the request body and the spool.
+// Release the payload once the batch is delivered, spooled or dropped, so that its chunks are used by the next batches.
+public class EventPayload extends OutputStream {
+    private static final int CHUNK_BYTES = 64 * 1024;
+    //at most 16MB of free chunks are kept
+    private static final int MAX_POOLED_CHUNKS = 256;
+    private static final ConcurrentLinkedQueue<byte[]> pool = new ConcurrentLinkedQueue<byte[]>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    private final List<byte[]> chunks = new ArrayList<byte[]>();
+    //bytes used in the last chunk
+    private int position = CHUNK_BYTES;
+    private long size = 0;
+
+    public static EventPayload of(String body){
+        EventPayload payload = new EventPayload();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        payload.write(bytes, 0, bytes.length);
+        return payload;
+    }
+
+    @Override
+    public void write(int b) {
+        if (position == CHUNK_BYTES) {
+            addChunk();
+        }
+        chunks.get(chunks.size() - 1)[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            if (position == CHUNK_BYTES) {
+                addChunk();
+            }
+            int count = Math.min(len, CHUNK_BYTES - position);
+            System.arraycopy(b, off, chunks.get(chunks.size() - 1), position, count);
+            position += count;
+            off += count;
+            len -= count;
+            size += count;
+        }
+    }
+
+    private void addChunk(){
+        byte[] chunk = pool.poll();
+        if (chunk != null) {
+            pooled.decrementAndGet();
+        }
+        else {
+            chunk = new byte[CHUNK_BYTES];
+        }
+        chunks.add(chunk);
+        position = 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        for (int i = 0; i < chunks.size(); i++) {
+            out.write(chunks.get(i), 0, getLength(i));
+        }
+    }
+
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        for (int i = 0; i < chunks.size(); i++) {
+            ByteBuffer buffer = ByteBuffer.wrap(chunks.get(i), 0, getLength(i));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private int getLength(int chunk){
+        return chunk == chunks.size() - 1 ? position : CHUNK_BYTES;
+    }
+
+    //hands the chunks back to the pool. The payload is empty afterwards
+    public void release(){
+        for (byte[] chunk : chunks) {
+            if (pooled.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+                pool.offer(chunk);
+            }
+            else {
+                pooled.decrementAndGet();
+            }
+        }
+        chunks.clear();
+        position = CHUNK_BYTES;
+        size = 0;
+    }
+
+    //decodes the whole payload, for logging and tests
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[(int) size];
+        for (int i = 0, offset = 0; i < chunks.size(); offset += getLength(i), i++) {
+            System.arraycopy(chunks.get(i), 0, bytes, offset, getLength(i));
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,215 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// One record of an Events API schema, written straight to a JsonGenerator.
+// Values are kept by field ordinal as they are given and only coerced to the schema types when written.
+// Fields that are not in the schema are kept in the order they were added and written with their own types.
+public class EventRecord {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final RecordSchema schema;
+    private final Object[] values;
+    private List<String> extraNames = null;
+    private List<Object> extraValues = null;
+
+    public EventRecord(RecordSchema schema){
+        this.schema = schema;
+        this.values = new Object[schema.size()];
+    }
+
+    //null values are not written
+    public EventRecord put(String field, Object value){
+        int ordinal = schema.ordinal(field);
+        if (ordinal >= 0) {
+            values[ordinal] = value;
+            return this;
+        }
+        if (extraNames == null) {
+            extraNames = new ArrayList<String>();
+            extraValues = new ArrayList<Object>();
+        }
+        int i = extraNames.indexOf(field);
+        if (i >= 0) {
+            extraValues.set(i, value);
+        }
+        else {
+            extraNames.add(field);
+            extraValues.add(value);
+        }
+        return this;
+    }
+
+    public Object get(String field){
+        int ordinal = schema.ordinal(field);
+        if (ordinal >= 0) {
+            return values[ordinal];
+        }
+        int i = extraNames == null ? -1 : extraNames.indexOf(field);
+        return i < 0 ? null : extraValues.get(i);
+    }
+
+    public String getText(String field){
+        Object value = get(field);
+        return value == null ? null : value.toString();
+    }
+
+    //record with the given fields of this one
+    public EventRecord copy(String[] fields){
+        EventRecord copy = new EventRecord(schema);
+        for (String field : fields) {
+            Object value = get(field);
+            if (value != null) {
+                copy.put(field, value);
+            }
+        }
+        return copy;
+    }
+
+    public void writeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                generator.writeFieldName(schema.getKey(i));
+                writeValue(generator, schema.getType(i), values[i]);
+            }
+        }
+        if (extraNames != null) {
+            for (int i = 0; i < extraNames.size(); i++) {
+                if (extraValues.get(i) != null) {
+                    generator.writeFieldName(extraNames.get(i));
+                    writeValue(generator, null, extraValues.get(i));
+                }
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    //values that cannot be coerced to the type are written as strings
+    private static void writeValue(JsonGenerator generator, RecordSchema.FieldType type, Object value) throws IOException {
+        if (type == RecordSchema.FieldType.STRING || type == RecordSchema.FieldType.DATE) {
+            generator.writeString(value.toString());
+        }
+        else if (type == RecordSchema.FieldType.INTEGER && value instanceof Number) {
+            generator.writeNumber(((Number) value).longValue());
+        }
+        else if (type == RecordSchema.FieldType.INTEGER && value instanceof String && isInteger((String) value)) {
+            generator.writeNumber(Long.parseLong((String) value));
+        }
+        else if (type == RecordSchema.FieldType.FLOAT && value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        }
+        else if (type == RecordSchema.FieldType.FLOAT && value instanceof Number) {
+            generator.writeNumber(((Number) value).doubleValue());
+        }
+        else if (type == RecordSchema.FieldType.BOOLEAN && value instanceof String) {
+            generator.writeBoolean(Boolean.parseBoolean((String) value));
+        }
+        else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        }
+        else if (type == null && value instanceof Number) {
+            writeNumber(generator, (Number) value);
+        }
+        else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private static void writeNumber(JsonGenerator generator, Number value) throws IOException {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(value.longValue());
+        }
+        else if (value instanceof Float) {
+            generator.writeNumber(value.floatValue());
+        }
+        else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        }
+        else {
+            generator.writeNumber(value.doubleValue());
+        }
+    }
+
+    private static boolean isInteger(String value){
+        int length = value.length();
+        if (length == 0 || length > 18) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && !(i == 0 && c == '-' && length > 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //64 bit FNV-1a over the field values, without encoding the record
+    public long fingerprint(){
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                hash = mix(hash, i);
+                hash = mix(hash, values[i]);
+            }
+        }
+        if (extraNames != null) {
+            for (int i = 0; i < extraNames.size(); i++) {
+                hash = mix(hash, extraNames.get(i));
+                hash = mix(hash, extraValues.get(i));
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, Object value){
+        if (value instanceof CharSequence) {
+            CharSequence chars = (CharSequence) value;
+            for (int i = 0; i < chars.length(); i++) {
+                hash = mix(hash, (long) chars.charAt(i));
+            }
+            return hash;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return mix(hash, ((Number) value).longValue());
+        }
+        if (value instanceof Float || value instanceof Double) {
+            return mix(hash, Double.doubleToLongBits(((Number) value).doubleValue()));
+        }
+        if (value instanceof Boolean) {
+            return mix(hash, (Boolean) value ? 1L : 2L);
+        }
+        return value == null ? hash : mix(hash, value.toString());
+    }
+
+    private static long mix(long hash, long value){
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public ObjectNode toObjectNode(){
+        ObjectNode node = mapper.createObjectNode();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                node.set(schema.getName(i), mapper.valueToTree(values[i]));
+            }
+        }
+        if (extraNames != null) {
+            for (int i = 0; i < extraNames.size(); i++) {
+                node.set(extraNames.get(i), mapper.valueToTree(extraValues.get(i)));
+            }
+        }
+        return node;
+    }
+}
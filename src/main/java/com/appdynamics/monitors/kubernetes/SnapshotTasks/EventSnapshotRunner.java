@@ -4,23 +4,24 @@ import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.AssertUtils;
 import com.appdynamics.monitors.kubernetes.Globals;
+import com.appdynamics.monitors.kubernetes.Kube.ClusterCache;
+import com.appdynamics.monitors.kubernetes.Kube.EventStream;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
 import com.appdynamics.monitors.kubernetes.Metrics.UploadMetricsTask;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
 import com.appdynamics.monitors.kubernetes.RestClient;
 import com.appdynamics.monitors.kubernetes.Utilities;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.kubernetes.client.ApiClient;
-import io.kubernetes.client.Configuration;
-import io.kubernetes.client.apis.CoreV1Api;
 import io.kubernetes.client.models.*;
 
 import java.io.IOException;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.appdynamics.monitors.kubernetes.Constants.*;
 import static com.appdynamics.monitors.kubernetes.Utilities.*;
@@ -52,35 +53,49 @@ public class EventSnapshotRunner extends SnapshotRunnerBase {
             URL publishUrl = Utilities.ensureSchema(config, apiKey, accountName,CONFIG_SCHEMA_NAME_EVENT, CONFIG_SCHEMA_DEF_EVENT);
 
             try {
-                V1EventList eventList;
-                try {
-                    ApiClient client = Utilities.initClient(config);
-                    this.setAPIServerTimeout(client, K8S_API_TIMEOUT);
-                    Configuration.setDefaultApiClient(client);
-                    CoreV1Api api = new CoreV1Api();
-                    this.setCoreAPIServerTimeout(api, K8S_API_TIMEOUT);
-                    eventList = api.listEventForAllNamespaces(null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null);
+                beginBatches(config, CONFIG_SCHEMA_DEF_EVENT, publishUrl, accountName, apiKey);
+                if (ClusterCache.isEnabled(config)) {
+                    //only the events received by the watch since the previous cycle
+                    List<V1Event> events;
+                    try {
+                        EventStream stream = ClusterCache.getEventStream(config);
+                        if (!stream.waitForSync(ClusterCache.getSyncTimeout(config), TimeUnit.SECONDS)) {
+                            logger.info("Event stream is not synced yet");
+                        }
+                        events = stream.drain();
+                    }
+                    catch (Exception ex){
+                        throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
+                    }
+                    logger.info("Received {} new events", events.size());
+                    createEventPayload(new V1EventList().items(events), config, false);
+                    flushBatches();
                 }
-                catch (Exception ex){
-                    throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
+                else {
+                    try {
+                        fetchResource(config, ResourceType.EVENTS, new PageHandler<V1EventList>() {
+                            @Override
+                            public void onPage(V1EventList page) {
+                                createEventPayload(page, config, true);
+                            }
+                        });
+                    }
+                    catch (Exception ex){
+                        throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
+                    }
+                    finally {
+                        flushBatches();
+                    }
+                    //move the dedup markers only once all pages are processed
+                    Globals.previousRunSelfLink = Globals.lastElementSelfLink;
+                    Globals.previousRunTimestamp = Globals.lastElementTimestamp;
                 }
 
-                createEventPayload(eventList, config, publishUrl, accountName, apiKey);
-
-
                 /* Config to get Total metrics collected */
-                SummaryObj summaryScript = getSummaryMap().get("EventScript");
+                SummaryObj summaryScript = getSummary(Dimension.SCRIPT, "EventScript");
                 if (summaryScript == null) {
                     summaryScript = initScriptSummaryObject(config, "Event");
-                    getSummaryMap().put("EventScript", summaryScript);
+                    putSummary(Dimension.SCRIPT, "EventScript", summaryScript);
                 }
 
                 Integer metrics_count = getMetricsFromSummary(getSummaryMap(), config).size();
@@ -105,35 +120,33 @@ public class EventSnapshotRunner extends SnapshotRunnerBase {
         }
     }
 
-    private ArrayNode createEventPayload(V1EventList eventList, Map<String, String> config, URL publishUrl, String accountName, String apiKey) {
+    //with filterSeen the events already sent in the previous run are skipped based on their timestamp
+    private void createEventPayload(V1EventList eventList, Map<String, String> config, boolean filterSeen) {
         ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
-
-        long batchSize = Long.parseLong(config.get(CONFIG_RECS_BATCH_SIZE));
 
         for (V1Event item : eventList.getItems()) {
-            if (item.getLastTimestamp().isAfter(Globals.previousRunTimestamp) || Globals.previousRunTimestamp == null){
-                if (!item.getMetadata().getSelfLink().equals(Globals.previousRunSelfLink)){
+            if (!filterSeen || item.getLastTimestamp().isAfter(Globals.previousRunTimestamp) || Globals.previousRunTimestamp == null){
+                if (!filterSeen || !item.getMetadata().getSelfLink().equals(Globals.previousRunSelfLink)){
 
                     boolean error = false;
-                    ObjectNode objectNode = mapper.createObjectNode();
+                    EventRecord objectNode = newRecord();
                     String namespace = item.getMetadata().getNamespace();
                     String nodeName = item.getSource().getHost();
                     String reason = item.getReason();
                     String message = item.getMessage();
                     String clusterName = Utilities.ensureClusterName(config, item.getMetadata().getClusterName());
 
-                    SummaryObj summary = getSummaryMap().get(ALL);
+                    SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
                     if (summary == null) {
                         summary = initEventSummaryObject(config, ALL);
-                        getSummaryMap().put(ALL, summary);
+                        putSummary(Dimension.CLUSTER, ALL, summary);
                     }
 
-                    SummaryObj summaryNamespace = getSummaryMap().get(namespace);
+                    SummaryObj summaryNamespace = getSummary(Dimension.NAMESPACE, namespace);
                     if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
                         if (summaryNamespace == null) {
                             summaryNamespace = initEventSummaryObject(config, namespace);
-                            getSummaryMap().put(namespace, summaryNamespace);
+                            putSummary(Dimension.NAMESPACE, namespace, summaryNamespace);
                         }
                     }
 
@@ -229,16 +242,7 @@ public class EventSnapshotRunner extends SnapshotRunnerBase {
                         Utilities.incrementField(summaryNamespace, "EventsInfo");
                     }
 
-                    arrayNode.add(objectNode);
-                    if (arrayNode.size() >= batchSize){
-                        logger.info("Sending batch of {} Event records", arrayNode.size());
-                        String payload = arrayNode.toString();
-                        arrayNode = arrayNode.removeAll();
-                        if(!payload.equals("[]")){
-                            UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                            getConfiguration().getExecutorService().execute("UploadEventData", uploadEventsTask);
-                        }
-                    }
+                    publishRecord(objectNode);
                     Globals.lastElementSelfLink = item.getMetadata().getSelfLink();
                 }
 
@@ -247,19 +251,6 @@ public class EventSnapshotRunner extends SnapshotRunnerBase {
                 }
             }
         }
-        if (arrayNode.size() > 0){
-            logger.info("Sending last batch of {} Event records", arrayNode.size());
-            String payload = arrayNode.toString();
-            arrayNode = arrayNode.removeAll();
-            if(!payload.equals("[]")){
-                UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                getConfiguration().getExecutorService().execute("UploadEventData", uploadEventsTask);
-            }
-        }
-        Globals.previousRunSelfLink = Globals.lastElementSelfLink;
-        Globals.previousRunTimestamp = Globals.lastElementTimestamp;
-
-        return arrayNode;
     }
 
     protected SummaryObj initDefaultSummaryObject(Map<String, String> config){
@@ -0,0 +1,380 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import com.appdynamics.monitors.kubernetes.RestClient;
+import com.appdynamics.monitors.kubernetes.Utilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SPOOL_FAILED_BATCHES;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SPOOL_MAX_AGE_MINUTES;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SPOOL_MAX_MB;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SPOOL_REPLAY_RATE;
+
+// Local log of the batches of one schema that could not be delivered to the Events API.
+// Batches are appended to segment files under <extension directory>/spool/<schema> and replayed in order,
+// at a limited rate, by a background thread once the endpoint accepts them again.
+// Only batches that used up their retries are spooled. New batches are still uploaded directly while the spool is
+// replayed, so the replay rate only bounds how fast the backlog drains, not the throughput of the collection.
+// Entry format: payload length (int), time of the batch (long), UTF-8 payload.
+// Payloads are written to the segment from their chunks and replayed through pooled chunks again.
+public class EventSpool {
+    private static final Logger logger = LoggerFactory.getLogger(EventSpool.class);
+    private static final long SEGMENT_BYTES = 8 * 1024 * 1024;
+    private static final int HEADER_BYTES = 12;
+    private static final int MAX_ENTRY_BYTES = 64 * 1024 * 1024;
+    private static final long DEFAULT_MAX_MB = 256;
+    private static final long DEFAULT_MAX_AGE_MINUTES = 1440;
+    private static final double DEFAULT_REPLAY_RATE = 2;
+    private static final long REPLAY_CHECK_MILLIS = 30000;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String POSITION_SUFFIX = ".pos";
+
+    private static final Map<String, EventSpool> spools = new HashMap<String, EventSpool>();
+
+    private final String name;
+    private final File dir;
+    private FileChannel writer = null;
+    private File writeSegment = null;
+    private long writeSize = 0;
+    private long nextSegment = 0;
+    //segment files on disk, kept in memory so that the backlog is known without listing the directory
+    private volatile int segmentCount = 0;
+    private long maxBytes;
+    private long maxAgeMillis;
+    private long replayIntervalMillis;
+    private URL publishUrl;
+    private String accountName;
+    private String apiKey;
+    private Map<String, String> config;
+    private Thread replayer = null;
+
+    private EventSpool(String name, File dir){
+        this.name = name;
+        this.dir = dir;
+        File[] segments = listSegments();
+        if (segments.length > 0) {
+            nextSegment = getSequence(segments[segments.length - 1]) + 1;
+            segmentCount = segments.length;
+            logger.info("Found {} spool segments of {} from a previous run", segments.length, name);
+        }
+    }
+
+    public static boolean isEnabled(Map<String, String> config){
+        String spool = config.get(CONFIG_SPOOL_FAILED_BATCHES);
+        return spool == null || spool.isEmpty() || "true".equalsIgnoreCase(spool);
+    }
+
+    //spool of the schema, null when failed batches are dropped
+    public static synchronized EventSpool get(Map<String, String> config, String schemaName){
+        if (!isEnabled(config)) {
+            return null;
+        }
+        EventSpool spool = spools.get(schemaName);
+        if (spool == null) {
+            File dir = new File(new File(Utilities.getExtensionDirectory(), "spool"), schemaName);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                logger.error("Unable to create spool directory {}. Failed batches of {} are dropped", dir, schemaName);
+                return null;
+            }
+            spool = new EventSpool(schemaName, dir);
+            spools.put(schemaName, spool);
+        }
+        spool.configure(config);
+        return spool;
+    }
+
+    public static String getSchemaName(URL publishUrl){
+        String path = publishUrl.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private synchronized void configure(Map<String, String> config){
+        this.config = config;
+        maxBytes = getLong(config, CONFIG_SPOOL_MAX_MB, DEFAULT_MAX_MB) * 1024 * 1024;
+        maxAgeMillis = getLong(config, CONFIG_SPOOL_MAX_AGE_MINUTES, DEFAULT_MAX_AGE_MINUTES) * 60 * 1000;
+        String rate = config.get(CONFIG_SPOOL_REPLAY_RATE);
+        double batchesPerSecond = rate == null || rate.isEmpty() ? DEFAULT_REPLAY_RATE : Double.parseDouble(rate.trim());
+        replayIntervalMillis = (long) (1000 / Math.max(0.01, batchesPerSecond));
+    }
+
+    //where the batches are replayed to. Starts the replay of what is already spooled
+    public synchronized void setTarget(URL publishUrl, String accountName, String apiKey){
+        this.publishUrl = publishUrl;
+        this.accountName = accountName;
+        this.apiKey = apiKey;
+        if (replayer == null) {
+            replayer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    replayLoop();
+                }
+            }, String.format("events-spool-%s", name));
+            replayer.setDaemon(true);
+            replayer.start();
+        }
+    }
+
+    //true while batches are waiting to be replayed
+    public boolean hasBacklog(){
+        return segmentCount > 0;
+    }
+
+    //the payload is not released
+    public synchronized void append(EventPayload payload) throws IOException {
+        if (payload.size() > MAX_ENTRY_BYTES) {
+            throw new IOException(String.format("Batch of %d bytes is larger than the spool entry limit", payload.size()));
+        }
+        if (writer == null || writeSize >= SEGMENT_BYTES) {
+            roll();
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt((int) payload.size()).putLong(System.currentTimeMillis());
+        header.flip();
+        while (header.hasRemaining()) {
+            writer.write(header);
+        }
+        payload.writeTo(writer);
+        writeSize += HEADER_BYTES + payload.size();
+        enforceCaps();
+    }
+
+    private void roll() throws IOException {
+        closeWriter();
+        writeSegment = new File(dir, String.format("%012d%s", nextSegment++, SEGMENT_SUFFIX));
+        if (!writeSegment.exists()) {
+            segmentCount++;
+        }
+        writer = FileChannel.open(writeSegment.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writeSize = writer.size();
+    }
+
+    private void closeWriter(){
+        if (writer != null) {
+            try {
+                writer.close();
+            }
+            catch (IOException ex){
+                logger.error("Unable to close spool segment {}", writeSegment, ex);
+            }
+        }
+        writer = null;
+        writeSegment = null;
+        writeSize = 0;
+    }
+
+    //drops the oldest segments over the size cap, and the segments older than the age cap
+    private void enforceCaps(){
+        File[] segments = listSegments();
+        long total = 0;
+        for (File segment : segments) {
+            total += segment.length();
+        }
+        long now = System.currentTimeMillis();
+        for (File segment : segments) {
+            if (segment.equals(writeSegment)) {
+                break;
+            }
+            if (total <= maxBytes && now - segment.lastModified() <= maxAgeMillis) {
+                break;
+            }
+            total -= segment.length();
+            logger.warn("Spool of {} is over its size or age limit. Dropping {}", name, segment.getName());
+            deleteSegment(segment);
+        }
+    }
+
+    private void replayLoop(){
+        while (true) {
+            try {
+                if (!replayOldestSegment()) {
+                    Thread.sleep(REPLAY_CHECK_MILLIS);
+                }
+            }
+            catch (InterruptedException ex){
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Exception ex){
+                logger.error("Replay of the {} spool failed", name, ex);
+                try {
+                    Thread.sleep(REPLAY_CHECK_MILLIS);
+                }
+                catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Sends the batches of the oldest segment, from the position reached before.
+    // Returns true when the segment was completed, false when there is nothing to replay or the endpoint is still failing
+    private boolean replayOldestSegment() throws IOException, InterruptedException {
+        File segment;
+        URL url;
+        String account;
+        String key;
+        Map<String, String> conf;
+        synchronized (this) {
+            if (!hasBacklog() || publishUrl == null) {
+                return false;
+            }
+            File[] segments = listSegments();
+            if (segments.length == 0) {
+                return false;
+            }
+            segment = segments[0];
+            if (segment.equals(writeSegment)) {
+                //only closed segments are read
+                closeWriter();
+            }
+            url = publishUrl;
+            account = accountName;
+            key = apiKey;
+            conf = config;
+        }
+        File positionFile = new File(dir, segment.getName() + POSITION_SUFFIX);
+        long position = readPosition(positionFile);
+        int sent = 0;
+        FileChannel reader = FileChannel.open(segment.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (true) {
+                header.clear();
+                if (!readFully(reader, header, position)) {
+                    break;
+                }
+                header.flip();
+                int length = header.getInt();
+                long time = header.getLong();
+                if (length < 0 || length > MAX_ENTRY_BYTES) {
+                    logger.warn("Spool segment {} of {} is corrupted at {}", segment.getName(), name, position);
+                    break;
+                }
+                ByteBuffer body = ByteBuffer.allocate(length);
+                if (!readFully(reader, body, position + HEADER_BYTES)) {
+                    logger.warn("Spool segment {} of {} ends with an incomplete batch", segment.getName(), name);
+                    break;
+                }
+                if (System.currentTimeMillis() - time <= maxAgeMillis) {
+                    EventPayload payload = new EventPayload();
+                    payload.write(body.array(), 0, length);
+                    int code;
+                    try {
+                        code = RestClient.postEvents(url, conf, account, key, payload);
+                    }
+                    finally {
+                        payload.release();
+                    }
+                    if (code == 429 || code >= 500) {
+                        writePosition(positionFile, position);
+                        logger.debug("Events API still failing with HTTP {}. {} spooled batches of {} sent", code, sent, name);
+                        return false;
+                    }
+                    if (code < 200 || code >= 300) {
+                        logger.error("Events API rejected a spooled batch of {} with HTTP {}. The batch is dropped", name, code);
+                    }
+                    sent++;
+                    Thread.sleep(replayIntervalMillis);
+                }
+                position += HEADER_BYTES + length;
+                writePosition(positionFile, position);
+            }
+        }
+        catch (IOException ex){
+            writePosition(positionFile, position);
+            logger.debug("Events API still unreachable for {}: {}", name, ex.toString());
+            return false;
+        }
+        finally {
+            reader.close();
+        }
+        logger.info("Replayed {} spooled batches of {} from {}", sent, name, segment.getName());
+        synchronized (this) {
+            deleteSegment(segment);
+        }
+        return true;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readPosition(File positionFile){
+        if (!positionFile.exists()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(positionFile.toPath()), StandardCharsets.UTF_8).trim());
+        }
+        catch (Exception ex){
+            logger.error("Unable to read spool position {}. Replaying the segment from the start", positionFile, ex);
+            return 0;
+        }
+    }
+
+    private static void writePosition(File positionFile, long position) throws IOException {
+        Files.write(positionFile.toPath(), Long.toString(position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void deleteSegment(File segment){
+        if (segment.delete()) {
+            segmentCount = Math.max(0, segmentCount - 1);
+        }
+        else if (segment.exists()) {
+            logger.error("Unable to delete spool segment {}", segment);
+        }
+        new File(dir, segment.getName() + POSITION_SUFFIX).delete();
+    }
+
+    private File[] listSegments(){
+        File[] segments = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    private static long getSequence(File segment){
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        }
+        catch (NumberFormatException ex){
+            return 0;
+        }
+    }
+
+    private static long getLong(Map<String, String> config, String key, long defaultValue){
+        String value = config.get(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Long.parseLong(value.trim());
+    }
+}
@@ -3,6 +3,9 @@ package com.appdynamics.monitors.kubernetes.SnapshotTasks;
 import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.AssertUtils;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.QuantityParser;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
 import com.appdynamics.monitors.kubernetes.Metrics.UploadMetricsTask;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
@@ -16,9 +19,6 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 
-import io.kubernetes.client.ApiClient;
-import io.kubernetes.client.Configuration;
-import io.kubernetes.client.apis.CoreV1Api;
 import io.kubernetes.client.custom.Quantity;
 import io.kubernetes.client.models.*;
 
@@ -29,7 +29,6 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.math.BigDecimal;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -38,6 +37,24 @@ import static com.appdynamics.monitors.kubernetes.Constants.*;
 import static com.appdynamics.monitors.kubernetes.Utilities.*;
 
 public class NodeSnapshotRunner extends SnapshotRunnerBase {
+    // ids of the summary counters updated for every object
+    private static final int FIELD_TAINTS_TOTAL = SummaryObj.field("TaintsTotal");
+    private static final int FIELD_MASTERS = SummaryObj.field("Masters");
+    private static final int FIELD_WORKERS = SummaryObj.field("Workers");
+    private static final int FIELD_INFRA_NODES = SummaryObj.field("InfraNodes");
+    private static final int FIELD_STORAGE_NODES = SummaryObj.field("StorageNodes");
+    private static final int FIELD_NODES = SummaryObj.field("Nodes");
+    private static final int FIELD_CAPACITY_MEMORY = SummaryObj.field("CapacityMemory");
+    private static final int FIELD_CAPACITY_CPU = SummaryObj.field("CapacityCpu");
+    private static final int FIELD_CAPACITY_PODS = SummaryObj.field("CapacityPods");
+    private static final int FIELD_ALLOCATIONS_MEMORY = SummaryObj.field("AllocationsMemory");
+    private static final int FIELD_ALLOCATIONS_CPU = SummaryObj.field("AllocationsCpu");
+    private static final int FIELD_ALLOCATIONS_PODS = SummaryObj.field("AllocationsPods");
+    private static final int FIELD_READY_NODES = SummaryObj.field("ReadyNodes");
+    private static final int FIELD_OUT_OF_DISK_NODES = SummaryObj.field("OutOfDiskNodes");
+    private static final int FIELD_MEMORY_PRESSURE_NODES = SummaryObj.field("MemoryPressureNodes");
+    private static final int FIELD_DISK_PRESSURE_NODES = SummaryObj.field("DiskPressureNodes");
+
     public NodeSnapshotRunner(){
 
     }
@@ -63,29 +80,26 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
             URL publishUrl = Utilities.ensureSchema(config, apiKey, accountName, CONFIG_SCHEMA_NAME_NODE, CONFIG_SCHEMA_DEF_NODE);
 
             try {
-                V1NodeList nodeList;
+                final ArrayNode NodeAnalytics = new ObjectMapper().createArrayNode();
 
+                beginBatches(config, CONFIG_SCHEMA_DEF_NODE, publishUrl, accountName, apiKey);
+                beginDeltas(config, CONFIG_SCHEMA_NAME_NODE, "nodeName", "phase", DeltaTracker.DELETED);
                 try {
-                    ApiClient client = Utilities.initClient(config);
-                    this.setAPIServerTimeout(client, K8S_API_TIMEOUT);
-                    Configuration.setDefaultApiClient(client);
-                    CoreV1Api api = new CoreV1Api();
-                    this.setCoreAPIServerTimeout(api, K8S_API_TIMEOUT);
-                    nodeList = api.listNode(null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null);
+                    fetchResource(config, ResourceType.NODES, new PageHandler<V1NodeList>() {
+                        @Override
+                        public void onPage(V1NodeList page) {
+                            logger.debug("Analyzing Nodes - Number of nodes: "+ page.getItems().size());
+                            NodeAnalytics.addAll(createNodePayload(page, config));
+                        }
+                    });
                 }
                 catch (Exception ex){
                     throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
                 }
-                logger.debug("Analyzing Nodes - Number of nodes: "+ nodeList.getItems().size());
-                ArrayNode NodeAnalytics = createNodePayload(nodeList, config, publishUrl, accountName, apiKey);
+                finally {
+                    flushBatches();
+                }
+                publishTombstones();
 
                 // File to read and save podRestart history
                 String nodeRolesMapFilePath = Utilities.getExtensionDirectory();
@@ -137,10 +151,10 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
                     getSummaryMap().put("NodeMetricsCollected", summaryMetrics);
                 } */
                 /* Config to get Total metrics collected */
-                SummaryObj summaryScript = getSummaryMap().get("NodeScript");
+                SummaryObj summaryScript = getSummary(Dimension.SCRIPT, "NodeScript");
                 if (summaryScript == null) {
                     summaryScript = initScriptSummaryObject(config, "Node");
-                    getSummaryMap().put("NodeScript", summaryScript);
+                    putSummary(Dimension.SCRIPT, "NodeScript", summaryScript);
                 }
 
                 Integer metrics_count = getMetricsFromSummary(getSummaryMap(), config).size();
@@ -167,46 +181,44 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
         }
     }
 
-     ArrayNode createNodePayload(V1NodeList nodeList, Map<String, String> config, URL publishUrl, String accountName, String apiKey) {
+     ArrayNode createNodePayload(V1NodeList nodeList, Map<String, String> config) {
         ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
         ArrayNode arrayNodeResult = mapper.createArrayNode();
 
-        long batchSize = Long.parseLong(config.get(CONFIG_RECS_BATCH_SIZE));
 
-        SummaryObj summaryWorker = getSummaryMap().get("Workers");
+        SummaryObj summaryWorker = getSummary(Dimension.ROLE, "Workers");
         if (summaryWorker == null) {
             summaryWorker = initNodeSummaryObject(config, "Workers");
-            getSummaryMap().put("Workers", summaryWorker);
+            putSummary(Dimension.ROLE, "Workers", summaryWorker);
         }
 
-        SummaryObj summaryMaster = getSummaryMap().get("Masters");
+        SummaryObj summaryMaster = getSummary(Dimension.ROLE, "Masters");
         if (summaryMaster == null) {
             summaryMaster = initNodeSummaryObject(config, "Masters");
-            getSummaryMap().put("Masters", summaryMaster);
+            putSummary(Dimension.ROLE, "Masters", summaryMaster);
         }
 
         for(V1Node nodeObj : nodeList.getItems()) {
-            ObjectNode nodeObject = mapper.createObjectNode();
+            EventRecord nodeObject = newRecord();
             String nodeName = nodeObj.getMetadata().getName();
             nodeObject = checkAddObject(nodeObject, nodeName, "nodeName");
             String clusterName = Utilities.ensureClusterName(config, nodeObj.getMetadata().getClusterName());
 
-            SummaryObj summary = getSummaryMap().get(ALL);
+            SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
             if (summary == null) {
                 summary = initNodeSummaryObject(config, ALL);
-                getSummaryMap().put(ALL, summary);
+                putSummary(Dimension.CLUSTER, ALL, summary);
             }
 
             
 
-            SummaryObj summaryNode = getSummaryMap().get(nodeName);
+            SummaryObj summaryNode = getSummary(Dimension.NODE, nodeName);
             logger.debug("Should collect metrics for node %s ?", nodeName);
             if(Utilities.shouldCollectMetricsForNode(getConfiguration(), nodeName)) {
                 logger.debug("Yes, should collect");
                 if (summaryNode == null) {
                     summaryNode = initNodeSummaryObject(config, nodeName);
-                    getSummaryMap().put(nodeName, summaryNode);
+                    putSummary(Dimension.NODE, nodeName, summaryNode);
                 }
             }else{
                 logger.debug("No shouldn't collect");
@@ -224,7 +236,7 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
                 }
             }
             nodeObject = checkAddObject(nodeObject, taints, "taints");
-            Utilities.incrementField(summary, "TaintsTotal");
+            Utilities.incrementField(summary, FIELD_TAINTS_TOTAL);
 
             nodeObject = checkAddObject(nodeObject, nodeObj.getStatus().getPhase(), "phase");
             String addresses = "";
@@ -263,7 +275,6 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
                         isWorker = true;
                     }
                     labels += String.format("%s:%s;", pair.getKey(), pair.getValue());
-                    it.remove();
                 }
                 nodeObject = checkAddObject(nodeObject, labels, "labels");
             }
@@ -285,11 +296,11 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
             }
 
 
-            Utilities.incrementField(summary, "Masters", masters);
-            Utilities.incrementField(summary, "Workers", workers);
-            Utilities.incrementField(summary, "InfraNodes", infras);
-            Utilities.incrementField(summary, "StorageNodes", storages);
-            Utilities.incrementField(summary, "Nodes", 1);
+            Utilities.incrementField(summary, FIELD_MASTERS, masters);
+            Utilities.incrementField(summary, FIELD_WORKERS, workers);
+            Utilities.incrementField(summary, FIELD_INFRA_NODES, infras);
+            Utilities.incrementField(summary, FIELD_STORAGE_NODES, storages);
+            Utilities.incrementField(summary, FIELD_NODES, 1);
 
             
 
@@ -297,36 +308,36 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
                 Set<Map.Entry<String, Quantity>> set = nodeObj.getStatus().getCapacity().entrySet();
                 for (Map.Entry<String, Quantity> s : set) {
                     if (s.getKey().equals("memory")) {
-                        float val = s.getValue().getNumber().divide(new BigDecimal(1000000)).floatValue(); //MB
+                        float val = QuantityParser.toMegabytes(s.getValue()); //MB
                         nodeObject = checkAddFloat(nodeObject, val, "memCapacity");
-                        Utilities.incrementField(summaryNode, "CapacityMemory", val);
-                        Utilities.incrementField(summary, "CapacityMemory", val);
+                        Utilities.incrementField(summaryNode, FIELD_CAPACITY_MEMORY, val);
+                        Utilities.incrementField(summary, FIELD_CAPACITY_MEMORY, val);
                         if (isMaster) {
-                            Utilities.incrementField(summaryMaster, "CapacityMemory", val);
+                            Utilities.incrementField(summaryMaster, FIELD_CAPACITY_MEMORY, val);
                         } else if (isWorker) {
-                            Utilities.incrementField(summaryWorker, "CapacityMemory", val);
+                            Utilities.incrementField(summaryWorker, FIELD_CAPACITY_MEMORY, val);
                         }
                     }
                     if (s.getKey().equals("cpu")) {
-                        float val = s.getValue().getNumber().floatValue();
+                        float val = QuantityParser.toUnits(s.getValue());
                         nodeObject = checkAddFloat(nodeObject, val, "cpuCapacity");
-                        Utilities.incrementField(summaryNode, "CapacityCpu", val);
-                        Utilities.incrementField(summary, "CapacityCpu", val);
+                        Utilities.incrementField(summaryNode, FIELD_CAPACITY_CPU, val);
+                        Utilities.incrementField(summary, FIELD_CAPACITY_CPU, val);
                         if (isMaster) {
-                            Utilities.incrementField(summaryMaster, "CapacityCpu", val);
+                            Utilities.incrementField(summaryMaster, FIELD_CAPACITY_CPU, val);
                         } else if (isWorker) if (isWorker) {
-                            Utilities.incrementField(summaryWorker, "CapacityCpu", val);
+                            Utilities.incrementField(summaryWorker, FIELD_CAPACITY_CPU, val);
                         }
                     }
                     if (s.getKey().equals("pods")) {
-                        int val = s.getValue().getNumber().intValueExact();
+                        int val = (int) (QuantityParser.toMilli(s.getValue()) / 1000);
                         nodeObject = checkAddInt(nodeObject, val, "podCapacity");
-                        Utilities.incrementField(summaryNode, "CapacityPods", val);
-                        Utilities.incrementField(summary, "CapacityPods", val);
+                        Utilities.incrementField(summaryNode, FIELD_CAPACITY_PODS, val);
+                        Utilities.incrementField(summary, FIELD_CAPACITY_PODS, val);
                         if (isMaster) {
-                            Utilities.incrementField(summaryMaster, "CapacityPods", val);
+                            Utilities.incrementField(summaryMaster, FIELD_CAPACITY_PODS, val);
                         } else if (isWorker) {
-                            Utilities.incrementField(summaryWorker, "CapacityPods", val);
+                            Utilities.incrementField(summaryWorker, FIELD_CAPACITY_PODS, val);
                         }
                     }
                 }
@@ -336,35 +347,35 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
                 Set<Map.Entry<String, Quantity>> setAll = nodeObj.getStatus().getAllocatable().entrySet();
                 for (Map.Entry<String, Quantity> s : setAll) {
                     if (s.getKey().equals("memory")) {
-                        float val = s.getValue().getNumber().divide(new BigDecimal(1000000)).floatValue(); //MB
+                        float val = QuantityParser.toMegabytes(s.getValue()); //MB
                         nodeObject = checkAddFloat(nodeObject, val, "memAllocations");
-                        Utilities.incrementField(summaryNode, "AllocationsMemory", val);
-                        Utilities.incrementField(summary, "AllocationsMemory", val);
+                        Utilities.incrementField(summaryNode, FIELD_ALLOCATIONS_MEMORY, val);
+                        Utilities.incrementField(summary, FIELD_ALLOCATIONS_MEMORY, val);
                         if (isMaster) {
-                            Utilities.incrementField(summaryMaster, "AllocationsMemory", val);
+                            Utilities.incrementField(summaryMaster, FIELD_ALLOCATIONS_MEMORY, val);
                         } else if (isWorker) {
-                            Utilities.incrementField(summaryWorker, "AllocationsMemory", val);
+                            Utilities.incrementField(summaryWorker, FIELD_ALLOCATIONS_MEMORY, val);
                         }
                     }
                     if (s.getKey().equals("cpu")) {
-                        float val = s.getValue().getNumber().floatValue();
+                        float val = QuantityParser.toUnits(s.getValue());
                         nodeObject = checkAddFloat(nodeObject, val, "cpuAllocations");
-                        Utilities.incrementField(summaryNode, "AllocationsCpu", val*1000);
-                        Utilities.incrementField(summary, "AllocationsCpu", val*1000);
+                        Utilities.incrementField(summaryNode, FIELD_ALLOCATIONS_CPU, val*1000);
+                        Utilities.incrementField(summary, FIELD_ALLOCATIONS_CPU, val*1000);
                         if (isMaster) {
-                            Utilities.incrementField(summaryMaster, "AllocationsCpu", val*1000);
+                            Utilities.incrementField(summaryMaster, FIELD_ALLOCATIONS_CPU, val*1000);
                         } else if (isWorker) {
-                            Utilities.incrementField(summaryWorker, "AllocationsCpu", val*1000);
+                            Utilities.incrementField(summaryWorker, FIELD_ALLOCATIONS_CPU, val*1000);
                         }
                     }
                     if (s.getKey().equals("pods")) {
-                        int val = s.getValue().getNumber().intValueExact();
+                        int val = (int) (QuantityParser.toMilli(s.getValue()) / 1000);
                         nodeObject = checkAddInt(nodeObject, val , "podAllocations");
-                        Utilities.incrementField(summary, "AllocationsPods", val);
+                        Utilities.incrementField(summary, FIELD_ALLOCATIONS_PODS, val);
                         if (isMaster) {
-                            Utilities.incrementField(summaryMaster, "AllocationsPods", val);
+                            Utilities.incrementField(summaryMaster, FIELD_ALLOCATIONS_PODS, val);
                         } else if (isWorker) {
-                            Utilities.incrementField(summaryWorker, "AllocationsPods", val);
+                            Utilities.incrementField(summaryWorker, FIELD_ALLOCATIONS_PODS, val);
                         }
                     }
                 }
@@ -404,14 +415,14 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
                         String status = condition.getStatus();
                         nodeObject = checkAddObject(nodeObject, status, "ready");
                         if (status.toLowerCase().equals("true")) {
-                            Utilities.incrementField(summary, "ReadyNodes");
+                            Utilities.incrementField(summary, FIELD_READY_NODES);
                         }
                     }
                     if (condition.getType().equals("OutOfDisk")) {
                         String status = condition.getStatus();
                         nodeObject = checkAddObject(nodeObject, status, "outOfDisk");
                         if (status.toLowerCase().equals("true")) {
-                            Utilities.incrementField(summary, "OutOfDiskNodes");
+                            Utilities.incrementField(summary, FIELD_OUT_OF_DISK_NODES);
                         }
                     }
 
@@ -419,7 +430,7 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
                         String status = condition.getStatus();
                         nodeObject = checkAddObject(nodeObject, status, "memoryPressure");
                         if (status.toLowerCase().equals("true")) {
-                            Utilities.incrementField(summary, "MemoryPressureNodes");
+                            Utilities.incrementField(summary, FIELD_MEMORY_PRESSURE_NODES);
                         }
                     }
 
@@ -427,40 +438,16 @@ public class NodeSnapshotRunner extends SnapshotRunnerBase {
                         String status = condition.getStatus();
                         nodeObject = checkAddObject(nodeObject, status, "diskPressure");
                         if (status.toLowerCase().equals("true")) {
-                            Utilities.incrementField(summary, "DiskPressureNodes");
+                            Utilities.incrementField(summary, FIELD_DISK_PRESSURE_NODES);
                         }
                     }
                 }
             }
 
-            arrayNode.add(nodeObject);
-            logger.debug("Number of nodes collected: "+arrayNode.size()+" and BatchSize: "+batchSize);
-            if (arrayNode.size() >= batchSize){
-                logger.info("Sending batch of {} Node records", arrayNode.size());
-                String payload = arrayNode.toString();
-                for (JsonNode jsonNode : arrayNode) {
-                    arrayNodeResult.add(jsonNode);
-                }
-                arrayNode = arrayNode.removeAll();
-                if(!payload.equals("[]")){
-                    UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                    getConfiguration().getExecutorService().execute("UploadNodeData", uploadEventsTask);
-                }
-            }
+            //all nodes are returned for the roles file, only the changed ones are published
+            arrayNodeResult.add(nodeObject.toObjectNode());
+            publishRecord(nodeObject);
         }
-        logger.debug("Number of nodes collected: "+arrayNode.size()+" and BatchSize: "+batchSize);
-         if (arrayNode.size() > 0){
-             logger.info("Sending last batch of {} Node records", arrayNode.size());
-             String payload = arrayNode.toString();
-             for (JsonNode jsonNode : arrayNode) {
-                arrayNodeResult.add(jsonNode);
-             }
-             arrayNode = arrayNode.removeAll();
-             if(!payload.equals("[]")){
-                 UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                 getConfiguration().getExecutorService().execute("UploadNodeData", uploadEventsTask);
-             }
-         }
 
         return arrayNodeResult;
     }
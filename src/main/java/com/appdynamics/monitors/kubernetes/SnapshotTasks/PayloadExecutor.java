@@ -0,0 +1,73 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+// Fork-join pool building the payloads of large pages in parallel.
+// The pool is shared by all runners and kept across collection cycles.
+public class PayloadExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(PayloadExecutor.class);
+
+    private static ForkJoinPool pool = null;
+
+    public interface ChunkHandler {
+        void onChunk(int chunk);
+    }
+
+    public static int getDefaultParallelism(){
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    //runs the handler once for every chunk index and waits for all of them
+    public static void forEachChunk(int parallelism, int chunks, ChunkHandler handler){
+        getPool(parallelism).invoke(new ChunkTask(handler, 0, chunks));
+    }
+
+    private static synchronized ForkJoinPool getPool(int parallelism){
+        int size = Math.max(1, parallelism);
+        if (pool == null || pool.getParallelism() != size) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            logger.info("Starting payload pool with {} threads", size);
+            pool = new ForkJoinPool(size, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                @Override
+                public ForkJoinWorkerThread newThread(ForkJoinPool forkJoinPool) {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+                    thread.setName(String.format("payload-%d", thread.getPoolIndex()));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, null, false);
+        }
+        return pool;
+    }
+
+    //splits the chunk range in halves until single chunks are left
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final ChunkHandler handler;
+        private final int from;
+        private final int to;
+
+        ChunkTask(ChunkHandler handler, int from, int to){
+            this.handler = handler;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                handler.onChunk(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(handler, from, middle), new ChunkTask(handler, middle, to));
+        }
+    }
+}
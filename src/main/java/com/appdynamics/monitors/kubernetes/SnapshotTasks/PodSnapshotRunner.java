@@ -3,6 +3,9 @@ package com.appdynamics.monitors.kubernetes.SnapshotTasks;
 import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.AssertUtils;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.QuantityParser;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
 import com.appdynamics.monitors.kubernetes.Metrics.UploadMetricsTask;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
@@ -10,13 +13,9 @@ import com.appdynamics.monitors.kubernetes.Models.NodeRole;
 import com.appdynamics.monitors.kubernetes.RestClient;
 import com.appdynamics.monitors.kubernetes.Utilities;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 
-import io.kubernetes.client.ApiClient;
-import io.kubernetes.client.Configuration;
-import io.kubernetes.client.apis.CoreV1Api;
 import io.kubernetes.client.custom.Quantity;
 import io.kubernetes.client.models.*;
 import io.sundr.shaded.org.apache.velocity.runtime.log.Log;
@@ -25,32 +24,54 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Array;
-import java.math.BigDecimal;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 
-import java.io.FileWriter;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 import static com.appdynamics.monitors.kubernetes.Constants.*;
 import static com.appdynamics.monitors.kubernetes.Utilities.*;
 
 public class PodSnapshotRunner extends SnapshotRunnerBase {
+    // ids of the summary counters updated for every object
+    private static final int FIELD_NAMESPACES_RUNNING = SummaryObj.field("NamespacesRunning");
+    private static final int FIELD_PODS = SummaryObj.field("Pods");
+    private static final int FIELD_CONTAINERS = SummaryObj.field("Containers");
+    private static final int FIELD_INIT_CONTAINERS = SummaryObj.field("InitContainers");
+    private static final int FIELD_TOLERATIONS_COUNT = SummaryObj.field("TolerationsCount");
+    private static final int FIELD_HAS_NODE_AFFINITY = SummaryObj.field("HasNodeAffinity");
+    private static final int FIELD_HAS_POD_AFFINITY = SummaryObj.field("HasPodAffinity");
+    private static final int FIELD_HAS_POD_ANTI_AFFINITY = SummaryObj.field("HasPodAntiAffinity");
+    private static final int FIELD_PENDING_PODS = SummaryObj.field("PendingPods");
+    private static final int FIELD_FAILED_PODS = SummaryObj.field("FailedPods");
+    private static final int FIELD_RUNNING_PODS = SummaryObj.field("RunningPods");
+    private static final int FIELD_EVICTIONS = SummaryObj.field("Evictions");
+    private static final int FIELD_POD_RESTARTS = SummaryObj.field("PodRestarts");
+    private static final int FIELD_REQUEST_CPU = SummaryObj.field("RequestCpu");
+    private static final int FIELD_REQUEST_MEMORY = SummaryObj.field("RequestMemory");
+    private static final int FIELD_LIMIT_CPU = SummaryObj.field("LimitCpu");
+    private static final int FIELD_LIMIT_MEMORY = SummaryObj.field("LimitMemory");
+    private static final int FIELD_NO_LIVENESS_PROBE = SummaryObj.field("NoLivenessProbe");
+    private static final int FIELD_NO_READINESS_PROBE = SummaryObj.field("NoReadinessProbe");
+    private static final int FIELD_PRIVILEGED = SummaryObj.field("Privileged");
+    private static final int FIELD_NO_LIMITS = SummaryObj.field("NoLimits");
+
+
+    // Variable to count namespaces across all pages of the pod list
+    private final ConcurrentHashMap<String, Integer> namespaces = new ConcurrentHashMap<String, Integer>();
+    private Map<String,String> nodeRoles = null;
+    // Last restart counts of the containers, null when the pods are not listed by a full cycle
+    private RestartStateStore restartStore = null;
 
     public PodSnapshotRunner(){
 
@@ -81,38 +102,32 @@ public class PodSnapshotRunner extends SnapshotRunnerBase {
             final URL publishUrl = Utilities.ensureSchema(config, apiKey, accountName,CONFIG_SCHEMA_NAME_POD, CONFIG_SCHEMA_DEF_POD);
 
             try {
-                V1PodList podList;
-
+                beginBatches(config, CONFIG_SCHEMA_DEF_POD, publishUrl, accountName, apiKey);
+                beginDeltas(config, CONFIG_SCHEMA_NAME_POD, "object_uid", "deletionTimestamp", null);
+                restartStore = RestartStateStore.get();
+                restartStore.beginCycle();
                 try {
-                    final ApiClient client = Utilities.initClient(config);
-                    this.setAPIServerTimeout(client, K8S_API_TIMEOUT);
-                    Configuration.setDefaultApiClient(client);
-                    final CoreV1Api api = new CoreV1Api();
-
-                    this.setCoreAPIServerTimeout(api, K8S_API_TIMEOUT);
-                    podList = api.listPodForAllNamespaces(null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null);
+                    fetchResource(config, ResourceType.PODS, new PageHandler<V1PodList>() {
+                        @Override
+                        public void onPage(V1PodList page) {
+                            createPodPayload(page, config);
+                        }
+                    });
                 }
                 catch (final Exception ex){
                     throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
                 }
+                finally {
+                    flushBatches();
+                }
+                publishTombstones();
+                restartStore.endCycle();
 
-                createPodPayload(podList, config, publishUrl, accountName, apiKey);
-
-                
-                
                 /* Config to get Total metrics collected */
-                SummaryObj summaryScript = getSummaryMap().get("PodScript");
+                SummaryObj summaryScript = getSummary(Dimension.SCRIPT, "PodScript");
                 if (summaryScript == null) {
                     summaryScript = initScriptSummaryObject(config, "Pod");
-                    getSummaryMap().put("PodScript", summaryScript);
+                    putSummary(Dimension.SCRIPT, "PodScript", summaryScript);
                 }
 
 
@@ -122,122 +137,12 @@ public class PodSnapshotRunner extends SnapshotRunnerBase {
 
                 /* End config Summary Metrics */
 
-                // Pod Restart fix 
-
-                // File to read and save podRestart history
-                final String podHistoryPath = Utilities.getExtensionDirectory();
-
-                //final File podHistoryFile = new File(podHistoryPath+"/"+"history.tmp");
-
-                //logger.info("History file: " + podHistoryFile);
-                
-                //JSON parser object to parse read file
-                final JSONParser jsonParser = new JSONParser();
-                Integer podRestartsSum = 0;
-                Integer clusterPodRestarts = 0;
-                final Integer nodepodRestartsSum = 0;
-                final Integer namespacepodRestartsSum = 0;
-                Integer podRestartsHist = 0;
-
-                final boolean historyExist = true; //podHistoryFile.exists();
-                final String podHistoryFile = podHistoryPath+"/"+"history.tmp";
-                if(historyExist){
-                    //try (InputStream inputStream = this.getClass().getResourceAsStream(podHistoryFile)) 
-                    try (InputStream inputStream = new FileInputStream(new File(podHistoryFile)))
-                    {
-                        // To String
-                        //creating an InputStreamReader object
-                        final InputStreamReader isReader = new InputStreamReader(inputStream);
-                        //Creating a BufferedReader object
-                        final BufferedReader reader = new BufferedReader(isReader);
-                        final StringBuffer sb = new StringBuffer();
-                        String str;
-                        while((str = reader.readLine())!= null){
-                            sb.append(str);
-                        }
-                        
-                        //Read JSON file
-                        final Object obj = jsonParser.parse(sb.toString());
-                        final JSONObject podRestartHistoryJson = (JSONObject) obj;
-                        logger.debug("History PodRestarts:"+(String) podRestartHistoryJson.get("podRestarts").toString());
-                        final Integer podRestartHistory = (Integer) Math.toIntExact((Long) podRestartHistoryJson.get("podRestarts"));
-                        podRestartsHist = podRestartHistory;
-                        reader.close();
-                        inputStream.close();
-                        isReader.close();
-                        logger.info("File "+podHistoryFile+" loaded with success");
-                        logger.debug("History PodRestarts Converted to integer:"+ podRestartsHist.toString());
-                        
-                    } catch (final FileNotFoundException e) {
-                        podRestartsHist = 0;
-                        logger.error("NotFound - Issues when reading podRestart History file: "+podHistoryFile, e.getMessage());
-                        logger.info("Sending PodRestarts as 0 because PodRestarts history file doesn't exist and it will be created");
-                    } catch (final IOException e) {
-                        podRestartsHist = 0;
-                        logger.error("IOException - Issues when reading podRestart History file: "+podHistoryFile, e.getMessage());
-                        logger.info("Sending PodRestarts as 0 because of IOException");
-                    } catch (final ParseException e) {
-                        podRestartsHist = 0;
-                        logger.error("ParseException - Issues when reading podRestart History file: "+podHistoryFile, e.getMessage());
-                        logger.info("Sending PodRestarts as 0 because Could not parse the file, please delete the file "+podHistoryFile+" if its corrupt");
-                    } catch (final Exception e){
-                        podRestartsHist = 0;
-                        logger.error("Exception - Issues when reading podRestart History file: "+podHistoryFile, e.getMessage());
-                        logger.info(e.getLocalizedMessage());
-                        e.printStackTrace();
-                    }
-                }
-                //Save and Add PodRestarts history file
-
-
-
-                SummaryObj summary = getSummaryMap().get(ALL);
-                //SummaryObj summaryNamespace = getSummaryMap().get(ALL);
-                //SummaryObj summaryNode = getSummaryMap().get(ALL);
+                SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
                 if (summary == null) {
                     summary = initPodSummaryObject(config, ALL, ALL);
-                    getSummaryMap().put(ALL, summary);
-                }else{
-                    try {
-                        podRestartsSum = summary.getData().get("PodRestarts").intValue();
-                    } catch (final Exception e) {
-                        podRestartsSum = 0;
-                    }
-                    
-                }
-                logger.debug("Pod Sum Restarts"+podRestartsSum+" - "+"Pod History Sum Restarts"+podRestartsHist.toString());
-                if (podRestartsHist > 0 && podRestartsSum > 0 && podRestartsSum >= podRestartsHist) {
-                    clusterPodRestarts = podRestartsSum - podRestartsHist;
-                }
-                else{
-                    clusterPodRestarts = 0;
-                }
-
-                Utilities.decrementField(summary, "PodRestarts", podRestartsHist);
-
-                /* CPU and Memory Request Summary */
-
-
-
-                /* END CPU and Memory Request Summary */
-
-
-                final JSONObject clusterHistory = new JSONObject();
-                clusterHistory.put("podRestarts", podRestartsSum);
-                
-                try (FileWriter file = new FileWriter(podHistoryFile)) {
-
-                    file.write(clusterHistory.toJSONString());
-                    file.flush();
-                    file.close();
-                    logger.info("File "+podHistoryFile+" saved with success!");
-
-                } catch (final IOException e) {
-                    logger.error("Issues when saving podRestart History file", e.getMessage());
+                    putSummary(Dimension.CLUSTER, ALL, summary);
                 }
 
-                // End Save History
-
                 //build and update metrics
                 final List<Metric> metricList = getMetricsFromSummary(getSummaryMap(), config);
 
@@ -256,504 +161,495 @@ public class PodSnapshotRunner extends SnapshotRunnerBase {
         }
     }
 
-     ArrayNode createPodPayload(final V1PodList podList, final Map<String, String> config, final URL publishUrl, final String accountName, final String apiKey){
+     void createPodPayload(final V1PodList podList, final Map<String, String> config){
         final ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
-        
-        // Read historical Node rol//es
-        
-        Map<String,String> mapNodes = new HashMap<String,String>();
-        try {
-   
-            // convert JSON file to map
-            mapNodes = mapper.readValue(Paths.get(Utilities.getExtensionDirectory()+"/nodes.roles").toFile(), HashMap.class);
-            logger.info("Successfull reading the historical node roles");
-            //List<NodeRole> nodesRoles = Arrays.asList(mapper.readValue(Paths.get("nodes.roles").toFile(), NodeRole[].class));
         
-        } catch (final Exception ex) {
-            logger.error("Fail reading the historical node roles - maybe it is the first time");
-            logger.error(ex.getMessage());
-        }
+        // Read historical Node roles once per run, the payload is built page by page
+        final Map<String,String> mapNodes = getNodeRoles(mapper);
 
-        final long batchSize = Long.parseLong(config.get(CONFIG_RECS_BATCH_SIZE));
         
-        // Variable to count namespaces
-        final HashMap<String, Integer> namespaces = new HashMap<String, Integer>();
 
         
 
         
         
 
-        for(final V1Pod podItem : podList.getItems()){
+        forEachItem(config, podList.getItems(), new PayloadItemHandler<V1Pod>() {
+            @Override
+            public void onItem(V1Pod podItem) {
 
-            ObjectNode podObject = mapper.createObjectNode();
-            final String namespace = podItem.getMetadata().getNamespace();
-            final String nodeName = podItem.getSpec().getNodeName();
+                    EventRecord podObject = newRecord();
+                    final String namespace = podItem.getMetadata().getNamespace();
+                    final String nodeName = podItem.getSpec().getNodeName();
 
-            // Get Role Name if exist
-            String Role = "";
+                    // Get Role Name if exist
+                    String Role = "";
 
-            try {
-                Role = mapNodes.get(nodeName);
-                logger.info("Role mapped: "+Role);
-            } catch (final Exception e) {
-                logger.info("Fail map role for node: "+nodeName);
-                logger.error(e.getMessage());
-            }
+                    try {
+                        Role = mapNodes.get(nodeName);
+                        logger.info("Role mapped: "+Role);
+                    } catch (final Exception e) {
+                        logger.info("Fail map role for node: "+nodeName);
+                        logger.error(e.getMessage());
+                    }
 
-            namespaces.putIfAbsent(namespace, 0);
-            namespaces.put(namespace, namespaces.get(namespace) + 1);
+                    if (namespace != null) {
+                        namespaces.merge(namespace, 1, Integer::sum);
+                    }
 
-            if (namespace == null || namespace.isEmpty()){
-                logger.info(String.format("Pod %s missing namespace attribution", podItem.getMetadata().getName()));
-            }
+                    if (namespace == null || namespace.isEmpty()){
+                        logger.info(String.format("Pod %s missing namespace attribution", podItem.getMetadata().getName()));
+                    }
 
-            if (nodeName == null || nodeName.isEmpty()){
-                logger.info(String.format("Pod %s missing node attribution", podItem.getMetadata().getName()));
-            }
+                    if (nodeName == null || nodeName.isEmpty()){
+                        logger.info(String.format("Pod %s missing node attribution", podItem.getMetadata().getName()));
+                    }
 
-            final String clusterName = Utilities.ensureClusterName(config, podItem.getMetadata().getClusterName());
+                    final String clusterName = Utilities.ensureClusterName(config, podItem.getMetadata().getClusterName());
 
-            SummaryObj summary = getSummaryMap().get(ALL);
-            if (summary == null) {
-                summary = initPodSummaryObject(config, ALL, ALL);
-                getSummaryMap().put(ALL, summary);
-            }
+                    SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
+                    if (summary == null) {
+                        summary = initPodSummaryObject(config, ALL, ALL);
+                        putSummary(Dimension.CLUSTER, ALL, summary);
+                    }
 
-            SummaryObj summaryNamespace = getSummaryMap().get(namespace);
-            if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
-                if (summaryNamespace == null) {
-                    summaryNamespace = initPodSummaryObject(config, namespace, ALL);
-                    getSummaryMap().put(namespace, summaryNamespace);
-                }
-            }
+                    SummaryObj summaryNamespace = getSummary(Dimension.NAMESPACE, namespace);
+                    if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
+                        if (summaryNamespace == null) {
+                            summaryNamespace = initPodSummaryObject(config, namespace, ALL);
+                            putSummary(Dimension.NAMESPACE, namespace, summaryNamespace);
+                        }
+                    }
 
-            SummaryObj summaryNode = getSummaryMap().get(nodeName);
-            if (Utilities.shouldCollectMetricsForNode(getConfiguration(), nodeName)) {
-                if (summaryNode == null) {
-                    summaryNode = initPodSummaryObject(config, ALL, nodeName);
-                    getSummaryMap().put(nodeName, summaryNode);
-                }
-            }
+                    SummaryObj summaryNode = getSummary(Dimension.NODE, nodeName);
+                    if (Utilities.shouldCollectMetricsForNode(getConfiguration(), nodeName)) {
+                        if (summaryNode == null) {
+                            summaryNode = initPodSummaryObject(config, ALL, nodeName);
+                            putSummary(Dimension.NODE, nodeName, summaryNode);
+                        }
+                    }
             
-            SummaryObj summaryRole= getSummaryMap().get(Role);
-            if (Role != "") {
-                if (summaryRole == null) {
-                    summaryRole = initPodSummaryObject(config, ALL, Role);
-                    getSummaryMap().put(Role, summaryRole);
-                }
-            }
-            final Integer totalNamespaces =  namespaces.entrySet().size();
-            logger.debug("Namespaces : "+totalNamespaces);
-            Utilities.setField(summary, "NamespacesRunning", totalNamespaces);
-            Utilities.incrementField(summary, "Pods");
-            Utilities.incrementField(summaryNamespace, "Pods");
-            Utilities.incrementField(summaryNode, "Pods");
-            if (Role != "") {
-                Utilities.incrementField(summaryRole, "Pods");
-            }
-
-            podObject = checkAddObject(podObject, podItem.getMetadata().getUid(), "object_uid");
-
-            podObject = checkAddObject(podObject, clusterName, "clusterName");
-            podObject = checkAddObject(podObject, podItem.getMetadata().getCreationTimestamp(), "creationTimestamp");
-            podObject = checkAddObject(podObject, podItem.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
+                    SummaryObj summaryRole= getSummary(Dimension.ROLE, Role);
+                    if (Role != "") {
+                        if (summaryRole == null) {
+                            summaryRole = initPodSummaryObject(config, ALL, Role);
+                            putSummary(Dimension.ROLE, Role, summaryRole);
+                        }
+                    }
+                    final Integer totalNamespaces =  namespaces.entrySet().size();
+                    logger.debug("Namespaces : "+totalNamespaces);
+                    Utilities.setField(summary, FIELD_NAMESPACES_RUNNING, totalNamespaces);
+                    Utilities.incrementField(summary, FIELD_PODS);
+                    Utilities.incrementField(summaryNamespace, FIELD_PODS);
+                    Utilities.incrementField(summaryNode, FIELD_PODS);
+                    if (Role != "") {
+                        Utilities.incrementField(summaryRole, FIELD_PODS);
+                    }
 
-            if (podItem.getMetadata().getLabels() != null) {
-                String labels = "";
-                final Iterator it = podItem.getMetadata().getLabels().entrySet().iterator();
-                while (it.hasNext()) {
-                    final Map.Entry pair = (Map.Entry)it.next();
-                    labels += String.format("%s:%s;", pair.getKey(), pair.getValue());
-                    it.remove();
-                }
-                podObject = checkAddObject(podObject, labels, "labels");
-            }
+                    podObject = checkAddObject(podObject, podItem.getMetadata().getUid(), "object_uid");
 
-            if (podItem.getMetadata().getAnnotations() != null){
-                String annotations = "";
-                final Iterator it = podItem.getMetadata().getAnnotations().entrySet().iterator();
-                while (it.hasNext()) {
-                    final Map.Entry pair = (Map.Entry)it.next();
-                    annotations += String.format("%s:%s;", pair.getKey(), pair.getValue());
-                    it.remove();
-                }
-                podObject = checkAddObject(podObject, annotations, "annotations");
-            }
+                    podObject = checkAddObject(podObject, clusterName, "clusterName");
+                    podObject = checkAddObject(podObject, podItem.getMetadata().getCreationTimestamp(), "creationTimestamp");
+                    podObject = checkAddObject(podObject, podItem.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
 
-            podObject = checkAddObject(podObject, podItem.getMetadata().getName(), "name");
-            podObject = checkAddObject(podObject, namespace, "namespace");
+                    if (podItem.getMetadata().getLabels() != null) {
+                        String labels = "";
+                        final Iterator it = podItem.getMetadata().getLabels().entrySet().iterator();
+                        while (it.hasNext()) {
+                            final Map.Entry pair = (Map.Entry)it.next();
+                            labels += String.format("%s:%s;", pair.getKey(), pair.getValue());
+                        }
+                        podObject = checkAddObject(podObject, labels, "labels");
+                    }
 
-            final int containerCount = podItem.getSpec().getContainers() != null ? podItem.getSpec().getContainers().size() : 0;
-            podObject = checkAddInt(podObject, containerCount, "containerCount");
+                    if (podItem.getMetadata().getAnnotations() != null){
+                        String annotations = "";
+                        final Iterator it = podItem.getMetadata().getAnnotations().entrySet().iterator();
+                        while (it.hasNext()) {
+                            final Map.Entry pair = (Map.Entry)it.next();
+                            annotations += String.format("%s:%s;", pair.getKey(), pair.getValue());
+                        }
+                        podObject = checkAddObject(podObject, annotations, "annotations");
+                    }
 
-            if (containerCount > 0) {
-                Utilities.incrementField(summary, "Containers", containerCount);
-                Utilities.incrementField(summaryNamespace, "Containers", containerCount);
-                Utilities.incrementField(summaryNode, "Containers", containerCount);
-                if (Role != "") {
-                    Utilities.incrementField(summaryRole, "Containers", containerCount);
-                }
-            }
+                    podObject = checkAddObject(podObject, podItem.getMetadata().getName(), "name");
+                    podObject = checkAddObject(podObject, namespace, "namespace");
 
-            final int initContainerCount = podItem.getSpec().getInitContainers() != null ? podItem.getSpec().getInitContainers().size() : 0;
-            podObject = checkAddInt(podObject, initContainerCount, "initContainerCount");
+                    final int containerCount = podItem.getSpec().getContainers() != null ? podItem.getSpec().getContainers().size() : 0;
+                    podObject = checkAddInt(podObject, containerCount, "containerCount");
 
-            if (initContainerCount > 0) {
-                Utilities.incrementField(summary, "InitContainers", initContainerCount);
-                Utilities.incrementField(summaryNamespace, "InitContainers", initContainerCount);
-                Utilities.incrementField(summaryNode, "InitContainers", initContainerCount);
-                if (Role != "") {
-                    Utilities.incrementField(summaryRole, "InitContainers", initContainerCount);
-                }
-            }
+                    if (containerCount > 0) {
+                        Utilities.incrementField(summary, FIELD_CONTAINERS, containerCount);
+                        Utilities.incrementField(summaryNamespace, FIELD_CONTAINERS, containerCount);
+                        Utilities.incrementField(summaryNode, FIELD_CONTAINERS, containerCount);
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_CONTAINERS, containerCount);
+                        }
+                    }
 
-            podObject = checkAddObject(podObject, nodeName, "nodeName");
-            podObject = checkAddInt(podObject, podItem.getSpec().getPriority(), "priority");
-            podObject = checkAddObject(podObject, podItem.getSpec().getRestartPolicy(), "restartPolicy");
-            podObject = checkAddObject(podObject, podItem.getSpec().getServiceAccountName(), "serviceAccountName");
-            podObject = checkAddLong(podObject, podItem.getSpec().getTerminationGracePeriodSeconds(), "terminationGracePeriodSeconds");
-
-            if (podItem.getSpec().getTolerations() != null) {
-                String tolerations = "";
-                final int tolerationsCount = podItem.getSpec().getTolerations().size();
-                Utilities.incrementField(summary, "TolerationsCount", tolerationsCount);
-                Utilities.incrementField(summaryNamespace, "TolerationsCount", tolerationsCount);
-                Utilities.incrementField(summaryNode, "TolerationsCount", tolerationsCount);
-                if (Role != "") {
-                    Utilities.incrementField(summaryRole, "TolerationsCount", tolerationsCount);
-                }
-                for(final V1Toleration toleration : podItem.getSpec().getTolerations()){
-                    tolerations += String.format("%s;", toleration.toString());
-                }
-                podObject = checkAddObject(podObject, tolerations, "tolerations");
-            }
+                    final int initContainerCount = podItem.getSpec().getInitContainers() != null ? podItem.getSpec().getInitContainers().size() : 0;
+                    podObject = checkAddInt(podObject, initContainerCount, "initContainerCount");
 
-             if (podItem.getSpec().getAffinity() != null) {
-                final V1NodeAffinity affinity = podItem.getSpec().getAffinity().getNodeAffinity();
-                if (affinity != null) {
-                    Utilities.incrementField(summary, "HasNodeAffinity");
-                    Utilities.incrementField(summaryNamespace, "HasNodeAffinity");
-                    Utilities.incrementField(summaryNode, "HasNodeAffinity");
-                    if (Role != "") {
-                        Utilities.incrementField(summaryRole, "HasNodeAffinity");
+                    if (initContainerCount > 0) {
+                        Utilities.incrementField(summary, FIELD_INIT_CONTAINERS, initContainerCount);
+                        Utilities.incrementField(summaryNamespace, FIELD_INIT_CONTAINERS, initContainerCount);
+                        Utilities.incrementField(summaryNode, FIELD_INIT_CONTAINERS, initContainerCount);
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_INIT_CONTAINERS, initContainerCount);
+                        }
                     }
-                    String nodeAffinityPreferred = "";
 
-                    if (affinity.getPreferredDuringSchedulingIgnoredDuringExecution() != null) {
-                        for (final V1PreferredSchedulingTerm t : affinity.getPreferredDuringSchedulingIgnoredDuringExecution()) {
-                            nodeAffinityPreferred += String.format("%s;", t.toString());
+                    podObject = checkAddObject(podObject, nodeName, "nodeName");
+                    podObject = checkAddInt(podObject, podItem.getSpec().getPriority(), "priority");
+                    podObject = checkAddObject(podObject, podItem.getSpec().getRestartPolicy(), "restartPolicy");
+                    podObject = checkAddObject(podObject, podItem.getSpec().getServiceAccountName(), "serviceAccountName");
+                    podObject = checkAddLong(podObject, podItem.getSpec().getTerminationGracePeriodSeconds(), "terminationGracePeriodSeconds");
+
+                    if (podItem.getSpec().getTolerations() != null) {
+                        String tolerations = "";
+                        final int tolerationsCount = podItem.getSpec().getTolerations().size();
+                        Utilities.incrementField(summary, FIELD_TOLERATIONS_COUNT, tolerationsCount);
+                        Utilities.incrementField(summaryNamespace, FIELD_TOLERATIONS_COUNT, tolerationsCount);
+                        Utilities.incrementField(summaryNode, FIELD_TOLERATIONS_COUNT, tolerationsCount);
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_TOLERATIONS_COUNT, tolerationsCount);
+                        }
+                        for(final V1Toleration toleration : podItem.getSpec().getTolerations()){
+                            tolerations += String.format("%s;", toleration.toString());
                         }
+                        podObject = checkAddObject(podObject, tolerations, "tolerations");
                     }
-                    podObject = checkAddObject(podObject, nodeAffinityPreferred, "nodeAffinityPreferred");
 
+                     if (podItem.getSpec().getAffinity() != null) {
+                        final V1NodeAffinity affinity = podItem.getSpec().getAffinity().getNodeAffinity();
+                        if (affinity != null) {
+                            Utilities.incrementField(summary, FIELD_HAS_NODE_AFFINITY);
+                            Utilities.incrementField(summaryNamespace, FIELD_HAS_NODE_AFFINITY);
+                            Utilities.incrementField(summaryNode, FIELD_HAS_NODE_AFFINITY);
+                            if (Role != "") {
+                                Utilities.incrementField(summaryRole, FIELD_HAS_NODE_AFFINITY);
+                            }
+                            String nodeAffinityPreferred = "";
 
-                    String nodeAffinityRequired = "";
-                    final V1NodeSelector nodeSelector = affinity.getRequiredDuringSchedulingIgnoredDuringExecution();
-                    if (nodeSelector != null) {
-                        if (nodeSelector.getNodeSelectorTerms() != null) {
-                            for (final V1NodeSelectorTerm term : nodeSelector.getNodeSelectorTerms()) {
-                                if (term.getMatchExpressions() != null) {
-                                    for (final V1NodeSelectorRequirement req : term.getMatchExpressions()) {
-                                        nodeAffinityRequired += String.format("%s;", req.toString());
+                            if (affinity.getPreferredDuringSchedulingIgnoredDuringExecution() != null) {
+                                for (final V1PreferredSchedulingTerm t : affinity.getPreferredDuringSchedulingIgnoredDuringExecution()) {
+                                    nodeAffinityPreferred += String.format("%s;", t.toString());
+                                }
+                            }
+                            podObject = checkAddObject(podObject, nodeAffinityPreferred, "nodeAffinityPreferred");
+
+
+                            String nodeAffinityRequired = "";
+                            final V1NodeSelector nodeSelector = affinity.getRequiredDuringSchedulingIgnoredDuringExecution();
+                            if (nodeSelector != null) {
+                                if (nodeSelector.getNodeSelectorTerms() != null) {
+                                    for (final V1NodeSelectorTerm term : nodeSelector.getNodeSelectorTerms()) {
+                                        if (term.getMatchExpressions() != null) {
+                                            for (final V1NodeSelectorRequirement req : term.getMatchExpressions()) {
+                                                nodeAffinityRequired += String.format("%s;", req.toString());
+                                            }
+                                        }
                                     }
                                 }
                             }
+                            podObject = checkAddObject(podObject, nodeAffinityRequired, "nodeAffinityRequired");
                         }
                     }
-                    podObject = checkAddObject(podObject, nodeAffinityRequired, "nodeAffinityRequired");
-                }
-            }
 
-            final boolean hasPodAffinity = podItem.getSpec().getAffinity() != null && podItem.getSpec().getAffinity().getPodAffinity() != null;
-            podObject = checkAddBoolean(podObject, hasPodAffinity, "hasPodAffinity");
-            if(hasPodAffinity){
-                Utilities.incrementField(summary, "HasPodAffinity");
-                Utilities.incrementField(summaryNamespace, "HasPodAffinity");
-                Utilities.incrementField(summaryNode, "HasPodAffinity");
-                if (Role != "") {
-                    Utilities.incrementField(summaryRole, "HasPodAffinity");
-                }
-            }
+                    final boolean hasPodAffinity = podItem.getSpec().getAffinity() != null && podItem.getSpec().getAffinity().getPodAffinity() != null;
+                    podObject = checkAddBoolean(podObject, hasPodAffinity, "hasPodAffinity");
+                    if(hasPodAffinity){
+                        Utilities.incrementField(summary, FIELD_HAS_POD_AFFINITY);
+                        Utilities.incrementField(summaryNamespace, FIELD_HAS_POD_AFFINITY);
+                        Utilities.incrementField(summaryNode, FIELD_HAS_POD_AFFINITY);
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_HAS_POD_AFFINITY);
+                        }
+                    }
 
-            final boolean hasPodAntiAffinity = podItem.getSpec().getAffinity() != null && podItem.getSpec().getAffinity().getPodAntiAffinity() != null;
-            podObject = checkAddBoolean(podObject, hasPodAntiAffinity, "hasPodAntiAffinity");
-            if (hasPodAntiAffinity){
-                Utilities.incrementField(summary, "HasPodAntiAffinity");
-                Utilities.incrementField(summaryNamespace, "HasPodAntiAffinity");
-                Utilities.incrementField(summaryNode, "HasPodAntiAffinity");
-            }
+                    final boolean hasPodAntiAffinity = podItem.getSpec().getAffinity() != null && podItem.getSpec().getAffinity().getPodAntiAffinity() != null;
+                    podObject = checkAddBoolean(podObject, hasPodAntiAffinity, "hasPodAntiAffinity");
+                    if (hasPodAntiAffinity){
+                        Utilities.incrementField(summary, FIELD_HAS_POD_ANTI_AFFINITY);
+                        Utilities.incrementField(summaryNamespace, FIELD_HAS_POD_ANTI_AFFINITY);
+                        Utilities.incrementField(summaryNode, FIELD_HAS_POD_ANTI_AFFINITY);
+                    }
 
-            podObject = checkAddObject(podObject, podItem.getStatus().getHostIP(), "hostIP");
+                    podObject = checkAddObject(podObject, podItem.getStatus().getHostIP(), "hostIP");
 
-            final String phase = podItem.getStatus().getPhase();
-            podObject = checkAddObject(podObject, phase, "phase");
-            if (phase.equals("Pending")) {
-                Utilities.incrementField(summary, "PendingPods");
-                Utilities.incrementField(summaryNamespace, "PendingPods");
-                Utilities.incrementField(summaryNode, "PendingPods");
-                if (Role != "") {
-                    Utilities.incrementField(summaryRole, "PendingPods");
-                }
-            }
+                    final String phase = podItem.getStatus().getPhase();
+                    podObject = checkAddObject(podObject, phase, "phase");
+                    if (phase.equals("Pending")) {
+                        Utilities.incrementField(summary, FIELD_PENDING_PODS);
+                        Utilities.incrementField(summaryNamespace, FIELD_PENDING_PODS);
+                        Utilities.incrementField(summaryNode, FIELD_PENDING_PODS);
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_PENDING_PODS);
+                        }
+                    }
 
-            if (phase.equals("Failed")) {
-                Utilities.incrementField(summary, "FailedPods");
-                Utilities.incrementField(summaryNamespace, "FailedPods");
-                Utilities.incrementField(summaryNode, "FailedPods");
-            }
+                    if (phase.equals("Failed")) {
+                        Utilities.incrementField(summary, FIELD_FAILED_PODS);
+                        Utilities.incrementField(summaryNamespace, FIELD_FAILED_PODS);
+                        Utilities.incrementField(summaryNode, FIELD_FAILED_PODS);
+                    }
 
-            if (phase.equals("Running")) {
-                Utilities.incrementField(summary, "RunningPods");
-                Utilities.incrementField(summaryNamespace, "RunningPods");
-                Utilities.incrementField(summaryNode, "RunningPods");
-                if (Role != "") {
-                    Utilities.incrementField(summaryRole, "RunningPods");
-                }
-            }
+                    if (phase.equals("Running")) {
+                        Utilities.incrementField(summary, FIELD_RUNNING_PODS);
+                        Utilities.incrementField(summaryNamespace, FIELD_RUNNING_PODS);
+                        Utilities.incrementField(summaryNode, FIELD_RUNNING_PODS);
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_RUNNING_PODS);
+                        }
+                    }
 
-            podObject = checkAddObject(podObject, podItem.getStatus().getPodIP(), "podIP");
-            podObject = checkAddObject(podObject, podItem.getStatus().getReason(), "reason");
+                    podObject = checkAddObject(podObject, podItem.getStatus().getPodIP(), "podIP");
+                    podObject = checkAddObject(podObject, podItem.getStatus().getReason(), "reason");
 
 
-            if (podItem.getStatus().getReason() != null && podItem.getStatus().getReason().equals("Evicted")){
-                Utilities.incrementField(summary, "Evictions");
-                Utilities.incrementField(summaryNamespace, "Evictions");
-                Utilities.incrementField(summaryNode, "Evictions");
-                if (Role != "") {
-                    Utilities.incrementField(summaryRole, "Evictions");
-                }
-            }
-            podObject = checkAddObject(podObject, podItem.getStatus().getStartTime(), "startTime");
-
-            if (podItem.getStatus().getConditions() != null && podItem.getStatus().getConditions().size() > 0) {
-                final V1PodCondition recentCondition = podItem.getStatus().getConditions().get(0);
-                podObject = checkAddObject(podObject, recentCondition.getLastTransitionTime(), "lastTransitionTimeCondition");
-                podObject = checkAddObject(podObject, recentCondition.getReason(), "reasonCondition");
-                podObject = checkAddObject(podObject, recentCondition.getStatus(), "statusCondition");
-                podObject = checkAddObject(podObject, recentCondition.getType(), "typeCondition");
-            }
+                    if (podItem.getStatus().getReason() != null && podItem.getStatus().getReason().equals("Evicted")){
+                        Utilities.incrementField(summary, FIELD_EVICTIONS);
+                        Utilities.incrementField(summaryNamespace, FIELD_EVICTIONS);
+                        Utilities.incrementField(summaryNode, FIELD_EVICTIONS);
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_EVICTIONS);
+                        }
+                    }
+                    podObject = checkAddObject(podObject, podItem.getStatus().getStartTime(), "startTime");
+
+                    if (podItem.getStatus().getConditions() != null && podItem.getStatus().getConditions().size() > 0) {
+                        final V1PodCondition recentCondition = podItem.getStatus().getConditions().get(0);
+                        podObject = checkAddObject(podObject, recentCondition.getLastTransitionTime(), "lastTransitionTimeCondition");
+                        podObject = checkAddObject(podObject, recentCondition.getReason(), "reasonCondition");
+                        podObject = checkAddObject(podObject, recentCondition.getStatus(), "statusCondition");
+                        podObject = checkAddObject(podObject, recentCondition.getType(), "typeCondition");
+                    }
 
-            int podRestarts = 0;
-            final String contStates = "";
-            String images = "";
-            String waitReasons = "";
-            String termReasons = "";      
+                    int podRestarts = 0;
+                    int podRestartsDelta = 0;
+                    final String contStates = "";
+                    String images = "";
+                    String waitReasons = "";
+                    String termReasons = "";      
 
-            if (podItem.getStatus().getContainerStatuses() != null){
-                for(final V1ContainerStatus status : podItem.getStatus().getContainerStatuses()){
+                    if (podItem.getStatus().getContainerStatuses() != null){
+                        for(final V1ContainerStatus status : podItem.getStatus().getContainerStatuses()){
 
-                    final String image = status.getImage();
-                    images += String.format("%s;", image);
+                            final String image = status.getImage();
+                            images += String.format("%s;", image);
 
-                    final int restarts = status.getRestartCount();
-                    podRestarts += restarts;
+                            final int restarts = status.getRestartCount();
+                            podRestarts += restarts;
+                            if (restartStore != null) {
+                                podRestartsDelta += restartStore.delta(podItem.getMetadata().getUid(), status.getName(), restarts);
+                            }
 
-                    if (status.getState().getWaiting()!= null){
-                        waitReasons += String.format("%s;", status.getState().getWaiting().getReason());
-                    }
+                            if (status.getState().getWaiting()!= null){
+                                waitReasons += String.format("%s;", status.getState().getWaiting().getReason());
+                            }
 
-                    if (status.getState().getTerminated() != null) {
-                        termReasons += String.format("%s;", status.getState().getTerminated().getReason());
-                        podObject = checkAddObject(podObject, status.getState().getTerminated().getFinishedAt(), "terminationTime");
-                    }
+                            if (status.getState().getTerminated() != null) {
+                                termReasons += String.format("%s;", status.getState().getTerminated().getReason());
+                                podObject = checkAddObject(podObject, status.getState().getTerminated().getFinishedAt(), "terminationTime");
+                            }
 
-                    if (status.getState().getRunning() != null) {
-                        podObject = checkAddObject(podObject, status.getState().getRunning().getStartedAt(), "runningStartTime");
-                    }
-                }
+                            if (status.getState().getRunning() != null) {
+                                podObject = checkAddObject(podObject, status.getState().getRunning().getStartedAt(), "runningStartTime");
+                            }
+                        }
                 
 
                 
 
                 
 
-                //container data
-                podObject = checkAddObject(podObject, contStates, "containerStates");
-                podObject = checkAddObject(podObject, images, "images");
-                podObject = checkAddObject(podObject, waitReasons, "waitReasons");
-                podObject = checkAddObject(podObject, termReasons, "termReasons");
-
-                podObject = checkAddInt(podObject, podRestarts, "podRestarts");
-                //podRestartsSum += podRestarts;
-                //podObject = checkAddInt(podObject, podRestartsSum, "podRestartsSum");
-                Utilities.incrementField(summary, "PodRestarts", podRestarts);
-                //Utilities.incrementField(summary, "podRestartsSum", podRestartsSum);
-                Utilities.incrementField(summaryNamespace, "PodRestarts", podRestarts);
-                Utilities.incrementField(summaryNode, "PodRestarts", podRestarts);
+                        //container data
+                        podObject = checkAddObject(podObject, contStates, "containerStates");
+                        podObject = checkAddObject(podObject, images, "images");
+                        podObject = checkAddObject(podObject, waitReasons, "waitReasons");
+                        podObject = checkAddObject(podObject, termReasons, "termReasons");
+
+                        podObject = checkAddInt(podObject, podRestarts, "podRestarts");
+                        //the summaries count the restarts since the previous cycle
+                        Utilities.incrementField(summary, FIELD_POD_RESTARTS, podRestartsDelta);
+                        Utilities.incrementField(summaryNamespace, FIELD_POD_RESTARTS, podRestartsDelta);
+                        Utilities.incrementField(summaryNode, FIELD_POD_RESTARTS, podRestartsDelta);
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_POD_RESTARTS, podRestartsDelta);
+                        }
                 
-            }
+                    }
 
-            boolean limitsDefined = false;
+                    boolean limitsDefined = false;
 
-            int numLive = 0;
-            int numReady = 0;
-            int numPrivileged = 0;
-            float cpuRequest = 0;
-            float memRequest = 0;
+                    int numLive = 0;
+                    int numReady = 0;
+                    int numPrivileged = 0;
+                    float cpuRequest = 0;
+                    float memRequest = 0;
 
-            float memLimit = 0;
-            float cpuLimit = 0;
+                    float memLimit = 0;
+                    float cpuLimit = 0;
 
-            for(final V1Container container : podItem.getSpec().getContainers()){
-                if (container.getSecurityContext() != null ){
+                    for(final V1Container container : podItem.getSpec().getContainers()){
+                        if (container.getSecurityContext() != null ){
 
-                    try {
-                        if (Boolean.TRUE.equals(container.getSecurityContext().isPrivileged())) {
-                            numPrivileged++;
+                            try {
+                                if (Boolean.TRUE.equals(container.getSecurityContext().isPrivileged())) {
+                                    numPrivileged++;
+                                }
+                            }
+                            catch (final Exception ex){
+                                logger.error("Issues when getting the privileged flag for " + podItem.getMetadata().getName(), ex.getMessage());
+                            }
                         }
-                    }
-                    catch (final Exception ex){
-                        logger.error("Issues when getting the privileged flag for " + podItem.getMetadata().getName(), ex.getMessage());
-                    }
-                }
-
-                numLive += container.getLivenessProbe() != null ? 1 : 0;
-                numReady += container.getReadinessProbe() != null ? 1 : 0;
-                if (container.getPorts() != null) {
-                    String ports = "";
-                    for (final V1ContainerPort port : container.getPorts()) {
-                        ports += String.format("%d;",port.getContainerPort());
-                    }
-                    podObject = checkAddObject(podObject, ports, "ports");
-                }
-
-                if (container.getResources() != null) {
-                    if (container.getResources().getRequests() != null) {
-                        final Set<Map.Entry<String, Quantity>> setRequests = container.getResources().getRequests().entrySet();
-                        for (final Map.Entry<String, Quantity> s : setRequests) {
-                            if (s.getKey().equals("memory")) {
-                                memRequest += s.getValue().getNumber().divide(new BigDecimal(1000000)).floatValue(); //MB
 
+                        numLive += container.getLivenessProbe() != null ? 1 : 0;
+                        numReady += container.getReadinessProbe() != null ? 1 : 0;
+                        if (container.getPorts() != null) {
+                            String ports = "";
+                            for (final V1ContainerPort port : container.getPorts()) {
+                                ports += String.format("%d;",port.getContainerPort());
                             }
-                            if (s.getKey().equals("cpu")) {
-                                cpuRequest += s.getValue().getNumber().floatValue();
-                            }
+                            podObject = checkAddObject(podObject, ports, "ports");
                         }
-                        limitsDefined = true;
-                    }
 
-                 if (container.getResources().getLimits() != null) {
-                     final Set<Map.Entry<String, Quantity>> setLimits = container.getResources().getLimits().entrySet();
-                     for (final Map.Entry<String, Quantity> s : setLimits) {
-                         if (s.getKey().equals("memory")) {
-                             memLimit += s.getValue().getNumber().divide(new BigDecimal(1000000)).floatValue(); //MB
+                        if (container.getResources() != null) {
+                            if (container.getResources().getRequests() != null) {
+                                final Set<Map.Entry<String, Quantity>> setRequests = container.getResources().getRequests().entrySet();
+                                for (final Map.Entry<String, Quantity> s : setRequests) {
+                                    if (s.getKey().equals("memory")) {
+                                        memRequest += QuantityParser.toMegabytes(s.getValue()); //MB
 
+                                    }
+                                    if (s.getKey().equals("cpu")) {
+                                        cpuRequest += QuantityParser.toUnits(s.getValue());
+                                    }
+                                }
+                                limitsDefined = true;
+                            }
+
+                         if (container.getResources().getLimits() != null) {
+                             final Set<Map.Entry<String, Quantity>> setLimits = container.getResources().getLimits().entrySet();
+                             for (final Map.Entry<String, Quantity> s : setLimits) {
+                                 if (s.getKey().equals("memory")) {
+                                     memLimit += QuantityParser.toMegabytes(s.getValue()); //MB
+
+                                 }
+                                 if (s.getKey().equals("cpu")) {
+                                     cpuLimit += QuantityParser.toUnits(s.getValue());
+                                 }
+                             }
+                             limitsDefined = true;
                          }
-                         if (s.getKey().equals("cpu")) {
-                             cpuLimit += s.getValue().getNumber().floatValue();
-                         }
-                     }
-                     limitsDefined = true;
-                 }
-                }
-                if (container.getVolumeMounts() != null){
+                        }
+                        if (container.getVolumeMounts() != null){
 
-                    String mounts = "";
-                    for(final V1VolumeMount vm : container.getVolumeMounts()){
-                        mounts += String.format("%s;",vm.getMountPath());
+                            String mounts = "";
+                            for(final V1VolumeMount vm : container.getVolumeMounts()){
+                                mounts += String.format("%s;",vm.getMountPath());
+                            }
+                            podObject = checkAddObject(podObject, mounts, "mounts");
+                        }
                     }
-                    podObject = checkAddObject(podObject, mounts, "mounts");
-                }
-            }
 
-            podObject = checkAddBoolean(podObject, limitsDefined, "limitsDefined");
+                    podObject = checkAddBoolean(podObject, limitsDefined, "limitsDefined");
 
 
-            podObject =  checkAddFloat(podObject, cpuRequest, "cpuRequest");
-            podObject =  checkAddFloat(podObject, memRequest, "memRequest");
-            podObject =  checkAddFloat(podObject, cpuLimit, "cpuLimit");
-            podObject =  checkAddFloat(podObject, memLimit, "memLimit");
+                    podObject =  checkAddFloat(podObject, cpuRequest, "cpuRequest");
+                    podObject =  checkAddFloat(podObject, memRequest, "memRequest");
+                    podObject =  checkAddFloat(podObject, cpuLimit, "cpuLimit");
+                    podObject =  checkAddFloat(podObject, memLimit, "memLimit");
 
-            if (!(podItem.getStatus().getReason() != null && podItem.getStatus().getReason().equals("Evicted"))){
-                Utilities.incrementField(summary, "RequestCpu", (cpuRequest*1000));
-                Utilities.incrementField(summaryNamespace, "RequestCpu", (cpuRequest*1000));
-                Utilities.incrementField(summaryNode, "RequestCpu", (cpuRequest*1000));
-                if (Role != "") {
-                    Utilities.incrementField(summaryRole, "RequestCpu", (cpuRequest*1000));
-                    Utilities.incrementField(summaryRole, "RequestMemory", memRequest);
-                    Utilities.incrementField(summaryRole, "LimitCpu", (cpuLimit*1000));
-                    Utilities.incrementField(summaryRole, "LimitMemory", memLimit);
+                    if (!(podItem.getStatus().getReason() != null && podItem.getStatus().getReason().equals("Evicted"))){
+                        Utilities.incrementField(summary, FIELD_REQUEST_CPU, (cpuRequest*1000));
+                        Utilities.incrementField(summaryNamespace, FIELD_REQUEST_CPU, (cpuRequest*1000));
+                        Utilities.incrementField(summaryNode, FIELD_REQUEST_CPU, (cpuRequest*1000));
+                        if (Role != "") {
+                            Utilities.incrementField(summaryRole, FIELD_REQUEST_CPU, (cpuRequest*1000));
+                            Utilities.incrementField(summaryRole, FIELD_REQUEST_MEMORY, memRequest);
+                            Utilities.incrementField(summaryRole, FIELD_LIMIT_CPU, (cpuLimit*1000));
+                            Utilities.incrementField(summaryRole, FIELD_LIMIT_MEMORY, memLimit);
 
-                }
+                        }
 
-                Utilities.incrementField(summary, "RequestMemory", memRequest);
-                Utilities.incrementField(summaryNamespace, "RequestMemory", memRequest);
-                Utilities.incrementField(summaryNode, "RequestMemory", memRequest);
+                        Utilities.incrementField(summary, FIELD_REQUEST_MEMORY, memRequest);
+                        Utilities.incrementField(summaryNamespace, FIELD_REQUEST_MEMORY, memRequest);
+                        Utilities.incrementField(summaryNode, FIELD_REQUEST_MEMORY, memRequest);
 
-                Utilities.incrementField(summary, "LimitCpu", (cpuLimit*1000));
-                Utilities.incrementField(summaryNamespace, "LimitCpu", (cpuLimit*1000));
-                Utilities.incrementField(summaryNode, "LimitCpu", (cpuLimit*1000));
+                        Utilities.incrementField(summary, FIELD_LIMIT_CPU, (cpuLimit*1000));
+                        Utilities.incrementField(summaryNamespace, FIELD_LIMIT_CPU, (cpuLimit*1000));
+                        Utilities.incrementField(summaryNode, FIELD_LIMIT_CPU, (cpuLimit*1000));
 
-                Utilities.incrementField(summary, "LimitMemory", memLimit);
-                Utilities.incrementField(summaryNamespace, "LimitMemory", memLimit);
-                Utilities.incrementField(summaryNode, "LimitMemory", memLimit);
+                        Utilities.incrementField(summary, FIELD_LIMIT_MEMORY, memLimit);
+                        Utilities.incrementField(summaryNamespace, FIELD_LIMIT_MEMORY, memLimit);
+                        Utilities.incrementField(summaryNode, FIELD_LIMIT_MEMORY, memLimit);
 
-                if (numLive == 0) {
-                    Utilities.incrementField(summary, "NoLivenessProbe");
-                    Utilities.incrementField(summaryNamespace, "NoLivenessProbe");
-                    Utilities.incrementField(summaryNode, "NoLivenessProbe");
-                    if (Role != "") {
-                        Utilities.incrementField(summaryRole, "NoLivenessProbe");
-                    }
-                }
+                        if (numLive == 0) {
+                            Utilities.incrementField(summary, FIELD_NO_LIVENESS_PROBE);
+                            Utilities.incrementField(summaryNamespace, FIELD_NO_LIVENESS_PROBE);
+                            Utilities.incrementField(summaryNode, FIELD_NO_LIVENESS_PROBE);
+                            if (Role != "") {
+                                Utilities.incrementField(summaryRole, FIELD_NO_LIVENESS_PROBE);
+                            }
+                        }
 
-                if (numReady == 0) {
-                    Utilities.incrementField(summary, "NoReadinessProbe");
-                    Utilities.incrementField(summaryNamespace, "NoReadinessProbe");
-                    Utilities.incrementField(summaryNode, "NoReadinessProbe");
-                    if (Role != "") {
-                        Utilities.incrementField(summaryRole, "NoReadinessProbe");
-                    }
-                }
+                        if (numReady == 0) {
+                            Utilities.incrementField(summary, FIELD_NO_READINESS_PROBE);
+                            Utilities.incrementField(summaryNamespace, FIELD_NO_READINESS_PROBE);
+                            Utilities.incrementField(summaryNode, FIELD_NO_READINESS_PROBE);
+                            if (Role != "") {
+                                Utilities.incrementField(summaryRole, FIELD_NO_READINESS_PROBE);
+                            }
+                        }
 
-                if (numPrivileged > 0) {
-                    Utilities.incrementField(summary, "Privileged");
-                    Utilities.incrementField(summaryNamespace, "Privileged");
-                    Utilities.incrementField(summaryNode, "Privileged");
-                    if (Role != "") {
-                        Utilities.incrementField(summaryRole, "Privileged");
-                    }
-                }
-                if (!limitsDefined){
-                    Utilities.incrementField(summary, "NoLimits");
-                    Utilities.incrementField(summaryNamespace, "NoLimits");
-                    Utilities.incrementField(summaryNode, "NoLimits");
-                    if (Role != "") {
-                        Utilities.incrementField(summaryRole, "NoLimits");
+                        if (numPrivileged > 0) {
+                            Utilities.incrementField(summary, FIELD_PRIVILEGED);
+                            Utilities.incrementField(summaryNamespace, FIELD_PRIVILEGED);
+                            Utilities.incrementField(summaryNode, FIELD_PRIVILEGED);
+                            if (Role != "") {
+                                Utilities.incrementField(summaryRole, FIELD_PRIVILEGED);
+                            }
+                        }
+                        if (!limitsDefined){
+                            Utilities.incrementField(summary, FIELD_NO_LIMITS);
+                            Utilities.incrementField(summaryNamespace, FIELD_NO_LIMITS);
+                            Utilities.incrementField(summaryNode, FIELD_NO_LIMITS);
+                            if (Role != "") {
+                                Utilities.incrementField(summaryRole, FIELD_NO_LIMITS);
+                            }
+                        }
                     }
-                }
-            }
 
 
-            podObject = checkAddInt(podObject, numLive, "liveProbes");
-            podObject = checkAddInt(podObject, numReady, "readyProbes");
-            podObject = checkAddInt(podObject, numPrivileged, "numPrivileged");
-            arrayNode.add(podObject);
-            if (arrayNode.size() >= batchSize){
-                logger.info("Sending batch of {} Pod records", arrayNode.size());
-                final String payload = arrayNode.toString();
-                arrayNode = arrayNode.removeAll();
-                if(!payload.equals("[]")){
-                    final UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                    getConfiguration().getExecutorService().execute("UploadPodData", uploadEventsTask);
-                }
+                    podObject = checkAddInt(podObject, numLive, "liveProbes");
+                    podObject = checkAddInt(podObject, numReady, "readyProbes");
+                    podObject = checkAddInt(podObject, numPrivileged, "numPrivileged");
+                    publishRecord(podObject);
             }
-        }
+        });
+
+        //the pods of the page may have been built in parallel chunks, each seeing part of the namespaces
+        Utilities.setField(getSummary(Dimension.CLUSTER, ALL), "NamespacesRunning", namespaces.size());
         
         
                 
-        if (arrayNode.size() > 0){
-             logger.info("Sending last batch of {} Pod records", arrayNode.size());
-             final String payload = arrayNode.toString();
-             arrayNode = arrayNode.removeAll();
-             if(!payload.equals("[]")){
-                 final UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                 getConfiguration().getExecutorService().execute("UploadPodData", uploadEventsTask);
-             }
-         }
-        return  arrayNode;
+    }
+
+    private Map<String,String> getNodeRoles(final ObjectMapper mapper){
+        if (nodeRoles != null){
+            return nodeRoles;
+        }
+        nodeRoles = new HashMap<String,String>();
+        try {
+            // convert JSON file to map
+            nodeRoles = mapper.readValue(Paths.get(Utilities.getExtensionDirectory()+"/nodes.roles").toFile(), HashMap.class);
+            logger.info("Successfull reading the historical node roles");
+        } catch (final Exception ex) {
+            logger.error("Fail reading the historical node roles - maybe it is the first time");
+            logger.error(ex.getMessage());
+        }
+        return nodeRoles;
     }
 
     protected SummaryObj initDefaultSummaryObject(final Map<String, String> config){
@@ -3,6 +3,9 @@ package com.appdynamics.monitors.kubernetes.SnapshotTasks;
 import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.AssertUtils;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.QuantityParser;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
 import com.appdynamics.monitors.kubernetes.Metrics.UploadMetricsTask;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
@@ -13,15 +16,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
-import io.kubernetes.client.ApiClient;
-import io.kubernetes.client.Configuration;
-import io.kubernetes.client.apis.CoreV1Api;
-import io.kubernetes.client.custom.Quantity;
 import io.kubernetes.client.models.*;
 
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.net.URL;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -64,44 +62,26 @@ public class QuotaSnapshotRunner extends SnapshotRunnerBase {
             final URL publishUrl = Utilities.ensureSchema(config, apiKey, accountName,CONFIG_SCHEMA_NAME_POD, CONFIG_SCHEMA_DEF_POD);
 
             try {
-                V1ResourceQuotaList quotaList;
-
                 try {
-                    final ApiClient client = Utilities.initClient(config);
-                    this.setAPIServerTimeout(client, K8S_API_TIMEOUT);
-                    Configuration.setDefaultApiClient(client);
-                    final CoreV1Api api = new CoreV1Api();
-                    /* public V1ResourceQuotaList listResourceQuotaForAllNamespaces(String _continue, String fieldSelector, Boolean includeUninitialized, String labelSelector, Integer limit, String pretty, String resourceVersion, Integer timeoutSeconds, Boolean watch) throws ApiException {
-                        ApiResponse<V1ResourceQuotaList> resp = listResourceQuotaForAllNamespacesWithHttpInfo(_continue, fieldSelector, includeUninitialized, labelSelector, limit, pretty, resourceVersion, timeoutSeconds, watch);
-                        return resp.getData();
-                    } */
-                    this.setCoreAPIServerTimeout(api, K8S_API_TIMEOUT);
-                    //quotaList = api.listNamespacedResourceQuota("kube-system", 
-                    //        null,
-                    quotaList = api.listResourceQuotaForAllNamespaces(null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null,
-                            null);
+                    fetchResource(config, ResourceType.QUOTAS, new PageHandler<V1ResourceQuotaList>() {
+                        @Override
+                        public void onPage(V1ResourceQuotaList page) {
+                            logger.info("Quota itens: " + String.valueOf(page.getItems().size()) );
+                            createQuotaPayload(page, config, publishUrl, accountName, apiKey);
+                        }
+                    });
                 }
                 catch (final Exception ex){
                     throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
                 }
 
-                logger.info("Quota itens: " + String.valueOf(quotaList.getItems().size()) );
-                createQuotaPayload(quotaList, config, publishUrl, accountName, apiKey);
-
                 
                 
                 /* Config to get Total metrics collected */
-                SummaryObj summaryScript = getSummaryMap().get("QuotaScript");
+                SummaryObj summaryScript = getSummary(Dimension.SCRIPT, "QuotaScript");
                 if (summaryScript == null) {
                     summaryScript = initScriptSummaryObject(config, "Quota");
-                    getSummaryMap().put("QuotaScript", summaryScript);
+                    putSummary(Dimension.SCRIPT, "QuotaScript", summaryScript);
                 }
 
 
@@ -153,17 +133,17 @@ public class QuotaSnapshotRunner extends SnapshotRunnerBase {
 
             final String clusterName = Utilities.ensureClusterName(config, quotaItem.getMetadata().getClusterName());
 
-            SummaryObj summary = getSummaryMap().get(ALL);
+            SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
             if (summary == null) {
                 summary = initQuotaSummaryObject(config, ALL, ALL);
-                getSummaryMap().put(ALL, summary);
+                putSummary(Dimension.CLUSTER, ALL, summary);
             }
 
-            SummaryObj summaryNamespace = getSummaryMap().get(namespace);
+            SummaryObj summaryNamespace = getSummary(Dimension.NAMESPACE, namespace);
             if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
                 if (summaryNamespace == null) {
                     summaryNamespace = initQuotaSummaryObject(config, namespace, ALL);
-                    getSummaryMap().put(namespace, summaryNamespace);
+                    putSummary(Dimension.NAMESPACE, namespace, summaryNamespace);
                 }
             }
 
@@ -180,7 +160,6 @@ public class QuotaSnapshotRunner extends SnapshotRunnerBase {
                 while (it.hasNext()) {
                     final Map.Entry pair = (Map.Entry)it.next();
                     labels += String.format("%s:%s;", pair.getKey(), pair.getValue());
-                    it.remove();
                 }
                 quotaObject = checkAddObject(quotaObject, labels, "labels");
             }
@@ -191,7 +170,6 @@ public class QuotaSnapshotRunner extends SnapshotRunnerBase {
                 while (it.hasNext()) {
                     final Map.Entry pair = (Map.Entry)it.next();
                     annotations += String.format("%s:%s;", pair.getKey(), pair.getValue());
-                    it.remove();
                 }
                 quotaObject = checkAddObject(quotaObject, annotations, "annotations");
             }
@@ -216,38 +194,39 @@ public class QuotaSnapshotRunner extends SnapshotRunnerBase {
                     logger.info("Quota - Trying to convert to bigDecimal: "+hard.getValue());
                     String hardValueString = hard.getValue();
                     
-                    //BigDecimal hardValue = Utilities.convertBigDecimalMemCPUValues(hardValueString, "type");
-                    BigDecimal hardValue = new Quantity(hardValueString).getNumber();
+                    //milli-units for CPU, MB for memory and units for the counts
+                    long hardMilli = QuantityParser.toMilli(hardValueString);
+                    float hardMegabytes = QuantityParser.toMegabytes(hardValueString);
+                    float hardValue = QuantityParser.toUnits(hardValueString);
 
-                    logger.info(new Quantity(hardValueString).toString());
 
 
                     logger.info("Quota Hard Value converted:"+hardValue);
 
                     if (hardKey.contains("limits.cpu")) {
-                        Utilities.incrementField(summary, ("ResourceQuotaHardLimitsCPU"), (hardValue.multiply(new BigDecimal(1000))));
-                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardLimitsCPU"), (hardValue.multiply(new BigDecimal(1000))));
+                        Utilities.incrementField(summary, ("ResourceQuotaHardLimitsCPU"), hardMilli);
+                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardLimitsCPU"), hardMilli);
                         quotaObject = checkAddObject(quotaObject, hardValue, "ResourceQuotaHardLimitsCPU");
                     }
                     else if (hardKey.contains("requests.cpu")) {
-                        Utilities.incrementField(summary, ("ResourceQuotaHardRequestsCPU"), (hardValue.multiply(new BigDecimal(1000))));
-                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardRequestsCPU"), (hardValue.multiply(new BigDecimal(1000))));
+                        Utilities.incrementField(summary, ("ResourceQuotaHardRequestsCPU"), hardMilli);
+                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardRequestsCPU"), hardMilli);
                         quotaObject = checkAddObject(quotaObject, hardValue, "ResourceQuotaHardRequestsCPU");
                     }
                     else if(hardKey.contains("limits.memory")){
-                        Utilities.incrementField(summary, ("ResourceQuotaHardLimitsMemory"), hardValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)));
-                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardLimitsMemory"), hardValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)));
-                        quotaObject = checkAddObject(quotaObject, hardValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)), "ResourceQuotaHardLimitsMemory");
+                        Utilities.incrementField(summary, ("ResourceQuotaHardLimitsMemory"), hardMegabytes);
+                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardLimitsMemory"), hardMegabytes);
+                        quotaObject = checkAddObject(quotaObject, hardMegabytes, "ResourceQuotaHardLimitsMemory");
                     }
                     else if(hardKey.contains("requests.memory")){
-                        Utilities.incrementField(summary, ("ResourceQuotaHardRequestsMemory"), hardValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)));
-                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardRequestsMemory"), hardValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)));
-                        quotaObject = checkAddObject(quotaObject, hardValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)), "ResourceQuotaHardRequestsMemory");
+                        Utilities.incrementField(summary, ("ResourceQuotaHardRequestsMemory"), hardMegabytes);
+                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardRequestsMemory"), hardMegabytes);
+                        quotaObject = checkAddObject(quotaObject, hardMegabytes, "ResourceQuotaHardRequestsMemory");
                     }
                     else if(hardKey.contains("requests.nvidia.com/gpu")){
                         Utilities.incrementField(summary, ("ResourceQuotaHardRequestsGPU"), hardValue);
                         Utilities.incrementField(summaryNamespace, ("ResourceQuotaHardRequestsGPU"), hardValue);
-                        quotaObject = checkAddObject(quotaObject, hardValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)), "ResourceQuotaHardRequestsGPU");
+                        quotaObject = checkAddObject(quotaObject, hardMegabytes, "ResourceQuotaHardRequestsGPU");
                     }
                     else if(hardKey.contains("pods")){
                         Utilities.incrementField(summary, ("ResourceQuotaHardPods"), hardValue);
@@ -264,10 +243,11 @@ public class QuotaSnapshotRunner extends SnapshotRunnerBase {
                     
                     String usedValueString = used.getValue();
 
-                    //BigDecimal usedValue = Utilities.convertBigDecimalMemCPUValues(usedValueString, "type");
-                    BigDecimal usedValue = new Quantity(usedValueString).getNumber();
+                    //milli-units for CPU, MB for memory and units for the counts
+                    long usedMilli = QuantityParser.toMilli(usedValueString);
+                    float usedMegabytes = QuantityParser.toMegabytes(usedValueString);
+                    float usedValue = QuantityParser.toUnits(usedValueString);
 
-                    logger.info(new Quantity(usedValueString).toString());
 
                     logger.info("Quota - Converted to bigDecimal: "+used.getValue());
 
@@ -275,26 +255,26 @@ public class QuotaSnapshotRunner extends SnapshotRunnerBase {
                     logger.info("Quota Used Value:"+usedValue);
                     if (usedKey.contains("limits.cpu") ) {
                         logger.info("Quota - Adding Key:"+usedKey+" - Value:"+usedValue);
-                        Utilities.incrementField(summary, ("ResourceQuotaUsedLimitsCPU"), (usedValue.multiply(new BigDecimal(1000))));
-                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaUsedLimitsCPU"), (usedValue.multiply(new BigDecimal(1000))));
+                        Utilities.incrementField(summary, ("ResourceQuotaUsedLimitsCPU"), usedMilli);
+                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaUsedLimitsCPU"), usedMilli);
                         quotaObject = checkAddObject(quotaObject, usedValue, "ResourceQuotaUsedLimitsCPU");
                     }
                     else if (usedKey.contains("requests.cpu")) {
                         
-                        Utilities.incrementField(summary, ("ResourceQuotaUsedRequestsCPU"), (usedValue.multiply(new BigDecimal(1000))));
-                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaUsedRequestsCPU"), (usedValue.multiply(new BigDecimal(1000))));
+                        Utilities.incrementField(summary, ("ResourceQuotaUsedRequestsCPU"), usedMilli);
+                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaUsedRequestsCPU"), usedMilli);
                         quotaObject = checkAddObject(quotaObject, usedValue, "ResourceQuotaUsedRequestsCPU");
                     }
                     else if(usedKey.contains("limits.memory")) {
                         logger.info("Quota - Adding Key:"+usedKey+" - Value:"+usedValue);
-                        Utilities.incrementField(summary, ("ResourceQuotaUsedLimitsMemory"), usedValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)));
-                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaUsedLimitsMemory"), usedValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)));
-                        quotaObject = checkAddObject(quotaObject, usedValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)), "ResourceQuotaUsedLimitsMemory");
+                        Utilities.incrementField(summary, ("ResourceQuotaUsedLimitsMemory"), usedMegabytes);
+                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaUsedLimitsMemory"), usedMegabytes);
+                        quotaObject = checkAddObject(quotaObject, usedMegabytes, "ResourceQuotaUsedLimitsMemory");
                     }
                     else if(usedKey.contains("requests.memory")) {
-                        Utilities.incrementField(summary, ("ResourceQuotaUsedRequestsMemory"), usedValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)));
-                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaUsedRequestsMemory"), usedValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)));
-                        quotaObject = checkAddObject(quotaObject, usedValue.divide(new BigDecimal(1000)).divide(new BigDecimal(1000)), "ResourceQuotaUsedRequestsMemory");
+                        Utilities.incrementField(summary, ("ResourceQuotaUsedRequestsMemory"), usedMegabytes);
+                        Utilities.incrementField(summaryNamespace, ("ResourceQuotaUsedRequestsMemory"), usedMegabytes);
+                        quotaObject = checkAddObject(quotaObject, usedMegabytes, "ResourceQuotaUsedRequestsMemory");
                     }
                     else if(usedKey.contains("requests.nvidia.com/gpu")){
                         Utilities.incrementField(summary, ("ResourceQuotaUsedRequestsGPU"), usedValue);
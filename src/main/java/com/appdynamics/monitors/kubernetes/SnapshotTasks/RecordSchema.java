@@ -0,0 +1,116 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Fields and types of an Events API schema, compiled once from its *SchemaDefinition config entry.
+// Records of the schema keep their values by field ordinal and are written in schema order,
+// with the field names pre-encoded and the values coerced to the declared types.
+public class RecordSchema {
+    private static final Logger logger = LoggerFactory.getLogger(RecordSchema.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Map<String, RecordSchema> compiled = new ConcurrentHashMap<String, RecordSchema>();
+    public static final RecordSchema EMPTY = new RecordSchema(new ArrayList<String>(), new ArrayList<FieldType>());
+
+    public enum FieldType {
+        STRING,
+        INTEGER,
+        FLOAT,
+        BOOLEAN,
+        DATE;
+
+        static FieldType parse(String type){
+            if ("integer".equalsIgnoreCase(type) || "long".equalsIgnoreCase(type)) {
+                return INTEGER;
+            }
+            if ("float".equalsIgnoreCase(type) || "double".equalsIgnoreCase(type)) {
+                return FLOAT;
+            }
+            if ("boolean".equalsIgnoreCase(type)) {
+                return BOOLEAN;
+            }
+            if ("date".equalsIgnoreCase(type)) {
+                return DATE;
+            }
+            return STRING;
+        }
+    }
+
+    private final String[] names;
+    private final SerializedString[] keys;
+    private final FieldType[] types;
+    private final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+
+    private RecordSchema(List<String> names, List<FieldType> types){
+        this.names = names.toArray(new String[names.size()]);
+        this.types = types.toArray(new FieldType[types.size()]);
+        this.keys = new SerializedString[this.names.length];
+        for (int i = 0; i < this.names.length; i++) {
+            keys[i] = new SerializedString(this.names[i]);
+            ordinals.put(this.names[i], i);
+        }
+    }
+
+    //schema of the definition, compiled on first use. Records of an invalid definition are written as they are
+    public static RecordSchema compile(String definition){
+        if (definition == null || definition.isEmpty()) {
+            return EMPTY;
+        }
+        RecordSchema schema = compiled.get(definition);
+        if (schema == null) {
+            schema = parse(definition);
+            compiled.put(definition, schema);
+        }
+        return schema;
+    }
+
+    private static RecordSchema parse(String definition){
+        List<String> names = new ArrayList<String>();
+        List<FieldType> types = new ArrayList<FieldType>();
+        try {
+            JsonNode fields = mapper.readTree(definition).path("schema");
+            Iterator<Map.Entry<String, JsonNode>> it = fields.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> field = it.next();
+                names.add(field.getKey());
+                types.add(FieldType.parse(field.getValue().asText()));
+            }
+        }
+        catch (Exception ex){
+            logger.error("Unable to parse schema definition. Records are written without type coercion", ex);
+        }
+        return new RecordSchema(names, types);
+    }
+
+    public int size(){
+        return names.length;
+    }
+
+    //-1 for fields that are not in the schema
+    public int ordinal(String field){
+        Integer ordinal = ordinals.get(field);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    public String getName(int ordinal){
+        return names[ordinal];
+    }
+
+    SerializedString getKey(int ordinal){
+        return keys[ordinal];
+    }
+
+    public FieldType getType(int ordinal){
+        return types[ordinal];
+    }
+}
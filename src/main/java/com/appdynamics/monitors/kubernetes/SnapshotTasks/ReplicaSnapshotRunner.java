@@ -3,17 +3,15 @@ package com.appdynamics.monitors.kubernetes.SnapshotTasks;
 import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.util.AssertUtils;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
 import com.appdynamics.monitors.kubernetes.Metrics.UploadMetricsTask;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
 import com.appdynamics.monitors.kubernetes.RestClient;
 import com.appdynamics.monitors.kubernetes.Utilities;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.kubernetes.client.ApiClient;
-import io.kubernetes.client.Configuration;
-import io.kubernetes.client.apis.ExtensionsV1beta1Api;
 import io.kubernetes.client.models.V1beta1ReplicaSet;
 import io.kubernetes.client.models.V1beta1ReplicaSetList;
 import com.appdynamics.monitors.kubernetes.Globals;
@@ -25,7 +23,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
-import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_RECS_BATCH_SIZE;
 import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SCHEMA_DEF_RS;
 import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_SCHEMA_NAME_RS;
 import static com.appdynamics.monitors.kubernetes.Utilities.*;
@@ -55,26 +52,29 @@ public class ReplicaSnapshotRunner extends SnapshotRunnerBase {
             URL publishUrl = ensureSchema(config, apiKey, accountName, CONFIG_SCHEMA_NAME_RS, CONFIG_SCHEMA_DEF_RS);
 
             try {
-                V1beta1ReplicaSetList rsList;
+                beginBatches(config, CONFIG_SCHEMA_DEF_RS, publishUrl, accountName, apiKey);
+                beginDeltas(config, CONFIG_SCHEMA_NAME_RS, "object_uid", "deletionTimestamp", null);
                 try {
-                    ApiClient client = Utilities.initClient(config);
-                    this.setAPIServerTimeout(client, K8S_API_TIMEOUT);
-                    Configuration.setDefaultApiClient(client);
-                    ExtensionsV1beta1Api api = new ExtensionsV1beta1Api();
-                    this.setCoreAPIServerTimeout(api, K8S_API_TIMEOUT);
-                    rsList = api.listReplicaSetForAllNamespaces(null, null, true, null, null, null, null, null, null);
+                    fetchResource(config, ResourceType.REPLICASETS, new PageHandler<V1beta1ReplicaSetList>() {
+                        @Override
+                        public void onPage(V1beta1ReplicaSetList page) {
+                            createReplicasetPayload(page, config);
+                        }
+                    });
                 }
                 catch (Exception ex){
                     throw new Exception("Unable to connect to Kubernetes API server because it may be unavailable or the cluster credentials are invalid", ex);
                 }
-
-                createReplicasetPayload(rsList, config, publishUrl, accountName, apiKey);
+                finally {
+                    flushBatches();
+                }
+                publishTombstones();
 
                 /* Config to get Total metrics collected */
-                SummaryObj summaryScript = getSummaryMap().get("ReplicaScript");
+                SummaryObj summaryScript = getSummary(Dimension.SCRIPT, "ReplicaScript");
                 if (summaryScript == null) {
                     summaryScript = initScriptSummaryObject(config, "Replica");
-                    getSummaryMap().put("ReplicaScript", summaryScript);
+                    putSummary(Dimension.SCRIPT, "ReplicaScript", summaryScript);
                 }
 
                 Integer metrics_count = getMetricsFromSummary(getSummaryMap(), config).size();
@@ -99,94 +99,68 @@ public class ReplicaSnapshotRunner extends SnapshotRunnerBase {
         }
     }
 
-     ArrayNode createReplicasetPayload(V1beta1ReplicaSetList rsList, Map<String, String> config, URL publishUrl, String accountName, String apiKey) {
+     void createReplicasetPayload(V1beta1ReplicaSetList rsList, Map<String, String> config) {
         ObjectMapper mapper = new ObjectMapper();
-        ArrayNode arrayNode = mapper.createArrayNode();
 
-        long batchSize = Long.parseLong(config.get(CONFIG_RECS_BATCH_SIZE));
+        forEachItem(config, rsList.getItems(), new PayloadItemHandler<V1beta1ReplicaSet>() {
+            @Override
+            public void onItem(V1beta1ReplicaSet deployItem) {
+                    EventRecord deployObject = newRecord();
 
-        for (V1beta1ReplicaSet deployItem : rsList.getItems()) {
-            ObjectNode deployObject = mapper.createObjectNode();
+                    String namespace = deployItem.getMetadata().getNamespace();
+                    String clusterName = Utilities.ensureClusterName(config, deployItem.getMetadata().getClusterName());
 
-            String namespace = deployItem.getMetadata().getNamespace();
-            String clusterName = Utilities.ensureClusterName(config, deployItem.getMetadata().getClusterName());
-
-            SummaryObj summary = getSummaryMap().get(ALL);
-            if (summary == null) {
-                summary = initRSSummaryObject(config, ALL);
-                getSummaryMap().put(ALL, summary);
-            }
+                    SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
+                    if (summary == null) {
+                        summary = initRSSummaryObject(config, ALL);
+                        putSummary(Dimension.CLUSTER, ALL, summary);
+                    }
 
-            SummaryObj summaryNamespace = getSummaryMap().get(namespace);
-            if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
-                if (summaryNamespace == null) {
-                    summaryNamespace = initRSSummaryObject(config, namespace);
-                    getSummaryMap().put(namespace, summaryNamespace);
-                }
-            }
+                    SummaryObj summaryNamespace = getSummary(Dimension.NAMESPACE, namespace);
+                    if (Utilities.shouldCollectMetricsForNamespace(getConfiguration(), namespace)) {
+                        if (summaryNamespace == null) {
+                            summaryNamespace = initRSSummaryObject(config, namespace);
+                            putSummary(Dimension.NAMESPACE, namespace, summaryNamespace);
+                        }
+                    }
 
-            incrementField(summary, "ReplicaSets");
-            incrementField(summaryNamespace, "ReplicaSets");
+                    incrementField(summary, "ReplicaSets");
+                    incrementField(summaryNamespace, "ReplicaSets");
 
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getUid(), "object_uid");
-            deployObject = checkAddObject(deployObject, clusterName, "clusterName");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getCreationTimestamp(), "creationTimestamp");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
-            deployObject = checkAddObject(deployObject, deployItem.getMetadata().getName(), "name");
-            deployObject = checkAddObject(deployObject, namespace, "namespace");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getUid(), "object_uid");
+                    deployObject = checkAddObject(deployObject, clusterName, "clusterName");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getCreationTimestamp(), "creationTimestamp");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getDeletionTimestamp(), "deletionTimestamp");
+                    deployObject = checkAddObject(deployObject, deployItem.getMetadata().getName(), "name");
+                    deployObject = checkAddObject(deployObject, namespace, "namespace");
 
-            deployObject = checkAddInt(deployObject, deployItem.getSpec().getMinReadySeconds(), "minReadySecs");
+                    deployObject = checkAddInt(deployObject, deployItem.getSpec().getMinReadySeconds(), "minReadySecs");
 
-            int replicas = deployItem.getSpec().getReplicas();
-            deployObject = checkAddInt(deployObject, deployItem.getSpec().getReplicas(), "replicas");
+                    int replicas = deployItem.getSpec().getReplicas();
+                    deployObject = checkAddInt(deployObject, deployItem.getSpec().getReplicas(), "replicas");
 
-            incrementField(summary, "RsReplicas", replicas);
-            incrementField(summaryNamespace, "RsReplicas", replicas);
+                    incrementField(summary, "RsReplicas", replicas);
+                    incrementField(summaryNamespace, "RsReplicas", replicas);
 
 
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getAvailableReplicas(), "rsReplicasAvailable");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getFullyLabeledReplicas(), "replicasLabeled");
-            deployObject = checkAddInt(deployObject, deployItem.getStatus().getReadyReplicas(), "replicasReady");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getAvailableReplicas(), "rsReplicasAvailable");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getFullyLabeledReplicas(), "replicasLabeled");
+                    deployObject = checkAddInt(deployObject, deployItem.getStatus().getReadyReplicas(), "replicasReady");
 
-            Integer availableReplicas = deployItem.getStatus().getAvailableReplicas();
-            if (availableReplicas != null) {
-                incrementField(summary, "RsReplicasAvailable", deployItem.getStatus().getAvailableReplicas());
-                incrementField(summaryNamespace, "RsReplicasAvailable", deployItem.getStatus().getFullyLabeledReplicas());
-                int unavailable = replicas - availableReplicas;
-                deployObject = checkAddInt(deployObject, unavailable, "rsReplicasUnAvailable");
-                incrementField(summary, "RsReplicasUnAvailable", unavailable);
-                incrementField(summaryNamespace, "RsReplicasUnAvailable", unavailable);
-            }
+                    Integer availableReplicas = deployItem.getStatus().getAvailableReplicas();
+                    if (availableReplicas != null) {
+                        incrementField(summary, "RsReplicasAvailable", deployItem.getStatus().getAvailableReplicas());
+                        incrementField(summaryNamespace, "RsReplicasAvailable", deployItem.getStatus().getFullyLabeledReplicas());
+                        int unavailable = replicas - availableReplicas;
+                        deployObject = checkAddInt(deployObject, unavailable, "rsReplicasUnAvailable");
+                        incrementField(summary, "RsReplicasUnAvailable", unavailable);
+                        incrementField(summaryNamespace, "RsReplicasUnAvailable", unavailable);
+                    }
 
 
-            arrayNode.add(deployObject);
-            if (arrayNode.size() >= batchSize){
-                logger.info("Sending batch of {} Replica Set records", arrayNode.size());
-                
-
-                
-
-                String payload = arrayNode.toString();
-
-                arrayNode = arrayNode.removeAll();
-                if(!payload.equals("[]")){
-                    UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                    getConfiguration().getExecutorService().execute("UploadReplicaData", uploadEventsTask);
-                }
+                    publishRecord(deployObject);
             }
-        }
-
-         if (arrayNode.size() > 0){
-             logger.info("Sending last batch of {} Replica Set records", arrayNode.size());
-             String payload = arrayNode.toString();
-             arrayNode = arrayNode.removeAll();
-             if(!payload.equals("[]")){
-                 UploadEventsTask uploadEventsTask = new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload);
-                 getConfiguration().getExecutorService().execute("UploadReplicaData", uploadEventsTask);
-             }
-         }
-
-        return arrayNode;
+        });
     }
 
     protected SummaryObj initDefaultSummaryObject(Map<String, String> config){
@@ -0,0 +1,193 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import com.appdynamics.monitors.kubernetes.Utilities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Last restart count of every container, keyed by pod UID and container name, so that the restarts of a cycle
+// can be reported per pod and summed exactly at every summary level.
+// Counts are persisted to a journal under the extension directory. A cycle appends one line per container whose
+// count changed and one per container that disappeared, so the cost follows the churn rather than the cluster size.
+// The journal is rewritten from memory once it grows well past the number of live containers.
+// Journal lines: "S\t<pod uid>\t<container>\t<count>" sets a count, "D\t<pod uid>\t<container>" removes it.
+// Counts seen during a cycle are only committed by endCycle, so a cycle that fails half way is observed again.
+public class RestartStateStore {
+    private static final Logger logger = LoggerFactory.getLogger(RestartStateStore.class);
+    private static final int MIN_COMPACT_LINES = 1024;
+    private static final char SEPARATOR = '\t';
+
+    private static RestartStateStore store = null;
+
+    private final File journal;
+    private final Map<String, Integer> counts = new HashMap<String, Integer>();
+    //counts observed during the cycle that differ from the committed ones
+    private final Map<String, Integer> pending = new ConcurrentHashMap<String, Integer>();
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private int journalLines = 0;
+    //false until a cycle was committed, the restarts of the first cycle are the baseline
+    private boolean primed = false;
+    //the journal is rewritten once per run, which also drops a last line cut short by a crash
+    private boolean rewrite = true;
+
+    public RestartStateStore(File journal){
+        this.journal = journal;
+        load();
+    }
+
+    public static synchronized RestartStateStore get(){
+        if (store == null) {
+            store = new RestartStateStore(new File(Utilities.getExtensionDirectory(), "restarts.journal"));
+        }
+        return store;
+    }
+
+    public synchronized void beginCycle(){
+        pending.clear();
+        seen.clear();
+    }
+
+    // Restarts of the container since the last committed cycle. A container that restarted from a lower count was
+    // recreated, all its restarts are new. Containers of pods created since the last cycle count all their restarts
+    public int delta(String podUid, String container, int restartCount){
+        String key = podUid + SEPARATOR + container;
+        seen.add(key);
+        Integer previous;
+        boolean countNew;
+        synchronized (this) {
+            previous = counts.get(key);
+            countNew = primed;
+        }
+        if (previous != null && previous == restartCount) {
+            return 0;
+        }
+        pending.put(key, restartCount);
+        if (previous == null) {
+            return countNew ? restartCount : 0;
+        }
+        return restartCount > previous ? restartCount - previous : restartCount;
+    }
+
+    // Commits the counts of the cycle and forgets the containers that were not seen.
+    // Only call after all pods were listed, otherwise the containers that were not listed are forgotten
+    public synchronized void endCycle(){
+        StringBuilder lines = new StringBuilder();
+        int written = 0;
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue());
+            lines.append('S').append(SEPARATOR).append(entry.getKey()).append(SEPARATOR).append(entry.getValue()).append('\n');
+            written++;
+        }
+        Iterator<String> it = counts.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            if (!seen.contains(key)) {
+                it.remove();
+                lines.append('D').append(SEPARATOR).append(key).append('\n');
+                written++;
+            }
+        }
+        pending.clear();
+        seen.clear();
+        primed = true;
+        try {
+            if (rewrite || journalLines + written > Math.max(MIN_COMPACT_LINES, 2 * counts.size())) {
+                compact();
+            }
+            else if (written > 0) {
+                Files.write(journal.toPath(), lines.toString().getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                journalLines += written;
+            }
+            logger.debug("Restart state: {} containers, {} changes journaled", counts.size(), written);
+        }
+        catch (IOException ex){
+            logger.error("Unable to save the restart state to {}. Restarts are reported from memory until it can be saved", journal, ex);
+        }
+    }
+
+    public synchronized int size(){
+        return counts.size();
+    }
+
+    //rewrites the journal with the live counts only
+    private void compact() throws IOException {
+        File dir = journal.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory " + dir);
+        }
+        File temp = new File(journal.getPath() + ".tmp");
+        Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8);
+        try {
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                writer.write("S" + SEPARATOR + entry.getKey() + SEPARATOR + entry.getValue() + "\n");
+            }
+        }
+        finally {
+            writer.close();
+        }
+        Files.move(temp.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalLines = counts.size();
+        rewrite = false;
+    }
+
+    private void load(){
+        if (!journal.exists()) {
+            return;
+        }
+        int lineNumber = 0;
+        try {
+            BufferedReader reader = Files.newBufferedReader(journal.toPath(), StandardCharsets.UTF_8);
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    applyLine(line);
+                }
+            }
+            finally {
+                reader.close();
+            }
+            journalLines = lineNumber;
+            primed = true;
+            logger.info("Restart state of {} containers loaded from {}", counts.size(), journal);
+        }
+        catch (Exception ex){
+            counts.clear();
+            logger.error("Unable to read the restart state {} at line {}. Restarts of the first cycle are the baseline again",
+                    journal, lineNumber, ex);
+        }
+    }
+
+    //a line cut short by a crash is skipped
+    private void applyLine(String line){
+        String[] parts = line.split(String.valueOf(SEPARATOR));
+        if (parts.length == 4 && "S".equals(parts[0])) {
+            try {
+                counts.put(parts[1] + SEPARATOR + parts[2], Integer.parseInt(parts[3]));
+            }
+            catch (NumberFormatException ex){
+                logger.warn("Skipping restart state line {}", line);
+            }
+        }
+        else if (parts.length == 3 && "D".equals(parts[0])) {
+            counts.remove(parts[1] + SEPARATOR + parts[2]);
+        }
+        else if (!line.isEmpty()) {
+            logger.warn("Skipping restart state line {}", line);
+        }
+    }
+}
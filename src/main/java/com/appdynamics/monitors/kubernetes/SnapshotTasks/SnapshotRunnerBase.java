@@ -5,6 +5,15 @@ import com.appdynamics.extensions.TasksExecutionServiceProvider;
 import com.appdynamics.extensions.conf.MonitorConfiguration;
 import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.monitors.kubernetes.Constants;
+import com.appdynamics.monitors.kubernetes.Kube.ClusterCache;
+import com.appdynamics.monitors.kubernetes.Kube.ItemChunker;
+import com.appdynamics.monitors.kubernetes.Kube.KubeClientProvider;
+import com.appdynamics.monitors.kubernetes.Kube.ListRequest;
+import com.appdynamics.monitors.kubernetes.Kube.ListScopes;
+import com.appdynamics.monitors.kubernetes.Kube.PageHandler;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
+import com.appdynamics.monitors.kubernetes.Kube.ScopeExecutor;
+import com.appdynamics.monitors.kubernetes.Kube.WatchCache;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
 import com.appdynamics.monitors.kubernetes.Utilities;
@@ -21,7 +30,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.URL;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -31,13 +43,22 @@ import static com.appdynamics.monitors.kubernetes.Utilities.ALL;
 public abstract class SnapshotRunnerBase implements AMonitorTaskRunnable {
     protected CountDownLatch countDownLatch;
     protected static final Logger logger = LoggerFactory.getLogger(SnapshotRunnerBase.class);
-    private HashMap<String, SummaryObj> summaryMap = new HashMap<String, SummaryObj>();
+    //summaries of the cycle by dimension and id of the value
+    private SummaryObj[][] summaries = new SummaryObj[Dimension.values().length][0];
     private TasksExecutionServiceProvider serviceProvider;
 
     private MonitorConfiguration configuration;
     private String taskName;
     private Map<String, String> entityConfig = null;
     protected static int K8S_API_TIMEOUT = 240;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_ITEMS = 256;
+    private static volatile boolean parallelPayloadWarned = false;
+    private DeltaTracker deltas = null;
+    private EventBatcher batcher = null;
+    private RecordSchema recordSchema = RecordSchema.EMPTY;
+    private EventBatcher.Sender batchSender = null;
+    private final ThreadLocal<Shard> currentShard = new ThreadLocal<Shard>();
 
     public SnapshotRunnerBase(){
 
@@ -130,6 +151,253 @@ public abstract class SnapshotRunnerBase implements AMonitorTaskRunnable {
         }
     }
 
+    //reads the objects from the shared watch cache when enabled, otherwise lists them from the API server
+    protected <T, L> L listResource(Map<String, String> config, ResourceType<T, L> resourceType) throws Exception {
+        return listResource(config, resourceType, new ListRequest());
+    }
+
+    protected <T, L> L listResource(Map<String, String> config, ResourceType<T, L> resourceType, ListRequest scope) throws Exception {
+        if (ClusterCache.isEnabled(config)) {
+            WatchCache<T, L> cache = ClusterCache.get(config, resourceType, scope);
+            if (cache.waitForSync(ClusterCache.getSyncTimeout(config), TimeUnit.SECONDS)) {
+                logger.debug("Using cached {} objects at resource version {}", resourceType.getName(), cache.getResourceVersion());
+                return cache.snapshotList();
+            }
+            logger.info("Cache for {} is not synced yet. Listing from the API server", resourceType.getName());
+        }
+        ApiClient client = KubeClientProvider.getClient(config);
+        return resourceType.list(client, scope.scope());
+    }
+
+    //hands the objects over to the handler page by page, so that large clusters are never held in memory as a single list.
+    //with scopeListCalls the configured namespaces and nodes are listed concurrently, and with namespaceFanOut
+    //cluster wide lists are split per namespace. Pages are merged as they arrive. The handler is never called concurrently
+    protected <T, L> void fetchResource(final Map<String, String> config, final ResourceType<T, L> resourceType, final PageHandler<L> handler) throws Exception {
+        List<ListRequest> scopes = ListScopes.resolve(config, resourceType);
+        if (ListScopes.isFanOutEnabled(config) && !ClusterCache.isEnabled(config)) {
+            scopes = ListScopes.fanOut(KubeClientProvider.getClient(config), resourceType, scopes, Utilities.getListPageSize(config));
+        }
+        if (scopes.isEmpty()) {
+            handler.onPage(resourceType.newList(new ArrayList<T>()));
+            return;
+        }
+        if (scopes.size() == 1) {
+            fetchScope(config, resourceType, scopes.get(0), handler);
+            return;
+        }
+        final PageHandler<L> serialHandler = new PageHandler<L>() {
+            @Override
+            public synchronized void onPage(L page) throws Exception {
+                handler.onPage(page);
+            }
+        };
+        List<Callable<Void>> calls = new ArrayList<Callable<Void>>();
+        for (final ListRequest scope : scopes) {
+            calls.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    fetchScope(config, resourceType, scope, serialHandler);
+                    return null;
+                }
+            });
+        }
+        String concurrency = config.get(Constants.CONFIG_SCOPE_LIST_CONCURRENCY);
+        ScopeExecutor.runAll(concurrency == null || concurrency.isEmpty() ? ScopeExecutor.DEFAULT_CONCURRENCY : Integer.parseInt(concurrency), calls);
+    }
+
+    //the watch cache snapshot is already in memory and is passed as one page.
+    //with streamListResponses the list body is decoded item by item and passed on in chunks of batchSize objects
+    private <T, L> void fetchScope(Map<String, String> config, ResourceType<T, L> resourceType, ListRequest scope, PageHandler<L> handler) throws Exception {
+        int pageSize = Utilities.getListPageSize(config);
+        if (ClusterCache.isEnabled(config)) {
+            handler.onPage(listResource(config, resourceType, scope));
+            return;
+        }
+        ApiClient client = KubeClientProvider.getClient(config);
+        if ("true".equalsIgnoreCase(config.get(Constants.CONFIG_STREAM_LIST_RESPONSES))) {
+            ItemChunker<T, L> chunker = new ItemChunker<T, L>(resourceType, Integer.parseInt(config.get(Constants.CONFIG_RECS_BATCH_SIZE)), handler);
+            resourceType.streamPaged(client, scope, pageSize, Utilities.isProjectionEnabled(config) ? resourceType.getProjection() : null, chunker);
+            chunker.flush();
+        }
+        else if (pageSize > 0) {
+            resourceType.listPaged(client, scope, pageSize, handler);
+        }
+        else {
+            handler.onPage(resourceType.list(client, scope.scope()));
+        }
+    }
+
+    //with publishDeltasOnly, only the records that changed since the last cycle are published
+    protected void beginDeltas(Map<String, String> config, String schemaName, String keyField, String tombstoneField, String tombstoneValue){
+        deltas = DeltaTracker.get(config, schemaName, keyField, tombstoneField, tombstoneValue);
+        if (deltas != null) {
+            deltas.beginCycle(config);
+        }
+    }
+
+    protected boolean shouldPublish(EventRecord record){
+        return deltas == null || deltas.shouldPublish(record);
+    }
+
+    // Records are sent in batches of at most batchSize records and batchMaxBytes bytes.
+    // The batches go through the upload queue of the schema, which blocks the runner while it is full.
+    // Batches that cannot be delivered are spooled to disk and replayed from there.
+    // The records are encoded with the schema compiled from the schemaDefinition config entry
+    protected void beginBatches(final Map<String, String> config, String schemaDefinition, final URL publishUrl, final String accountName, final String apiKey){
+        recordSchema = RecordSchema.compile(config.get(schemaDefinition));
+        String schemaName = EventSpool.getSchemaName(publishUrl);
+        final UploadQueue uploadQueue = UploadQueue.get(config, schemaName);
+        EventSpool spool = EventSpool.get(config, schemaName);
+        if (spool != null) {
+            spool.setTarget(publishUrl, accountName, apiKey);
+        }
+        batchSender = new EventBatcher.Sender() {
+            @Override
+            public void send(EventPayload payload, int records) {
+                try {
+                    uploadQueue.submit(new UploadEventsTask(getTaskName(), config, publishUrl, accountName, apiKey, payload));
+                }
+                catch (InterruptedException ex){
+                    Thread.currentThread().interrupt();
+                    payload.release();
+                    logger.error("Interrupted while queueing a batch of {} {} records. The batch is dropped", records, getTaskName());
+                }
+            }
+        };
+        batcher = newBatcher(config);
+    }
+
+    private EventBatcher newBatcher(Map<String, String> config){
+        return new EventBatcher(getTaskName(), Long.parseLong(config.get(Constants.CONFIG_RECS_BATCH_SIZE)), Utilities.getBatchMaxBytes(config), batchSender);
+    }
+
+    protected EventRecord newRecord(){
+        return new EventRecord(recordSchema);
+    }
+
+    protected void publishRecord(EventRecord record){
+        if (!shouldPublish(record)) {
+            return;
+        }
+        Shard shard = currentShard.get();
+        try {
+            (shard == null ? batcher : shard.batcher).add(record);
+        }
+        catch (IOException ex){
+            logger.error("Unable to encode {} record", getTaskName(), ex);
+        }
+    }
+
+    // Hands the items over to the handler. With parallelPayload, large lists are split into chunks that are
+    // built on the payload pool. Only the watch cache hands a whole list over as one page: listed and streamed
+    // pages are at most listPageSize or batchSize objects, too small to be worth splitting, so they are built in
+    // order. Each chunk updates its own summary shard and sends its own batches, and the shards are merged into
+    // the summaries of the task in chunk order, so the result does not depend on scheduling.
+    // getSummary, putSummary and publishRecord go to the shard of the chunk; any other state the handler
+    // updates must be thread-safe
+    protected <T> void forEachItem(final Map<String, String> config, final List<T> items, final PayloadItemHandler<T> handler){
+        int parallelism = getPayloadParallelism(config);
+        if (parallelism > 1 && !ClusterCache.isEnabled(config)) {
+            if (!parallelPayloadWarned) {
+                parallelPayloadWarned = true;
+                logger.warn("parallelPayload only applies with useWatchCache. The payloads are built in order");
+            }
+            parallelism = 1;
+        }
+        int chunks = Math.min(parallelism * CHUNKS_PER_THREAD, items.size() / MIN_CHUNK_ITEMS);
+        if (parallelism < 2 || chunks < 2 || batcher == null) {
+            for (T item : items) {
+                handler.onItem(item);
+            }
+            return;
+        }
+        final Shard[] shards = new Shard[chunks];
+        final int chunkSize = (items.size() + chunks - 1) / chunks;
+        PayloadExecutor.forEachChunk(parallelism, chunks, new PayloadExecutor.ChunkHandler() {
+            @Override
+            public void onChunk(int chunk) {
+                Shard shard = new Shard(newBatcher(config));
+                currentShard.set(shard);
+                try {
+                    int end = Math.min(items.size(), (chunk + 1) * chunkSize);
+                    for (int i = chunk * chunkSize; i < end; i++) {
+                        handler.onItem(items.get(i));
+                    }
+                    shard.batcher.flush();
+                }
+                finally {
+                    currentShard.remove();
+                }
+                shards[chunk] = shard;
+            }
+        });
+        for (Shard shard : shards) {
+            mergeShard(shard);
+        }
+    }
+
+    private void mergeShard(Shard shard){
+        for (Dimension dimension : Dimension.values()) {
+            SummaryObj[] byId = shard.summaries[dimension.ordinal()];
+            for (int id = 0; id < byId.length; id++) {
+                if (byId[id] == null) {
+                    continue;
+                }
+                SummaryObj[] target = summaries[dimension.ordinal()];
+                if (id < target.length && target[id] != null) {
+                    target[id].merge(byId[id]);
+                }
+                else {
+                    putSummary(summaries, dimension, id, byId[id]);
+                }
+            }
+        }
+    }
+
+    private static int getPayloadParallelism(Map<String, String> config){
+        if (!"true".equalsIgnoreCase(config.get(Constants.CONFIG_PARALLEL_PAYLOAD))) {
+            return 1;
+        }
+        String parallelism = config.get(Constants.CONFIG_PAYLOAD_PARALLELISM);
+        return parallelism == null || parallelism.isEmpty() ? PayloadExecutor.getDefaultParallelism() : Integer.parseInt(parallelism.trim());
+    }
+
+    public interface PayloadItemHandler<T> {
+        void onItem(T item);
+    }
+
+    //summaries and batcher of one chunk of a parallel payload
+    private static class Shard {
+        private final SummaryObj[][] summaries = new SummaryObj[Dimension.values().length][0];
+        private final EventBatcher batcher;
+
+        Shard(EventBatcher batcher){
+            this.batcher = batcher;
+        }
+    }
+
+    protected void flushBatches(){
+        if (batcher != null) {
+            batcher.flush();
+        }
+    }
+
+    //publishes the records of the objects deleted since the last cycle. Must only be called after all objects were listed
+    protected void publishTombstones(){
+        if (deltas == null) {
+            return;
+        }
+        for (EventRecord tombstone : deltas.endCycle()) {
+            try {
+                batcher.add(tombstone);
+            }
+            catch (IOException ex){
+                logger.error("Unable to encode {} record", getTaskName(), ex);
+            }
+        }
+        flushBatches();
+    }
+
     protected void setCoreAPIServerTimeout(CoreV1Api api, long seconds){
         if (api != null){
             api.getApiClient().getHttpClient().setConnectTimeout(seconds, TimeUnit.SECONDS);
@@ -197,14 +465,11 @@ public abstract class SnapshotRunnerBase implements AMonitorTaskRunnable {
         List<Metric> metricList = new ArrayList<Metric>();
         ArrayList<SummaryObj> objList = getSummaryDataList(summaryMap, config);
         for(SummaryObj summaryObj : objList){
-            JsonNode obj = summaryObj.getData();
-            Iterator<Map.Entry<String, JsonNode>> nodes = obj.fields();
-            while (nodes.hasNext()){
-                Map.Entry<String, JsonNode> entry = nodes.next();
-                String fieldName = entry.getKey();
-                if (!fieldName.equals("batch_ts") && !fieldName.equals("nodename") && !fieldName.equals("namespace")) {
+            for (int i = 0; i < summaryObj.getFieldCount(); i++) {
+                String fieldName = summaryObj.getFieldName(i);
+                String val = summaryObj.getValueText(i);
+                if (val != null && !fieldName.equals("batch_ts") && !fieldName.equals("nodename") && !fieldName.equals("namespace")) {
                     String path = String.format("%s%s%s", summaryObj.getPath(), METRIC_SEPARATOR, fieldName);
-                    String val = entry.getValue().asText();
                     Metric m = new Metric(fieldName, val, path, "OBSERVATION", "CURRENT", "INDIVIDUAL");
                     metricList.add(m);
                 }
@@ -233,10 +498,10 @@ public abstract class SnapshotRunnerBase implements AMonitorTaskRunnable {
     protected SummaryObj initDefaultSummaryMap(Map<String, String> config){
         Utilities.ensureClusterName(config, "");
 
-        SummaryObj summary = getSummaryMap().get(ALL);
+        SummaryObj summary = getSummary(Dimension.CLUSTER, ALL);
         if (summary == null) {
             summary = initDefaultSummaryObject(config);
-            getSummaryMap().put(ALL, summary);
+            putSummary(Dimension.CLUSTER, ALL, summary);
         }
         return summary;
     }
@@ -244,7 +509,39 @@ public abstract class SnapshotRunnerBase implements AMonitorTaskRunnable {
     protected  abstract SummaryObj initDefaultSummaryObject(Map<String, String> config);
 
 
+    //inside forEachItem, the summaries of the chunk being built
+    public SummaryObj getSummary(Dimension dimension, String value) {
+        Shard shard = currentShard.get();
+        SummaryObj[] byId = (shard == null ? summaries : shard.summaries)[dimension.ordinal()];
+        int id = dimension.id(value);
+        return id < byId.length ? byId[id] : null;
+    }
+
+    public void putSummary(Dimension dimension, String value, SummaryObj summary) {
+        Shard shard = currentShard.get();
+        putSummary(shard == null ? summaries : shard.summaries, dimension, dimension.id(value), summary);
+    }
+
+    private static void putSummary(SummaryObj[][] target, Dimension dimension, int id, SummaryObj summary) {
+        SummaryObj[] byId = target[dimension.ordinal()];
+        if (id >= byId.length) {
+            byId = Arrays.copyOf(byId, Math.max(id + 1, byId.length * 2));
+            target[dimension.ordinal()] = byId;
+        }
+        byId[id] = summary;
+    }
+
+    //all summaries of the cycle, keyed by dimension and value
     public HashMap<String, SummaryObj> getSummaryMap() {
+        LinkedHashMap<String, SummaryObj> summaryMap = new LinkedHashMap<String, SummaryObj>();
+        for (Dimension dimension : Dimension.values()) {
+            SummaryObj[] byId = summaries[dimension.ordinal()];
+            for (int id = 0; id < byId.length; id++) {
+                if (byId[id] != null) {
+                    summaryMap.put(String.format("%s/%s", dimension, dimension.getValue(id)), byId[id]);
+                }
+            }
+        }
         return summaryMap;
     }
 
@@ -1,29 +1,34 @@
 package com.appdynamics.monitors.kubernetes.SnapshotTasks;
 
-import com.appdynamics.extensions.MetricWriteHelper;
-import com.appdynamics.extensions.conf.MonitorConfiguration;
-import com.appdynamics.extensions.metrics.Metric;
-import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
 import com.appdynamics.monitors.kubernetes.RestClient;
+import com.appdynamics.monitors.kubernetes.SchemaCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
 
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_UPLOAD_MAX_RETRIES;
+
+// Posts one batch of records to the Events API.
+// 429, 5xx and transport failures are retried with exponential backoff and jitter.
+// The task owns the payload and releases it once the batch is delivered, spooled or dropped
 public class UploadEventsTask implements Runnable{
+    private static final int DEFAULT_MAX_RETRIES = 5;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
     private URL publishUrl;
-    private String payload;
+    private EventPayload payload;
     private String accountName;
     private String apiKey;
     private String taskName;
     private Map<String, String> config;
 
     private static final Logger logger = LoggerFactory.getLogger(UploadEventsTask.class);
-    public UploadEventsTask(String taskName, Map<String, String> config, URL url, String accountName, String apiKey, String requestBody) {
+    public UploadEventsTask(String taskName, Map<String, String> config, URL url, String accountName, String apiKey, EventPayload requestBody) {
         this.publishUrl = url;
         this.payload = requestBody;
         this.accountName = accountName;
@@ -35,15 +40,85 @@ public class UploadEventsTask implements Runnable{
     @Override
     public void run() {
         try {
+            upload();
+        }
+        finally {
+            payload.release();
+        }
+    }
 
-            if(!payload.equals("[]")){
-                logger.info("Task {}. Sending data to AppD events API", this.taskName);
-                logger.debug("Upload task: about to push Events API: {}", payload);
-                RestClient.doRequest(publishUrl, config, accountName, apiKey, payload, "POST");
+    private void upload() {
+        //live batches are uploaded directly, the spool only takes the batches that used up their retries
+        EventSpool spool = EventSpool.get(config, EventSpool.getSchemaName(publishUrl));
+        int maxRetries = getMaxRetries(config);
+        logger.info("Task {}. Sending data to AppD events API", this.taskName);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Upload task: about to push Events API: {}", payload);
+        }
+        for (int attempt = 0; ; attempt++) {
+            String failure;
+            try {
+                int code = RestClient.postEvents(publishUrl, config, accountName, apiKey, payload);
+                if (code >= 200 && code < 300) {
+                    return;
+                }
+                if (code != 429 && code < 500) {
+                    logger.error("Task {}. Events API rejected the batch with HTTP {}. The batch is dropped", taskName, code);
+                    if (code == 400 || code == 404) {
+                        //the schema may be missing or differ from its definition
+                        SchemaCache.invalidate(EventSpool.getSchemaName(publishUrl));
+                    }
+                    return;
+                }
+                failure = String.format("HTTP %d", code);
+            }
+            catch (IOException ex){
+                failure = ex.toString();
+            }
+            if (attempt >= maxRetries) {
+                logger.error("Task {}. Unable to send the batch after {} attempts. Last failure: {}", taskName, attempt + 1, failure);
+                toSpool(spool);
+                return;
+            }
+            long delay = getBackoffMillis(attempt);
+            logger.warn("Task {}. Events API upload failed ({}). Retrying in {} ms", taskName, failure, delay);
+            try {
+                Thread.sleep(delay);
+            }
+            catch (InterruptedException ex){
+                Thread.currentThread().interrupt();
+                logger.error("Task {}. Upload interrupted", taskName);
+                toSpool(spool);
+                return;
             }
         }
-        catch(Exception e){
-            logger.error("Event upload task error", e.getMessage());
+    }
+
+    private void toSpool(EventSpool spool){
+        if (spool == null) {
+            logger.error("Task {}. The batch is dropped", taskName);
+            return;
+        }
+        try {
+            spool.append(payload);
+            logger.info("Task {}. Batch spooled to disk to be sent later", taskName);
+        }
+        catch (IOException ex){
+            logger.error("Task {}. Unable to spool the batch. The batch is dropped", taskName, ex);
+        }
+    }
+
+    //random delay up to an exponentially growing cap
+    static long getBackoffMillis(int attempt){
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(cap / 2, cap + 1);
+    }
+
+    private static int getMaxRetries(Map<String, String> config){
+        String retries = config.get(CONFIG_UPLOAD_MAX_RETRIES);
+        if (retries == null || retries.isEmpty()) {
+            return DEFAULT_MAX_RETRIES;
         }
+        return Math.max(0, Integer.parseInt(retries.trim()));
     }
 }
@@ -0,0 +1,92 @@
+package com.appdynamics.monitors.kubernetes.SnapshotTasks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_UPLOAD_QUEUE_SIZE;
+import static com.appdynamics.monitors.kubernetes.Constants.CONFIG_UPLOAD_WORKERS;
+
+// Upload stage of one schema: a bounded queue of batches drained by a fixed number of sender threads.
+// When the Events API is slower than the runners, submit blocks the runner instead of piling batches up in memory.
+// Queues live for the lifetime of the extension, the runners are created on every cycle.
+public class UploadQueue {
+    private static final Logger logger = LoggerFactory.getLogger(UploadQueue.class);
+    private static final int DEFAULT_QUEUE_SIZE = 16;
+    private static final int DEFAULT_WORKERS = 2;
+
+    private static final Map<String, UploadQueue> queues = new HashMap<String, UploadQueue>();
+
+    private final String name;
+    private final BlockingQueue<Runnable> queue;
+
+    private UploadQueue(String name, int capacity, int workers){
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<Runnable>(Math.max(1, capacity));
+        for (int i = 1; i <= Math.max(1, workers); i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            }, String.format("events-upload-%s-%d", name, i));
+            thread.setDaemon(true);
+            thread.start();
+        }
+        logger.info("Started {} upload workers for {} with a queue of {} batches", Math.max(1, workers), name, Math.max(1, capacity));
+    }
+
+    public static synchronized UploadQueue get(Map<String, String> config, String name){
+        UploadQueue uploadQueue = queues.get(name);
+        if (uploadQueue == null) {
+            uploadQueue = new UploadQueue(name, getInt(config, CONFIG_UPLOAD_QUEUE_SIZE, DEFAULT_QUEUE_SIZE), getInt(config, CONFIG_UPLOAD_WORKERS, DEFAULT_WORKERS));
+            queues.put(name, uploadQueue);
+        }
+        return uploadQueue;
+    }
+
+    //blocks while the queue is full
+    public void submit(Runnable upload) throws InterruptedException {
+        if (!queue.offer(upload)) {
+            logger.info("Upload queue of {} is full. Waiting for the Events API", name);
+            long start = System.currentTimeMillis();
+            queue.put(upload);
+            logger.debug("Waited {} ms to queue a {} batch", System.currentTimeMillis() - start, name);
+        }
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    private void drain(){
+        while (true) {
+            try {
+                Runnable upload = queue.poll(1, TimeUnit.MINUTES);
+                if (upload != null) {
+                    upload.run();
+                }
+            }
+            catch (InterruptedException ex){
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (Exception ex){
+                logger.error("Upload of a {} batch failed", name, ex);
+            }
+        }
+    }
+
+    private static int getInt(Map<String, String> config, String key, int defaultValue){
+        String value = config.get(key);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.trim());
+    }
+}
@@ -1,8 +1,11 @@
 package com.appdynamics.monitors.kubernetes;
 
 import com.appdynamics.extensions.conf.MonitorConfiguration;
+import com.appdynamics.monitors.kubernetes.Kube.QuantityParser;
+import com.appdynamics.monitors.kubernetes.Kube.ScopeFilter;
 import com.appdynamics.monitors.kubernetes.Models.AdqlSearchObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.EventRecord;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -14,13 +17,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static com.appdynamics.monitors.kubernetes.Constants.*;
 
@@ -31,6 +32,8 @@ public class Utilities {
     public static String ClusterName = "";
     public static ArrayList<AdqlSearchObj> savedSearches = new ArrayList<AdqlSearchObj>();
     public static int FIELD_LENGTH_LIMIT = 4000;
+    public static final String TRUNCATED_MARKER = "...";
+    public static boolean truncateOversizedFields = false;
 
     public static URL getUrl(String input){
         URL url = null;
@@ -55,129 +58,24 @@ public class Utilities {
         return entityConfig;
     }
 
+    //verdicts of the nodes and namespaces lists compiled for the cycle by ScopeFilter
     public static boolean shouldCollectMetricsForNode(MonitorConfiguration configuration, String node){
-        boolean should = false;
-        try {
-            List<Map<String, String>> nodes = (List<Map<String, String>>) configuration.getConfigYml().get(CONFIG_NODE_NODES);
-            if (nodes != null) {
-                for (Map<String, String> map : nodes) {
-                    if (map.get("name").equals(node) || map.get("name").equals(ALL)) {
-                        should = true;
-                        break;
-                    }
-                }
-            }
-        }
-        catch (Exception ex){
-            logger.error("Issues when parsing nodes config", ex);
-        }
-        return should;
+        return ScopeFilter.get(configuration.getConfigYml(), CONFIG_NODE_NODES).accepts(node);
     }
 
     public static boolean shouldCollectMetricsForNamespace(MonitorConfiguration configuration, String ns){
-        boolean should = false;
-        try {
-            List<Map<String, String>> namespaces = (List<Map<String, String>>) configuration.getConfigYml().get(CONFIG_NODE_NAMESPACES);
-            if (namespaces != null) {
-                for (Map<String, String> map : namespaces) {
-                    if (map.get("name").equals(ns) || map.get("name").equals(ALL)) {
-                        should = true;
-                        break;
-                    }
-                }
-            }
-        }
-        catch (Exception ex){
-            logger.error("Issues when parsing namespace config", ex);
-        }
-        return should;
+        return ScopeFilter.get(configuration.getConfigYml(), CONFIG_NODE_NAMESPACES).accepts(ns);
     }
 
+    //value of the quantity in its base unit, cores or bytes
     public static BigDecimal convertBigDecimalMemCPUValues(String value, String type){
-        String pattern = "([0-9]+)(,)([0-9]+)([mMiG]+)*|([0-9]+)([mMiG]+)*";
-        // Group 1 number
-        // Group 2 ,
-        // Group 3 number
-        // Group 4 M,Mi,G,Gi,m
-        
-        // Group 5 number
-        // Group 6 M,Mi,G,Gi,m
-
-        // Create a Pattern object
-        Pattern r = Pattern.compile(pattern);
-
-        // Now create matcher object.
-        Matcher m = r.matcher(value);
-        
-        BigDecimal valueBigDecimal = new BigDecimal(0);
-
-
-        if (m.find( )) {
-            if (m.group(3) != "" && null != m.group(3)) {
-                valueBigDecimal = new BigDecimal(m.group(1)+"."+m.group(3));
-                if (m.group(4) != "" && null != m.group(4)) {
-                    switch (m.group(4)) {
-                        case "m":
-                            valueBigDecimal.multiply(new BigDecimal(1));
-                            break;
-                        case "M":
-                            valueBigDecimal.multiply(new BigDecimal(1000));
-                            break;
-                        case "Mi":
-                            valueBigDecimal.multiply(new BigDecimal(1024));
-                            break;
-                        case "G":
-                            valueBigDecimal.multiply(new BigDecimal(1000*1000));
-                            break;
-                        case "Gi":
-                            valueBigDecimal.multiply(new BigDecimal(1024*1024));
-                            break;
-                        default:
-                            logger.error("Limits using different known values, expected m,M,Mi,G,Gi, received: "+ m.group(4) );
-                            break;
-                    }
-                }
-                else{
-                    valueBigDecimal.multiply(new BigDecimal(1000));
-                }
-                
-            } else if (m.group(5) != "" && null != m.group(5)) {
-                valueBigDecimal = new BigDecimal(m.group(5));
-                if (m.group(6) != "" && null != m.group(6)) {
-                    switch (m.group(6)) {
-                        case "m":
-                            valueBigDecimal.multiply(new BigDecimal(1));
-                            break;
-                        case "M":
-                            valueBigDecimal.multiply(new BigDecimal(1000));
-                            break;
-                        case "Mi":
-                            valueBigDecimal.multiply(new BigDecimal(1024));
-                            break;
-                        case "G":
-                            valueBigDecimal.multiply(new BigDecimal(1000*1000));
-                            break;
-                        case "Gi":
-                            valueBigDecimal.multiply(new BigDecimal(1024*1024));
-                            break;
-                        default:
-                            logger.error("Limits using different known values, expected m,M,Mi,G,Gi, received: "+ m.group(4) );
-                            break;
-                    }
-                }
-                else{
-                    
-                    valueBigDecimal.multiply(new BigDecimal(1000));
-                }
-
-            }
-
-        } else {
-            logger.error("Conversion dont match '"+pattern+"' - NO MATCH, value="+value);
+        try {
+            return BigDecimal.valueOf(QuantityParser.toMilli(value), 3);
+        }
+        catch (NumberFormatException ex){
+            logger.error("Unable to parse the quantity {}", value);
+            return BigDecimal.ZERO;
         }
-
-        return valueBigDecimal;
-        
     }
 
     public static URL ensureSchema(Map<String, String> config, String apiKey, String accountName, String schemaName, String schemaDefinition){
@@ -192,15 +90,37 @@ public class Utilities {
 //            logger.error("Unable to determine the latest Pod schema", ioEX);
 //        }
 
+        String name = config.get(schemaName);
+        String fingerprint = SchemaCache.getFingerprint(getEventsAPIUrl(config), requestBody);
+        if (SchemaCache.isVerified(name, fingerprint)) {
+            return publishUrl;
+        }
+
         JsonNode serverSchema = RestClient.doRequest(schemaUrl, config,accountName, apiKey, "", "GET");
         if(serverSchema == null){
 
             logger.debug("Schema Url {} does not exists. creating {}", schemaUrl, requestBody);
 
-            RestClient.doRequest(schemaUrl, config,accountName, apiKey, requestBody, "POST");
+            try {
+                int code = RestClient.postEvents(schemaUrl, config, accountName, apiKey, requestBody);
+                //409: created in the meantime
+                if ((code >= 200 && code < 300) || code == 409) {
+                    SchemaCache.markVerified(name, fingerprint);
+                }
+                else {
+                    logger.error("Unable to create schema {}. HTTP {}", name, code);
+                }
+            }
+            catch (IOException ex){
+                logger.error("Unable to create schema {}. Reason {}", name, ex.toString());
+            }
         }
         else {
             logger.info("Schema exists");
+            if (SchemaCache.isChanged(name, fingerprint)) {
+                logger.warn("The definition of schema {} changed since it was last verified. The schema in the Events API is not updated", name);
+            }
+            SchemaCache.markVerified(name, fingerprint);
 //            if (existingSchema != null) {
 //                logger.info("Existing schema is not empty");
 //                ArrayNode updated = Utilities.checkSchemaForUpdates(serverSchema, existingSchema);
@@ -220,19 +140,88 @@ public class Utilities {
     }
 
 
+    //fields of FIELD_LENGTH_LIMIT bytes or more are sent empty, or cut to fit followed by TRUNCATED_MARKER with oversizedFields: truncate
     public static ObjectNode checkAddObject(ObjectNode objectNode, Object object, String fieldName){
-        if(object != null && object.toString() != null){
-            String objString = object.toString();
-            byte[] bytes = objString.getBytes(Charset.forName("UTF-8"));
-            if (bytes.length >= FIELD_LENGTH_LIMIT){
-                logger.info("Field {} is greater than the allowed size of 4K. Skipping....", fieldName);
-                objectNode.put(fieldName, "");
+        String objString = fieldText(object, fieldName);
+        if(objString != null){
+            objectNode.put(fieldName, objString);
+        }
+        return objectNode;
+    }
+
+    public static EventRecord checkAddObject(EventRecord record, Object object, String fieldName){
+        String objString = fieldText(object, fieldName);
+        if(objString != null){
+            record.put(fieldName, objString);
+        }
+        return record;
+    }
+
+    private static String fieldText(Object object, String fieldName){
+        String objString = object == null ? null : object.toString();
+        if (objString == null || utf8Length(objString, FIELD_LENGTH_LIMIT) < FIELD_LENGTH_LIMIT) {
+            return objString;
+        }
+        if (truncateOversizedFields) {
+            logger.debug("Field {} is greater than the allowed size of 4K. Truncating....", fieldName);
+            int end = utf8Prefix(objString, FIELD_LENGTH_LIMIT - 1 - TRUNCATED_MARKER.length());
+            return new StringBuilder(end + TRUNCATED_MARKER.length()).append(objString, 0, end).append(TRUNCATED_MARKER).toString();
+        }
+        logger.info("Field {} is greater than the allowed size of 4K. Skipping....", fieldName);
+        return "";
+    }
+
+    //UTF-8 encoded length of the string without encoding it. Counting stops once limit is reached
+    public static int utf8Length(CharSequence value, int limit){
+        int length = 0;
+        for (int i = 0, n = value.length(); i < n && length < limit; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
             }
-            else{
-                objectNode.put(fieldName, objString);
+            else if (c < 0x800) {
+                length += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            }
+            else {
+                length += 3;
             }
         }
-        return objectNode;
+        return length;
+    }
+
+    //number of chars at the start of the string that encode to at most maxBytes of UTF-8. Surrogate pairs are not split
+    public static int utf8Prefix(CharSequence value, int maxBytes){
+        int length = 0;
+        int i = 0;
+        for (int n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            int size = 3;
+            int chars = 1;
+            if (c < 0x80) {
+                size = 1;
+            }
+            else if (c < 0x800) {
+                size = 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                size = 4;
+                chars = 2;
+            }
+            if (length + size > maxBytes) {
+                break;
+            }
+            length += size;
+            i += chars - 1;
+        }
+        return i;
+    }
+
+    public static void configureFieldLimits(Map<String, String> config){
+        truncateOversizedFields = "truncate".equalsIgnoreCase(config.get(CONFIG_OVERSIZED_FIELDS));
     }
 
     public static ObjectNode checkAddInt(ObjectNode objectNode, Integer val, String fieldName){
@@ -281,109 +270,110 @@ public class Utilities {
         return objectNode;
     }
 
-    public static ObjectNode setField(SummaryObj summaryObj, String fieldName, int value){
-        if (summaryObj == null){
-            return null;
-        }
-        ObjectNode obj = summaryObj.getData();
-        if(obj != null && obj.has(fieldName)) {
-            int val = value;
-            obj.put(fieldName, val);
-        }
+    public static EventRecord checkAddInt(EventRecord record, Integer val, String fieldName){
+        return record.put(fieldName, val == null ? Integer.valueOf(0) : val);
+    }
 
-        return obj;
+    public static EventRecord checkAddLong(EventRecord record, Long val, String fieldName){
+        return record.put(fieldName, val == null ? Long.valueOf(0) : val);
     }
 
-    public static ObjectNode decrementField(SummaryObj summaryObj, String fieldName, Integer decrement){
-        if (summaryObj == null){
-            return null;
-        }
-        ObjectNode obj = summaryObj.getData();
-        if(obj != null && obj.has(fieldName)) {
-            int val = obj.get(fieldName).asInt();
-            obj.put(fieldName, val-decrement);
-        }
+    public static EventRecord checkAddFloat(EventRecord record, Float val, String fieldName){
+        return record.put(fieldName, val == null ? Float.valueOf(0) : val);
+    }
 
-        return obj;
+    public static EventRecord checkAddDecimal(EventRecord record, BigDecimal val, String fieldName){
+        return record.put(fieldName, val == null ? BigDecimal.ZERO : val);
     }
-    public static ObjectNode decrementField(SummaryObj summaryObj, String fieldName, Float decrement){
-        if (summaryObj == null){
-            return null;
-        }
-        ObjectNode obj = summaryObj.getData();
-        if(obj != null && obj.has(fieldName)) {
-            int val = obj.get(fieldName).asInt();
-            obj.put(fieldName, val-decrement);
-        }
 
-        return obj;
+    public static EventRecord checkAddBoolean(EventRecord record, Boolean val, String fieldName){
+        return record.put(fieldName, val == null ? Boolean.FALSE : val);
     }
 
-    public static ObjectNode decrementField(SummaryObj summaryObj, String fieldName, BigDecimal decrement){
-        if (summaryObj == null){
-            return null;
-        }
-        ObjectNode obj = summaryObj.getData();
-        if(obj != null && obj.has(fieldName)) {
-            BigDecimal val = new BigDecimal(obj.get(fieldName).asDouble());
-            val = val.subtract(decrement);
-            obj.put(fieldName, val);
+    public static void setField(SummaryObj summaryObj, String fieldName, int value){
+        if (summaryObj != null){
+            summaryObj.set(fieldName, value);
         }
+    }
 
-        return obj;
+    public static void decrementField(SummaryObj summaryObj, String fieldName, Integer decrement){
+        if (summaryObj != null){
+            summaryObj.increment(fieldName, -(long) decrement);
+        }
     }
 
-    public static ObjectNode incrementField(SummaryObj summaryObj, String fieldName){
-        if (summaryObj == null){
-            return null;
+    public static void decrementField(SummaryObj summaryObj, String fieldName, Float decrement){
+        if (summaryObj != null){
+            summaryObj.increment(fieldName, -(double) decrement);
         }
-        ObjectNode obj = summaryObj.getData();
-        if(obj != null && obj.has(fieldName)) {
-            int val = obj.get(fieldName).asInt() + 1;
-            obj.put(fieldName, val);
+    }
+
+    public static void decrementField(SummaryObj summaryObj, String fieldName, BigDecimal decrement){
+        if (summaryObj != null){
+            summaryObj.increment(fieldName, -decrement.doubleValue());
         }
+    }
 
-        return obj;
+    public static void incrementField(SummaryObj summaryObj, String fieldName){
+        if (summaryObj != null){
+            summaryObj.increment(fieldName, 1L);
+        }
     }
 
-    public static ObjectNode incrementField(SummaryObj summaryObj, String fieldName, int increment){
-        if (summaryObj == null){
-            return null;
+    public static void incrementField(SummaryObj summaryObj, String fieldName, int increment){
+        if (summaryObj != null){
+            summaryObj.increment(fieldName, (long) increment);
         }
-        ObjectNode obj = summaryObj.getData();
-        if(obj != null && obj.has(fieldName)) {
-            int val = obj.get(fieldName).asInt();
-            obj.put(fieldName, val+increment);
+    }
+
+    public static void incrementField(SummaryObj summaryObj, String fieldName, long increment){
+        if (summaryObj != null){
+            summaryObj.increment(fieldName, increment);
         }
+    }
 
-        return obj;
+    //fractional increments are summed in full, they are not truncated to int
+    public static void incrementField(SummaryObj summaryObj, String fieldName, float increment){
+        if (summaryObj != null){
+            summaryObj.increment(fieldName, (double) increment);
+        }
     }
 
-    public static ObjectNode incrementField(SummaryObj summaryObj, String fieldName, float increment){
-        if (summaryObj == null){
-            return null;
+    public static void incrementField(SummaryObj summaryObj,  String fieldName, BigDecimal increment){
+        if (summaryObj != null){
+            summaryObj.increment(fieldName, increment.doubleValue());
         }
-        ObjectNode obj = summaryObj.getData();
-        if(obj != null && obj.has(fieldName)) {
-            int val = obj.get(fieldName).asInt();
-            obj.put(fieldName, val+increment);
+    }
+
+    //updates by the field id of SummaryObj.field, without looking the name up
+    public static void setField(SummaryObj summaryObj, int field, int value){
+        if (summaryObj != null){
+            summaryObj.set(field, value);
         }
+    }
 
-        return obj;
+    public static void incrementField(SummaryObj summaryObj, int field){
+        if (summaryObj != null){
+            summaryObj.increment(field, 1L);
+        }
     }
 
-    public static ObjectNode incrementField(SummaryObj summaryObj,  String fieldName, BigDecimal increment){
-        if (summaryObj == null){
-            return null;
+    public static void incrementField(SummaryObj summaryObj, int field, int increment){
+        if (summaryObj != null){
+            summaryObj.increment(field, (long) increment);
         }
-        ObjectNode obj = summaryObj.getData();
-        if(obj != null && obj.has(fieldName)) {
-            BigDecimal val = new BigDecimal(obj.get(fieldName).asDouble());
-            val = val.add(increment);
-            obj.put(fieldName, val);
+    }
+
+    public static void incrementField(SummaryObj summaryObj, int field, long increment){
+        if (summaryObj != null){
+            summaryObj.increment(field, increment);
         }
+    }
 
-        return obj;
+    public static void incrementField(SummaryObj summaryObj, int field, float increment){
+        if (summaryObj != null){
+            summaryObj.increment(field, (double) increment);
+        }
     }
 
     public  static ArrayList getSummaryDataList(HashMap<String, SummaryObj> summaryMap){
@@ -568,6 +558,39 @@ public class Utilities {
         return client;
     }
 
+    public static int getListPageSize(Map<String, String> config){
+        String pageSize = config.get(CONFIG_LIST_PAGE_SIZE);
+        if (StringUtils.isEmpty(pageSize)){
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(pageSize.trim()));
+        }
+        catch (NumberFormatException ex){
+            logger.error("Invalid {} value {}. Paging is disabled", CONFIG_LIST_PAGE_SIZE, pageSize);
+            return 0;
+        }
+    }
+
+    public static long getBatchMaxBytes(Map<String, String> config){
+        String maxBytes = config.get(CONFIG_BATCH_MAX_BYTES);
+        if (StringUtils.isEmpty(maxBytes)){
+            return DEFAULT_BATCH_MAX_BYTES;
+        }
+        try {
+            return Math.max(0, Long.parseLong(maxBytes.trim()));
+        }
+        catch (NumberFormatException ex){
+            logger.error("Invalid {} value {}. Using {}", CONFIG_BATCH_MAX_BYTES, maxBytes, DEFAULT_BATCH_MAX_BYTES);
+            return DEFAULT_BATCH_MAX_BYTES;
+        }
+    }
+
+    public static boolean isProjectionEnabled(Map<String, String> config){
+        String projection = config.get(CONFIG_PROJECT_OBJECTS);
+        return StringUtils.isEmpty(projection) || "true".equalsIgnoreCase(projection);
+    }
+
     public static String getRootDirectory(){
         File file = new File(".");
         return String.format("%s/monitors/KubernetesSnapshotExtension", file.getAbsolutePath());
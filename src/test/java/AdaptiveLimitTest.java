@@ -0,0 +1,43 @@
+import com.appdynamics.monitors.kubernetes.Kube.AdaptiveLimit;
+import io.kubernetes.client.ApiException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+
+public class AdaptiveLimitTest {
+
+    @Test
+    public void halvesOnOverloadAndGrowsBack() throws Exception {
+        AdaptiveLimit limit = new AdaptiveLimit(8, 8);
+        limit.acquire();
+        limit.release(true);
+        Assert.assertEquals(4, limit.getLimit());
+        limit.acquire();
+        limit.release(true);
+        limit.acquire();
+        limit.release(true);
+        limit.acquire();
+        limit.release(true);
+        Assert.assertEquals(1, limit.getLimit());
+
+        //one step up per window of successful calls
+        limit.acquire();
+        limit.release(false);
+        Assert.assertEquals(2, limit.getLimit());
+        limit.acquire();
+        limit.release(false);
+        Assert.assertEquals(2, limit.getLimit());
+        limit.acquire();
+        limit.release(false);
+        Assert.assertEquals(3, limit.getLimit());
+    }
+
+    @Test
+    public void detectsOverload() {
+        Assert.assertTrue(AdaptiveLimit.isOverload(new ApiException(429, "Too Many Requests")));
+        Assert.assertTrue(AdaptiveLimit.isOverload(new ApiException(503, "Unavailable")));
+        Assert.assertTrue(AdaptiveLimit.isOverload(new ApiException(new SocketTimeoutException("timeout"))));
+        Assert.assertFalse(AdaptiveLimit.isOverload(new ApiException(403, "Forbidden")));
+    }
+}
@@ -0,0 +1,69 @@
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.DeltaTracker;
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.EventRecord;
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.RecordSchema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DeltaTrackerTest {
+    private final RecordSchema schema = RecordSchema.compile("{\"schema\": {\"object_uid\": \"string\", \"name\": \"string\", \"deletionTimestamp\": \"date\"}}");
+
+    private EventRecord record(String uid, String phase){
+        EventRecord record = new EventRecord(schema);
+        record.put("object_uid", uid);
+        record.put("name", "pod-" + uid);
+        record.put("phase", phase);
+        return record;
+    }
+
+    @Test
+    public void publishesChangesAndTombstones() {
+        Map<String, String> config = new HashMap<String, String>();
+        config.put("publishDeltasOnly", "true");
+        config.put("deltaFullRefreshMinutes", "60");
+        DeltaTracker tracker = new DeltaTracker("pods", "object_uid", "deletionTimestamp", null);
+
+        tracker.beginCycle(config);
+        Assert.assertTrue(tracker.shouldPublish(record("1", "Running")));
+        Assert.assertTrue(tracker.shouldPublish(record("2", "Pending")));
+        Assert.assertEquals(0, tracker.endCycle().size());
+
+        tracker.beginCycle(config);
+        Assert.assertFalse(tracker.shouldPublish(record("1", "Running")));
+        Assert.assertTrue(tracker.shouldPublish(record("3", "Running")));
+        List<EventRecord> tombstones = tracker.endCycle();
+        Assert.assertEquals(1, tombstones.size());
+        Assert.assertEquals("2", tombstones.get(0).get("object_uid"));
+        Assert.assertEquals("pod-2", tombstones.get(0).get("name"));
+        Assert.assertNotNull(tombstones.get(0).get("deletionTimestamp"));
+        Assert.assertNull(tombstones.get(0).get("phase"));
+
+        tracker.beginCycle(config);
+        Assert.assertTrue(tracker.shouldPublish(record("1", "Succeeded")));
+    }
+
+    @Test
+    public void tombstonesCarryTheLatestIdentity() {
+        Map<String, String> config = new HashMap<String, String>();
+        config.put("publishDeltasOnly", "true");
+        DeltaTracker tracker = new DeltaTracker("pods", "object_uid", "deletionTimestamp", null);
+
+        tracker.beginCycle(config);
+        Assert.assertTrue(tracker.shouldPublish(record("1", "Running")));
+        tracker.endCycle();
+
+        tracker.beginCycle(config);
+        EventRecord renamed = record("1", "Running");
+        renamed.put("name", "pod-renamed");
+        Assert.assertTrue(tracker.shouldPublish(renamed));
+        tracker.endCycle();
+
+        tracker.beginCycle(config);
+        List<EventRecord> tombstones = tracker.endCycle();
+        Assert.assertEquals(1, tombstones.size());
+        Assert.assertEquals("pod-renamed", tombstones.get(0).get("name"));
+    }
+}
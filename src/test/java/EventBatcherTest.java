@@ -0,0 +1,78 @@
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.EventBatcher;
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.EventPayload;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventBatcherTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<String> payloads = new ArrayList<String>();
+
+    private EventBatcher batcher(long maxRecords, long maxBytes){
+        return new EventBatcher("test", maxRecords, maxBytes, new EventBatcher.Sender() {
+            @Override
+            public void send(EventPayload payload, int records) {
+                payloads.add(payload.toString());
+                payload.release();
+            }
+        });
+    }
+
+    private ObjectNode record(int size){
+        ObjectNode record = mapper.createObjectNode();
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            value.append('x');
+        }
+        record.put("labels", value.toString());
+        return record;
+    }
+
+    @Test
+    public void flushesOnRecordCount() throws Exception {
+        EventBatcher batcher = batcher(2, 0);
+        for (int i = 0; i < 5; i++) {
+            batcher.add(record(10));
+        }
+        batcher.flush();
+        Assert.assertEquals(3, payloads.size());
+        Assert.assertEquals(2, mapper.readTree(payloads.get(0)).size());
+        Assert.assertEquals(1, mapper.readTree(payloads.get(2)).size());
+    }
+
+    @Test
+    public void flushesBeforeExceedingMaxBytes() throws Exception {
+        EventBatcher batcher = batcher(100, 250);
+        for (int i = 0; i < 5; i++) {
+            batcher.add(record(100));
+        }
+        batcher.add(record(500));
+        batcher.flush();
+        Assert.assertEquals(4, payloads.size());
+        for (String payload : payloads.subList(0, 3)) {
+            Assert.assertTrue(payload.length() <= 250);
+            JsonNode batch = mapper.readTree(payload);
+            Assert.assertTrue(batch.isArray());
+        }
+        //a record larger than the limit is sent alone
+        Assert.assertEquals(1, mapper.readTree(payloads.get(3)).size());
+    }
+
+    @Test
+    public void buildsPayloadsLargerThanOneChunk() throws Exception {
+        EventBatcher batcher = batcher(10, 0);
+        for (int i = 0; i < 3; i++) {
+            batcher.add(record(50000));
+        }
+        batcher.flush();
+        Assert.assertEquals(1, payloads.size());
+        JsonNode batch = mapper.readTree(payloads.get(0));
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals(50000, batch.get(2).get("labels").asText().length());
+    }
+}
@@ -0,0 +1,48 @@
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.EventBatcher;
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.EventPayload;
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.EventRecord;
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.RecordSchema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventRecordTest {
+    private final RecordSchema schema = RecordSchema.compile("{\"schema\": {\"name\": \"string\", \"restarts\": \"integer\", " +
+            "\"cpuRequest\": \"float\", \"hostIP\": \"string\", \"isReady\": \"boolean\"}}");
+
+    @Test
+    public void writesInSchemaOrderWithDeclaredTypes() throws Exception {
+        final List<String> payloads = new ArrayList<String>();
+        EventBatcher batcher = new EventBatcher("pods", 10, 0, new EventBatcher.Sender() {
+            @Override
+            public void send(EventPayload payload, int records) {
+                payloads.add(payload.toString());
+                payload.release();
+            }
+        });
+        EventRecord record = new EventRecord(schema);
+        record.put("isReady", "true");
+        record.put("restarts", "3");
+        record.put("name", "pod-1");
+        record.put("cpuRequest", 1);
+        record.put("quota", 5);
+        batcher.add(record);
+        batcher.add(new EventRecord(schema).put("name", "pod-2").put("restarts", "n/a"));
+        batcher.flush();
+
+        Assert.assertEquals(1, payloads.size());
+        Assert.assertEquals("[{\"name\":\"pod-1\",\"restarts\":3,\"cpuRequest\":1.0,\"isReady\":true,\"quota\":5}," +
+                "{\"name\":\"pod-2\",\"restarts\":\"n/a\"}]", payloads.get(0));
+    }
+
+    @Test
+    public void fingerprintFollowsValues() {
+        EventRecord first = new EventRecord(schema).put("name", "pod-1").put("restarts", 1);
+        EventRecord same = new EventRecord(schema).put("restarts", 1).put("name", "pod-1");
+        EventRecord changed = new EventRecord(schema).put("name", "pod-1").put("restarts", 2);
+        Assert.assertEquals(first.fingerprint(), same.fingerprint());
+        Assert.assertNotEquals(first.fingerprint(), changed.fingerprint());
+    }
+}
@@ -0,0 +1,40 @@
+import com.appdynamics.monitors.kubernetes.Utilities;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class FieldLengthTest {
+    @Test
+    public void countsUtf8Bytes() {
+        String value = "a\u00e9\u20ac\ud83d\ude00";
+        Assert.assertEquals(value.getBytes(StandardCharsets.UTF_8).length, Utilities.utf8Length(value, Integer.MAX_VALUE));
+        Assert.assertEquals(3, Utilities.utf8Length(value, 2));
+        Assert.assertEquals(3, Utilities.utf8Prefix(value, 8));
+        Assert.assertEquals(5, Utilities.utf8Prefix(value, 10));
+    }
+
+    @Test
+    public void dropsOrTruncatesLongFields() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < Utilities.FIELD_LENGTH_LIMIT; i++) {
+            sb.append('\u00e9');
+        }
+        ObjectNode node = new ObjectMapper().createObjectNode();
+        Utilities.checkAddObject(node, sb, "labels");
+        Assert.assertEquals("", node.get("labels").asText());
+
+        Utilities.truncateOversizedFields = true;
+        try {
+            Utilities.checkAddObject(node, sb, "labels");
+            String truncated = node.get("labels").asText();
+            Assert.assertTrue(truncated.endsWith(Utilities.TRUNCATED_MARKER));
+            Assert.assertTrue(truncated.getBytes(StandardCharsets.UTF_8).length < Utilities.FIELD_LENGTH_LIMIT);
+        }
+        finally {
+            Utilities.truncateOversizedFields = false;
+        }
+    }
+}
@@ -2,6 +2,7 @@ import com.appdynamics.extensions.metrics.Metric;
 import com.appdynamics.extensions.yml.YmlReader;
 import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
 import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.Dimension;
 import com.appdynamics.monitors.kubernetes.SnapshotTasks.PodSnapshotRunner;
 import com.appdynamics.monitors.kubernetes.Utilities;
 import org.junit.Assert;
@@ -24,7 +25,7 @@ public class PodSnapshotTest {
             podSnapshotRunner.setTaskName("POD_TASK");
 
             SummaryObj summary = podSnapshotRunner.initPodSummaryObject(config, ALL, ALL);
-            podSnapshotRunner.getSummaryMap().put(ALL, summary);
+            podSnapshotRunner.putSummary(Dimension.CLUSTER, ALL, summary);
             podSnapshotRunner.serializeMetrics("src/test/resources");
             Assert.assertTrue(true);
         }
@@ -0,0 +1,49 @@
+import com.appdynamics.monitors.kubernetes.Kube.Projection;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
+import com.google.gson.stream.JsonReader;
+import io.kubernetes.client.JSON;
+import io.kubernetes.client.models.V1Pod;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+public class ProjectionTest {
+    private static final String POD = "{\"metadata\":{\"name\":\"web-1\",\"labels\":{\"app\":\"web\",\"tier\":\"front\"},\"namespace\":\"default\",\"uid\":\"u1\"," +
+            "\"ownerReferences\":[{\"kind\":\"ReplicaSet\",\"name\":\"web\"}]}," +
+            "\"spec\":{\"nodeName\":\"node-1\",\"notInTheModel\":{\"a\":[1,{\"b\":null}]},\"volumes\":[{\"name\":\"data\",\"emptyDir\":{}}]," +
+            "\"containers\":[{\"name\":\"app\",\"image\":\"nginx\",\"env\":[{\"name\":\"A\",\"value\":\"B\"}]," +
+            "\"livenessProbe\":{\"httpGet\":{\"path\":\"/\",\"port\":80}},\"resources\":{\"requests\":{\"cpu\":\"100m\"}}}]}," +
+            "\"status\":{\"phase\":\"Running\",\"containerStatuses\":[{\"name\":\"app\",\"image\":\"nginx\",\"imageID\":\"sha\",\"restartCount\":2}]}}";
+
+    @Test
+    public void skipsFieldsOutsideOfProjection() throws Exception {
+        Projection projection = ResourceType.PODS.getProjection();
+        V1Pod pod = projection.bind(new JSON().getGson(), new JsonReader(new StringReader(POD)), V1Pod.class);
+
+        Assert.assertEquals("web-1", pod.getMetadata().getName());
+        Assert.assertEquals("front", pod.getMetadata().getLabels().get("tier"));
+        Assert.assertEquals("node-1", pod.getSpec().getNodeName());
+        Assert.assertEquals("Running", pod.getStatus().getPhase());
+        Assert.assertEquals(Integer.valueOf(2), pod.getStatus().getContainerStatuses().get(0).getRestartCount());
+        Assert.assertNotNull(pod.getSpec().getContainers().get(0).getResources().getRequests().get("cpu"));
+        //presence of the probe is kept without its content
+        Assert.assertNotNull(pod.getSpec().getContainers().get(0).getLivenessProbe());
+        Assert.assertNull(pod.getSpec().getContainers().get(0).getLivenessProbe().getHttpGet());
+
+        Assert.assertNull(pod.getMetadata().getOwnerReferences());
+        Assert.assertNull(pod.getSpec().getVolumes());
+        Assert.assertNull(pod.getSpec().getContainers().get(0).getEnv());
+        Assert.assertNull(pod.getStatus().getContainerStatuses().get(0).getImageID());
+    }
+
+    @Test
+    public void keepsWholeValueAtEndOfPath() throws Exception {
+        Projection projection = Projection.of("spec");
+        V1Pod pod = projection.bind(new JSON().getGson(), new JsonReader(new StringReader(POD)), V1Pod.class);
+
+        Assert.assertNull(pod.getMetadata());
+        Assert.assertEquals(1, pod.getSpec().getVolumes().size());
+        Assert.assertEquals("B", pod.getSpec().getContainers().get(0).getEnv().get(0).getValue());
+    }
+}
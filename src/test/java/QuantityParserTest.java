@@ -0,0 +1,36 @@
+import com.appdynamics.monitors.kubernetes.Kube.QuantityParser;
+import io.kubernetes.client.custom.Quantity;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QuantityParserTest {
+
+    @Test
+    public void parsesSuffixesToMilliUnits() {
+        Assert.assertEquals(250, QuantityParser.toMilli("250m"));
+        Assert.assertEquals(2000, QuantityParser.toMilli("2"));
+        Assert.assertEquals(1500, QuantityParser.toMilli("1.5"));
+        Assert.assertEquals(128L * 1024 * 1024 * 1000, QuantityParser.toMilli("128Mi"));
+        Assert.assertEquals(1536L * 1000, QuantityParser.toMilli("1.5Ki"));
+        Assert.assertEquals(2000L * 1000 * 1000 * 1000, QuantityParser.toMilli("2G"));
+        Assert.assertEquals(1000L * 1000 * 1000 * 1000 * 1000 * 1000, QuantityParser.toMilli("1P"));
+        //an exa-unit is beyond a long of milli-units
+        Assert.assertEquals(Long.MAX_VALUE, QuantityParser.toMilli("1E"));
+        Assert.assertEquals(12000000, QuantityParser.toMilli("12e3"));
+        Assert.assertEquals(1, QuantityParser.toMilli("100n"));
+        Assert.assertEquals(Long.MAX_VALUE, QuantityParser.toMilli("16Ei"));
+    }
+
+    @Test
+    public void agreesWithQuantity() {
+        String[] values = {"0", "100m", "0.5", "64Mi", "3Gi", "1k", "7.25M", "1e6", "1200u"};
+        for (String value : values) {
+            Assert.assertEquals(value, QuantityParser.toMilli(new Quantity(value)), QuantityParser.toMilli(value));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void rejectsUnknownSuffixes() {
+        QuantityParser.toMilli("5Xi");
+    }
+}
@@ -0,0 +1,45 @@
+import com.appdynamics.monitors.kubernetes.SnapshotTasks.RestartStateStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+public class RestartStateStoreTest {
+
+    @Test
+    public void reportsRestartsSinceTheLastCycle() throws Exception {
+        File journal = File.createTempFile("restarts", ".journal");
+        journal.delete();
+        try {
+            RestartStateStore store = new RestartStateStore(journal);
+            store.beginCycle();
+            //the first cycle is the baseline
+            Assert.assertEquals(0, store.delta("uid-1", "app", 4));
+            Assert.assertEquals(0, store.delta("uid-2", "app", 1));
+            store.endCycle();
+
+            store.beginCycle();
+            Assert.assertEquals(2, store.delta("uid-1", "app", 6));
+            Assert.assertEquals(3, store.delta("uid-3", "app", 3));
+            store.endCycle();
+            Assert.assertEquals(2, store.size());
+
+            //a failed cycle is not committed
+            store.beginCycle();
+            Assert.assertEquals(1, store.delta("uid-1", "app", 7));
+
+            RestartStateStore reloaded = new RestartStateStore(journal);
+            reloaded.beginCycle();
+            Assert.assertEquals(1, reloaded.delta("uid-1", "app", 7));
+            Assert.assertEquals(0, reloaded.delta("uid-3", "app", 3));
+            //uid-2 was deleted, a pod with the same uid would be new
+            Assert.assertEquals(1, reloaded.delta("uid-2", "app", 1));
+            //containers added since the last cycle count all their restarts
+            Assert.assertEquals(2, reloaded.delta("uid-3", "sidecar", 2));
+        }
+        finally {
+            Files.deleteIfExists(journal.toPath());
+        }
+    }
+}
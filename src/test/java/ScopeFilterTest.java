@@ -0,0 +1,89 @@
+import com.appdynamics.monitors.kubernetes.Kube.ItemHandler;
+import com.appdynamics.monitors.kubernetes.Kube.ListRequest;
+import com.appdynamics.monitors.kubernetes.Kube.ResourceType;
+import com.appdynamics.monitors.kubernetes.Kube.ScopeFilter;
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.MediaType;
+import com.squareup.okhttp.Protocol;
+import com.squareup.okhttp.Response;
+import com.squareup.okhttp.ResponseBody;
+import io.kubernetes.client.ApiClient;
+import io.kubernetes.client.models.V1Namespace;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ScopeFilterTest {
+
+    private Map<String, Object> entry(String key, String value){
+        Map<String, Object> entry = new HashMap<String, Object>();
+        entry.put(key, value);
+        return entry;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void matchesNamesPatternsAndExclusions() {
+        List<Map<String, Object>> namespaces = new ArrayList<Map<String, Object>>();
+        namespaces.add(entry("name", "default"));
+        namespaces.add(entry("pattern", "team-*"));
+        namespaces.add(entry("regex", "app-[0-9]+"));
+        namespaces.add(entry("exclude", "team-test?"));
+        Map<String, Object> config = new HashMap<String, Object>();
+        config.put("namespaces", namespaces);
+        ScopeFilter.compileAll((Map<String, String>) (Map) config);
+
+        ScopeFilter filter = ScopeFilter.get(config, "namespaces");
+        Assert.assertTrue(filter.accepts("default"));
+        Assert.assertTrue(filter.accepts("team-a"));
+        Assert.assertTrue(filter.accepts("app-12"));
+        Assert.assertFalse(filter.accepts("team-test1"));
+        Assert.assertFalse(filter.accepts("app-x"));
+        Assert.assertFalse(filter.accepts("kube-system"));
+        //the patterns need the namespaces to be listed cluster wide
+        Assert.assertNull(filter.getListNames());
+
+        //without a nodes list no node gets metrics of its own
+        Assert.assertFalse(ScopeFilter.get(config, "nodes").accepts("node-1"));
+    }
+
+    @Test
+    public void selectorReachesTheListCall() throws Exception {
+        final List<String> urls = new ArrayList<String>();
+        ApiClient client = new ApiClient();
+        client.getHttpClient().interceptors().add(new Interceptor() {
+            @Override
+            public Response intercept(Chain chain) throws IOException {
+                urls.add(chain.request().urlString());
+                String body = urls.size() == 1
+                        ? "{\"metadata\":{\"continue\":\"next\"},\"items\":[{\"metadata\":{\"name\":\"prod-a\"}}]}"
+                        : "{\"metadata\":{\"resourceVersion\":\"7\"},\"items\":[{\"metadata\":{\"name\":\"prod-b\"}}]}";
+                return new Response.Builder().request(chain.request()).protocol(Protocol.HTTP_1_1).code(200)
+                        .body(ResponseBody.create(MediaType.parse("application/json"), body)).build();
+            }
+        });
+
+        final List<String> names = new ArrayList<String>();
+        String resourceVersion = ResourceType.NAMESPACES.streamPaged(client, new ListRequest().setLabelSelector("env=prod"), 1,
+                ResourceType.NAMESPACES.getProjection(), new ItemHandler<V1Namespace>() {
+                    @Override
+                    public void onItem(V1Namespace item) {
+                        names.add(item.getMetadata().getName());
+                    }
+                });
+
+        Assert.assertEquals("7", resourceVersion);
+        Assert.assertEquals(2, names.size());
+        //every page of the selector list carries the selector
+        Assert.assertEquals(2, urls.size());
+        for (String url : urls) {
+            Assert.assertTrue(url, url.contains("labelSelector=env%3Dprod"));
+        }
+        Assert.assertTrue(urls.get(1), urls.get(1).contains("continue=next"));
+    }
+}
@@ -0,0 +1,74 @@
+import com.appdynamics.monitors.kubernetes.Models.AppDMetricObj;
+import com.appdynamics.monitors.kubernetes.Models.SummaryObj;
+import com.appdynamics.monitors.kubernetes.Utilities;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+public class SummaryObjTest {
+    private SummaryObj summary(){
+        ObjectNode template = new ObjectMapper().createObjectNode();
+        template.put("nodename", "all");
+        template.put("Pods", 0);
+        template.put("RequestCpu", 0);
+        return new SummaryObj(template, new ArrayList<AppDMetricObj>(), "path");
+    }
+
+    @Test
+    public void keepsFractionalIncrements() {
+        SummaryObj summary = summary();
+        Utilities.incrementField(summary, "Pods");
+        Utilities.incrementField(summary, "Pods", 2);
+        Utilities.incrementField(summary, "RequestCpu", 0.25f);
+        Utilities.incrementField(summary, "RequestCpu", 0.5f);
+        Utilities.incrementField(summary, "Missing");
+
+        Assert.assertEquals("3", summary.getValueText(1));
+        Assert.assertEquals("0.75", summary.getValueText(2));
+        Assert.assertNull(summary.getValueText(0));
+        Assert.assertFalse(summary.has("Missing"));
+        Assert.assertEquals("all", summary.getData().get("nodename").asText());
+    }
+
+    @Test
+    public void setAndDecrement() {
+        SummaryObj summary = summary();
+        Utilities.setField(summary, "Pods", 10);
+        Utilities.decrementField(summary, "Pods", 4);
+        Assert.assertEquals(6, summary.getLong("Pods"));
+        Assert.assertEquals(6, summary.getData().get("Pods").asInt());
+    }
+
+    @Test
+    public void mergesShards() {
+        SummaryObj summary = summary();
+        SummaryObj shard = summary();
+        Utilities.incrementField(summary, "Pods", 2);
+        Utilities.incrementField(shard, "Pods", 3);
+        Utilities.incrementField(shard, "RequestCpu", 0.5f);
+        summary.merge(shard);
+        Assert.assertEquals(5, summary.getLong("Pods"));
+        Assert.assertEquals("0.5", summary.getValueText(2));
+    }
+
+    @Test
+    public void updatesByFieldId() {
+        int pods = SummaryObj.field("Pods");
+        int missing = SummaryObj.field("NotInTheTemplate");
+        SummaryObj summary = summary();
+        ObjectNode template = new ObjectMapper().createObjectNode();
+        template.put("Pods", 0);
+        SummaryObj other = new SummaryObj(template, new ArrayList<AppDMetricObj>(), "path");
+
+        Assert.assertEquals(pods, SummaryObj.field("Pods"));
+        Utilities.incrementField(summary, pods, 2);
+        Utilities.incrementField(other, pods);
+        Utilities.incrementField(summary, missing);
+        Assert.assertEquals(2, summary.getLong("Pods"));
+        Assert.assertEquals(1, other.getLong("Pods"));
+        Assert.assertFalse(summary.has("NotInTheTemplate"));
+    }
+}